@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import checkersRules.Board;
+
+/**
+ * Times reading, writing, copying and searching a board.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@OperationsPerInvocation(Positions.COUNT)
+public class BoardBenchmark {
+
+	@Benchmark
+	public void get(Positions p, Blackhole bh) {
+		for (Board b : p.boards) {
+			int sum = 0;
+			for (int i = 0; i < 32; i ++) {
+				sum += b.get(i);
+			}
+			bh.consume(sum);
+		}
+	}
+
+	@Benchmark
+	public void set(Positions p, Blackhole bh) {
+		for (Board b : p.boards) {
+			for (int i = 0; i < 32; i ++) {
+				b.set(i, b.get(i));
+			}
+			bh.consume(b.getKey());
+		}
+	}
+
+	@Benchmark
+	public void copy(Positions p, Blackhole bh) {
+		for (Board b : p.boards) {
+			bh.consume(b.copy());
+		}
+	}
+
+	@Benchmark
+	public void find(Positions p, Blackhole bh) {
+		for (Board b : p.boards) {
+			bh.consume(b.find(Board.BLACK_CHECKER));
+			bh.consume(b.find(Board.WHITE_KING));
+		}
+	}
+
+}
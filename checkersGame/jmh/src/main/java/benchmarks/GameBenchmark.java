@@ -0,0 +1,112 @@
+package benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import checkersRules.BitBoard;
+import checkersRules.Game;
+import checkersRules.MoveList;
+import checkersRules.PackedMove;
+import checkersRules.PositionCodec;
+import players.ComputerPlayer;
+
+/**
+ * Times making moves on a copy of each position, reading and writing whole
+ * positions, and the computer player choosing a move.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@OperationsPerInvocation(Positions.COUNT)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+	private final Game target = new Game();
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(PositionCodec.SIZE);
+
+	private final ComputerPlayer player = new ComputerPlayer();
+
+	@Benchmark
+	public void move(Positions p, Blackhole bh) {
+		MoveList moves = MoveList.get();
+		for (int i = 0; i < Positions.COUNT; i ++) {
+			Game game = p.games[i];
+			int base = moves.size();
+			int n = BitBoard.generate(p.boards[i], game.isP1Turn(),
+					game.getSkipIndex(), moves);
+			for (int j = 0; j < n; j ++) {
+				int m = moves.get(base + j);
+				bh.consume(game.copy().move(PackedMove.getStartIndex(m),
+						PackedMove.getEndIndex(m)));
+			}
+			moves.setSize(base);
+		}
+	}
+
+	@Benchmark
+	public void isGameOver(Positions p, Blackhole bh) {
+		for (Game game : p.games) {
+			bh.consume(game.isGameOver());
+		}
+	}
+
+	@Benchmark
+	public void getGameState(Positions p, Blackhole bh) {
+		for (Game game : p.games) {
+			bh.consume(game.getGameState());
+		}
+	}
+
+	@Benchmark
+	public void setGameState(Positions p, Blackhole bh) {
+		for (Game game : p.games) {
+			target.setGameState(game.getGameState());
+			bh.consume(target.getSkipIndex());
+		}
+	}
+
+	@Benchmark
+	public void writePosition(Positions p, Blackhole bh) {
+		for (Game game : p.games) {
+			buffer.clear();
+			PositionCodec.write(game, buffer);
+			bh.consume(buffer.get(0));
+		}
+	}
+
+	@Benchmark
+	public void readPosition(Positions p, Blackhole bh) {
+		for (Game game : p.games) {
+			buffer.clear();
+			PositionCodec.write(game, buffer);
+			buffer.flip();
+			PositionCodec.read(buffer, target);
+			bh.consume(target.getSkipIndex());
+		}
+	}
+
+	@Benchmark
+	public void computerMove(Positions p, Blackhole bh) {
+		for (Game game : p.games) {
+			Game copy = game.copy();
+			player.updateGame(copy);
+			bh.consume(copy.isP1Turn());
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.Logic;
+
+/**
+ * Times checking every diagonal move and whether every checker is safe.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@OperationsPerInvocation(Positions.COUNT)
+public class LogicBenchmark {
+
+	@Benchmark
+	public void isValidMove(Positions p, Blackhole bh) {
+		for (Game game : p.games) {
+			for (int start = 0; start < 32; start ++) {
+				Point s = Board.toPoint(start);
+				for (int d = 0; d < 8; d ++) {
+					int delta = (d < 4)? 1 : 2;
+					int end = Board.toIndex(s.x + (d % 2 == 0? delta : -delta),
+							s.y + (d % 4 < 2? delta : -delta));
+					if (end >= 0) {
+						bh.consume(Logic.isValidMove(game, start, end));
+					}
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void isSafe(Positions p, Blackhole bh) {
+		for (Board b : p.boards) {
+			for (int i = 0; i < 32; i ++) {
+				if (b.get(i) != Board.EMPTY) {
+					bh.consume(Logic.isSafe(b, Board.toPoint(i)));
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import checkersRules.BitBoard;
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.MoveGenerate;
+import checkersRules.MoveList;
+
+/**
+ * Times finding the moves of every tile, and of a whole position at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@OperationsPerInvocation(Positions.COUNT)
+public class MoveGenerateBenchmark {
+
+	@Benchmark
+	public void getMoves(Positions p, Blackhole bh) {
+		for (Board b : p.boards) {
+			for (int i = 0; i < 32; i ++) {
+				bh.consume(MoveGenerate.getMoves(b, i));
+			}
+		}
+	}
+
+	@Benchmark
+	public void getSkips(Positions p, Blackhole bh) {
+		for (Board b : p.boards) {
+			for (int i = 0; i < 32; i ++) {
+				bh.consume(MoveGenerate.getSkips(b, i));
+			}
+		}
+	}
+
+	@Benchmark
+	public void generate(Positions p, Blackhole bh) {
+		MoveList moves = MoveList.get();
+		for (int i = 0; i < Positions.COUNT; i ++) {
+			Game game = p.games[i];
+			int base = moves.size();
+			bh.consume(BitBoard.generate(p.boards[i], game.isP1Turn(),
+					game.getSkipIndex(), moves));
+			moves.setSize(base);
+		}
+	}
+
+}
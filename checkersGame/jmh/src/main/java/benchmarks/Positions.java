@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import checkersRules.Board;
+import checkersRules.Game;
+
+/**
+ * The {@code Positions} class is the corpus every benchmark runs over: a few
+ * opening, middlegame and endgame positions, and the board of each so that
+ * benchmarks of {@link Board} don't have to copy it. Benchmarks must leave
+ * the positions as they were.
+ */
+
+@State(Scope.Thread)
+public class Positions {
+
+	/** Positions a few moves into the game. */
+	public static final String[] OPENING = {
+			"666660660666660004444000444444441-1",
+			"666660666006004600004440440444441-1",
+			"666660606006006000004040440444440-1"};
+
+	/** Positions with most of the pieces still on the board. */
+	public static final String[] MIDDLEGAME = {
+			"606606006066000000044044640004401-1",
+			"606060660006604040000440046404001-1",
+			"006600000664050000004044440040000-1"};
+
+	/** Positions with a few pieces and kings. */
+	public static final String[] ENDGAME = {
+			"000000000000000500004044000070000-1",
+			"000000000005440000000060007000000-1",
+			"500507500000000000040000000000000-1"};
+
+	/** The number of positions, the operations in each invocation. */
+	public static final int COUNT = 9;
+
+	final Game[] games = new Game[COUNT];
+
+	final Board[] boards = new Board[COUNT];
+
+	public Positions() {
+		int i = 0;
+		for (String[] set : new String[][] {OPENING, MIDDLEGAME, ENDGAME}) {
+			for (String state : set) {
+				this.games[i] = new Game(state);
+				this.boards[i] = games[i].getBoard();
+				i ++;
+			}
+		}
+	}
+
+}
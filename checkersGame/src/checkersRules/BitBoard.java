@@ -0,0 +1,332 @@
+package checkersRules;
+
+import checkersRules.Board;
+import checkersRules.MoveList;
+import checkersRules.PackedMove;
+
+/**
+ * The {@code BitBoard} class generates moves and skips for a whole side at
+ * once by shifting the occupancy masks of a {@link Board}. Bit {@code i} of
+ * a mask corresponds to board index {@code i}.
+ * <p>
+ * Rows alternate which column the playable tiles start on, so a diagonal
+ * step is a shift of 3, 4 or 5 bits depending on the row parity. Each
+ * direction method applies the correct shift to even and odd rows and masks
+ * off pieces that would leave the board.
+ */
+
+public class BitBoard {
+
+	/** The tiles on rows 0, 2, 4 and 6 (the first tile is at x = 1). */
+	public static final int EVEN_ROWS = 0x0F0F0F0F;
+
+	/** The tiles on rows 1, 3, 5 and 7 (the first tile is at x = 0). */
+	public static final int ODD_ROWS = 0xF0F0F0F0;
+
+	/** The tiles that are first in their row. */
+	public static final int FIRST_COLUMN = 0x11111111;
+
+	/** The tiles that are last in their row. */
+	public static final int LAST_COLUMN = 0x88888888;
+
+	/** The tiles where a white checker becomes a king (y = 0). */
+	public static final int WHITE_KING_ROW = 0x0000000F;
+
+	/** The tiles where a black checker becomes a king (y = 7). */
+	public static final int BLACK_KING_ROW = 0xF0000000;
+
+	/** The direction towards x + 1, y + 1. */
+	public static final int DOWN_RIGHT = 0;
+
+	/** The direction towards x - 1, y + 1. */
+	public static final int DOWN_LEFT = 1;
+
+	/** The direction towards x + 1, y - 1. */
+	public static final int UP_RIGHT = 2;
+
+	/** The direction towards x - 1, y - 1. */
+	public static final int UP_LEFT = 3;
+
+	// Moves every piece one tile towards x - 1, y + 1.
+	public static int downLeft(int pieces) {
+		return ((pieces & EVEN_ROWS) << 4)
+				| ((pieces & ODD_ROWS & ~FIRST_COLUMN) << 3);
+	}
+
+	// Moves every piece one tile towards x + 1, y + 1.
+	public static int downRight(int pieces) {
+		return ((pieces & EVEN_ROWS & ~LAST_COLUMN) << 5)
+				| ((pieces & ODD_ROWS) << 4);
+	}
+
+	// Moves every piece one tile towards x - 1, y - 1.
+	public static int upLeft(int pieces) {
+		return ((pieces & EVEN_ROWS) >>> 4)
+				| ((pieces & ODD_ROWS & ~FIRST_COLUMN) >>> 5);
+	}
+
+	// Moves every piece one tile towards x + 1, y - 1.
+	public static int upRight(int pieces) {
+		return ((pieces & EVEN_ROWS & ~LAST_COLUMN) >>> 3)
+				| ((pieces & ODD_ROWS) >>> 4);
+	}
+
+	// Moves every piece one tile in the given direction.
+	public static int step(int direction, int pieces) {
+		switch (direction) {
+		case DOWN_RIGHT: return downRight(pieces);
+		case DOWN_LEFT: return downLeft(pieces);
+		case UP_RIGHT: return upRight(pieces);
+		case UP_LEFT: return upLeft(pieces);
+		default: return 0;
+		}
+	}
+
+	/** Gets the direction that undoes a step in the given direction. */
+	public static int reverse(int direction) {
+		return 3 - direction;
+	}
+
+	/**
+	 * Adds every move the current player can make to the move list as a
+	 * {@link PackedMove}, following the rules that a skip must be taken if
+	 * one is available and that a multiple skip must continue from the skip
+	 * index. The moves are exactly those accepted by
+	 * {@link Logic#isValidMove(Board, boolean, int, int, int)}.
+	 * 
+	 * @return the number of moves that were added.
+	 */
+	public static int generate(Board board, boolean isP1Turn, int skipIndex,
+			MoveList moves) {
+
+		if (board == null || moves == null) {
+			return 0;
+		}
+
+		return generate(board.getBlack(), board.getWhite(), board.getKings(),
+				board.getEmpty(), isP1Turn, skipIndex, moves);
+	}
+
+	/**
+	 * Adds every move the current player can make to the move list, for a
+	 * position given as masks of the black pieces, white pieces and kings.
+	 * 
+	 * @return the number of moves that were added.
+	 * @see #generate(Board, boolean, int, MoveList)
+	 */
+	public static int generate(int black, int white, int kings,
+			boolean isP1Turn, int skipIndex, MoveList moves) {
+		return generate(black, white, kings, ~(black | white), isP1Turn,
+				skipIndex, moves);
+	}
+
+	private static int generate(int black, int white, int kings, int empty,
+			boolean isP1Turn, int skipIndex, MoveList moves) {
+
+		int own = isP1Turn? black : white;
+		int opp = isP1Turn? white : black;
+		int all = own;
+		if (Board.isValidIndex(skipIndex)) {
+			own &= 1 << skipIndex;
+		}
+		int crown = isP1Turn? BLACK_KING_ROW : WHITE_KING_ROW;
+		int first = isP1Turn? DOWN_RIGHT : UP_RIGHT;
+		int start = moves.size();
+
+		// Add the skips
+		for (int dir = 0; dir < 4; dir ++) {
+			int pieces = (dir == first || dir == first + 1)?
+					own : own & kings;
+			int ends = step(dir, step(dir, pieces) & opp) & empty;
+			int back = reverse(dir);
+			while (ends != 0) {
+				int end = ends & -ends;
+				ends ^= end;
+				int mid = step(back, end), from = step(back, mid);
+				moves.add(PackedMove.skip(Integer.numberOfTrailingZeros(from),
+						Integer.numberOfTrailingZeros(end),
+						Integer.numberOfTrailingZeros(mid),
+						(from & kings) == 0 && (end & crown) != 0));
+			}
+		}
+		if (moves.size() > start || (own != all
+				&& getJumpers(all, opp, kings & all, empty, isP1Turn) != 0)) {
+			return moves.size() - start;
+		}
+
+		// No skips, so add the regular moves
+		for (int dir = 0; dir < 4; dir ++) {
+			int pieces = (dir == first || dir == first + 1)?
+					own : own & kings;
+			int ends = step(dir, pieces) & empty;
+			int back = reverse(dir);
+			while (ends != 0) {
+				int end = ends & -ends;
+				ends ^= end;
+				int from = step(back, end);
+				moves.add(PackedMove.move(Integer.numberOfTrailingZeros(from),
+						Integer.numberOfTrailingZeros(end),
+						(from & kings) == 0 && (end & crown) != 0));
+			}
+		}
+
+		return moves.size() - start;
+	}
+
+	/**
+	 * Gets the pieces of the given colour that have at least one regular
+	 * (non-skip) move available.
+	 */
+	public static int getMovers(Board board, boolean isBlack) {
+
+		if (board == null) {
+			return 0;
+		}
+
+		int own = isBlack? board.getBlack() : board.getWhite();
+		int kings = own & board.getKings(), empty = board.getEmpty();
+		int down = isBlack? own : kings, up = isBlack? kings : own;
+
+		return (down & (upRight(empty) | upLeft(empty)))
+				| (up & (downRight(empty) | downLeft(empty)));
+	}
+
+	/**
+	 * Gets the pieces of the given colour that have at least one skip
+	 * available.
+	 */
+	public static int getJumpers(Board board, boolean isBlack) {
+
+		if (board == null) {
+			return 0;
+		}
+
+		int own = isBlack? board.getBlack() : board.getWhite();
+		int opp = isBlack? board.getWhite() : board.getBlack();
+		return getJumpers(own, opp, own & board.getKings(), board.getEmpty(),
+				isBlack);
+	}
+
+	/**
+	 * Gets the pieces in {@code own} that have at least one skip available,
+	 * where {@code kings} is the mask of the kings in {@code own}.
+	 */
+	public static int getJumpers(int own, int opp, int kings, int empty,
+			boolean isBlack) {
+
+		int down = isBlack? own : kings, up = isBlack? kings : own;
+
+		// Walk back from each empty landing tile over an opponent's piece
+		return (down & (upRight(upRight(empty) & opp)
+						| upLeft(upLeft(empty) & opp)))
+				| (up & (downRight(downRight(empty) & opp)
+						| downLeft(downLeft(empty) & opp)));
+	}
+
+	/**
+	 * Gets the pieces of the given colour that the opponent could skip if it
+	 * were the opponent's turn.
+	 */
+	public static int getThreatened(Board board, boolean isBlack) {
+
+		if (board == null) {
+			return 0;
+		}
+
+		int own = isBlack? board.getBlack() : board.getWhite();
+		int opp = isBlack? board.getWhite() : board.getBlack();
+		return getThreatened(own, opp, opp & board.getKings(),
+				board.getEmpty(), isBlack);
+	}
+
+	/**
+	 * Gets the pieces in {@code own} that the pieces in {@code opp} could
+	 * skip, where {@code kings} is the mask of the kings in {@code opp}.
+	 */
+	public static int getThreatened(int own, int opp, int kings, int empty,
+			boolean isBlack) {
+
+		int down = isBlack? kings : opp, up = isBlack? opp : kings;
+
+		// A piece is threatened if an attacker is on one side of it and the
+		// tile on the other side is empty
+		return own & ((downRight(down) & upLeft(empty))
+				| (downLeft(down) & upRight(empty))
+				| (upRight(up) & downLeft(empty))
+				| (upLeft(up) & downRight(empty)));
+	}
+
+	/**
+	 * Gets a mask of the end points of the regular moves the piece on the
+	 * given index can make.
+	 */
+	public static int getMoveTargets(Board board, int startIndex) {
+
+		if (board == null || !Board.isValidIndex(startIndex)) {
+			return 0;
+		}
+
+		int start = 1 << startIndex, empty = board.getEmpty();
+		int targets = 0;
+		if (isDown(board, start)) {
+			targets |= downRight(start) | downLeft(start);
+		}
+		if (isUp(board, start)) {
+			targets |= upRight(start) | upLeft(start);
+		}
+
+		return targets & empty;
+	}
+
+	/**
+	 * Gets a mask of the end points of the skips the piece on the given index
+	 * can make.
+	 */
+	public static int getSkipTargets(Board board, int startIndex) {
+
+		if (board == null) {
+			return 0;
+		}
+		return getSkipTargets(board.getBlack(), board.getWhite(),
+				board.getKings(), startIndex);
+	}
+
+	/**
+	 * Gets a mask of the end points of the skips the piece on the given index
+	 * can make, from the masks of a board.
+	 */
+	public static int getSkipTargets(int black, int white, int kings,
+			int startIndex) {
+
+		if (!Board.isValidIndex(startIndex)) {
+			return 0;
+		}
+
+		int start = 1 << startIndex, empty = ~(black | white);
+		int opp = (black & start) != 0? white : black;
+		int targets = 0;
+		if (((black | kings) & start) != 0) {
+			targets |= downRight(downRight(start) & opp)
+					| downLeft(downLeft(start) & opp);
+		}
+		if (((white | kings) & start) != 0) {
+			targets |= upRight(upRight(start) & opp)
+					| upLeft(upLeft(start) & opp);
+		}
+
+		return targets & empty;
+	}
+
+	// Determines if the piece can move towards y + 1.
+	private static boolean isDown(Board board, int start) {
+		return (board.getBlack() & start) != 0
+				|| (board.getKings() & start) != 0;
+	}
+
+	// Determines if the piece can move towards y - 1.
+	private static boolean isUp(Board board, int start) {
+		return (board.getWhite() & start) != 0
+				|| (board.getKings() & start) != 0;
+	}
+
+}
@@ -33,6 +33,9 @@ public class Board {
 	
 	private int[] state;
 	
+	/** The {@link Zobrist} key of the checkers on the board. */
+	private long key;
+	
 	public Board() {
 		reset();
 	}
@@ -41,6 +44,7 @@ public class Board {
 	public Board copy() {
 		Board copy = new Board();
 		copy.state = state.clone();
+		copy.key = key;
 		return copy;
 	}
 	
@@ -48,6 +52,7 @@ public class Board {
 		
 		// Reset the state
 		this.state = new int[3];
+		this.key = 0;
 		for (int i = 0; i < 12; i ++) {
 			set(i, BLACK_CHECKER);
 			set(31 - i, WHITE_CHECKER);
@@ -66,6 +71,60 @@ public class Board {
 		return points;
 	}
 	
+	/**
+	 * Gets a mask of the black checkers and kings, where bit {@code i} is set
+	 * if index {@code i} holds a black piece.
+	 */
+	public int getBlack() {
+		return state[0] & state[1];
+	}
+	
+	/**
+	 * Gets a mask of the white checkers and kings, where bit {@code i} is set
+	 * if index {@code i} holds a white piece.
+	 */
+	public int getWhite() {
+		return state[0] & ~state[1];
+	}
+	
+	/** Gets a mask of the kings of either colour. */
+	public int getKings() {
+		return state[0] & state[2];
+	}
+	
+	/** Gets a mask of the tiles whose ID is {@link #EMPTY}. */
+	public int getEmpty() {
+		return ~(state[0] | state[1] | state[2]);
+	}
+	
+	/**
+	 * Gets one of the three bit planes the board is stored as: 0 for the
+	 * occupied tiles, 1 for the black pieces and 2 for the kings (the bits of
+	 * each tile's ID, from highest to lowest).
+	 */
+	public int getPlane(int plane) {
+		return state[plane];
+	}
+	
+	// Sets all three bit planes at once, see getPlane(int).
+	public void setPlanes(int plane0, int plane1, int plane2) {
+		this.state[0] = plane0;
+		this.state[1] = plane1;
+		this.state[2] = plane2;
+		this.key = 0;
+		for (int i = 0; i < 32; i ++) {
+			this.key ^= Zobrist.piece(i, get(i));
+		}
+	}
+	
+	/**
+	 * Gets the {@link Zobrist} key of the checkers on the board, which is
+	 * updated every time a tile is set.
+	 */
+	public long getKey() {
+		return key;
+	}
+	
 	public void set(int x, int y, int id) {
 		set(toIndex(x, y), id);
 	}
@@ -81,6 +140,7 @@ public class Board {
 		if (id < 0) {
 			id = EMPTY;
 		}
+		this.key ^= Zobrist.piece(index, get(index)) ^ Zobrist.piece(index, id);
 		
 		for (int i = 0; i < state.length; i ++) {
 			boolean set = ((1 << (state.length - i - 1)) & id) != 0;
@@ -108,7 +168,7 @@ public class Board {
 	
 	public static int toIndex(int x, int y) {
 		
-		if (!isValidPoint(new Point(x, y))) {
+		if (x < 0 || x > 7 || y < 0 || y > 7 || x % 2 == y % 2) {
 			return -1;
 		}
 		
@@ -163,7 +223,7 @@ public class Board {
 	}
 	
 	public static Point middle(int index1, int index2) {
-		return middle(toPoint(index1), toPoint(index2));
+		return toPoint(Tiles.middle(index1, index2));
 	}
 	
 	public static Point middle(int x1, int y1, int x2, int y2) {
@@ -4,9 +4,9 @@
 package checkersRules;
 
 import java.awt.Point;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
 
-import checkersRules.MoveGenerate;
 import checkersRules.Logic;
 import checkersRules.Board;
 import checkersRules.Game;
@@ -14,10 +14,40 @@ import checkersRules.Game;
 /**
  * The {@code Game} class represents a game of checkers and ensures that all
  * moves made are valid as per the rules of checkers.
+ * <p>
+ * Every change to a game adds one to its version. A game that is shared
+ * between threads is changed with {@link #compareAndMove(long, int, int)},
+ * which only makes a move if nothing else changed the game since the
+ * version was read, and the other methods that change the whole game
+ * ({@link #move(int, int)}, {@link #restart()}, {@link #setGameState(String)}
+ * and {@link #setPosition(int, int, int, boolean, int)}) hold the same lock.
+ * Other threads read it through {@link #snapshot()},
+ * {@link #readPosition(int[])} and {@link #getVersion()}, which don't lock
+ * unless a change is made while they read. {@link #makeMove(int)} and
+ * {@link #unmakeMove(int)} don't lock, and are meant for a game that only
+ * one thread uses, such as the copy a search walks.
  */
 
 public class Game {
 	
+	/**
+	 * The {@code Listener} interface is told of the moves made with
+	 * {@link Game#move(int, int)} and
+	 * {@link Game#compareAndMove(long, int, int)}, and of each time the whole
+	 * game is set, such as by a restart. It is called while the game is
+	 * locked, so it hears of the changes in the order they were made, and it
+	 * shouldn't wait for anything.
+	 */
+	public interface Listener {
+		
+		// Called after a move was made.
+		void moved(Game game, int startIndex, int endIndex);
+		
+		// Called after the board, the turn or the skip index was set.
+		void reset(Game game);
+		
+	}
+	
 	/** The current state of the checker board. */
 	private Board board;
 	
@@ -27,6 +57,42 @@ public class Game {
 	/** The index of the last skip, to allow for multiple skips in a turn. */
 	private int skipIndex;
 	
+	/**
+	 * Set to check the counts kept by every game against a count from
+	 * scratch after each move, throwing an exception if they differ.
+	 */
+	private static boolean debug = Boolean.getBoolean("checkers.debug");
+	
+	/** The number of pieces and kings of each colour, kept up to date. */
+	private int blackPieces, whitePieces, blackKings, whiteKings;
+	
+	/** The pieces of each colour the opponent could skip. */
+	private int blackThreatened, whiteThreatened;
+	
+	/** Set when the threatened pieces need to be found again. */
+	private boolean threatsChanged;
+	
+	/** The end points of the legal moves from each tile, as masks. */
+	private final int[] legalTargets = new int[32];
+	
+	/** The tiles that have at least one legal move. */
+	private int legalStarts;
+	
+	/** Set if the legal moves are skips, so a skip has to be made. */
+	private boolean forcedCapture;
+	
+	/** Set when the legal moves need to be found again. */
+	private boolean movesChanged = true;
+	
+	/** The number of changes made to the game. */
+	private long version;
+	
+	/** Held to change the game while other threads may be reading it. */
+	private final StampedLock lock = new StampedLock();
+	
+	/** Told of the changes to the game, or null. It isn't copied. */
+	private Listener listener;
+	
 	public Game() {
 		restart();
 	}
@@ -39,6 +105,7 @@ public class Game {
 		this.board = (board == null)? new Board() : board;
 		this.isP1Turn = isP1Turn;
 		this.skipIndex = skipIndex;
+		recount();
 	}
 	
 	//creates an exact copy of this game.
@@ -47,14 +114,146 @@ public class Game {
 		g.board = board.copy();
 		g.isP1Turn = isP1Turn;
 		g.skipIndex = skipIndex;
+		g.blackPieces = blackPieces;
+		g.whitePieces = whitePieces;
+		g.blackKings = blackKings;
+		g.whiteKings = whiteKings;
+		g.blackThreatened = blackThreatened;
+		g.whiteThreatened = whiteThreatened;
+		g.threatsChanged = threatsChanged;
+		g.version = version;
 		return g;
 	}
 	
+	/**
+	 * Creates a copy of the game that is consistent even if another thread
+	 * is changing it. The fields are copied without locking, and only copied
+	 * again under the read lock if a change was made meanwhile.
+	 */
+	public Game snapshot() {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				Game g = copy();
+				if (lock.validate(stamp)) {
+					return g;
+				}
+			} catch (RuntimeException e) {
+				// A change made while copying, read again under the lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return copy();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Gets the number of changes made to the game, which is only ever
+	 * increased. Two reads that give the same version saw the same game.
+	 */
+	public long getVersion() {
+		long stamp = lock.tryOptimisticRead();
+		long v = version;
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				v = version;
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return v;
+	}
+	
+	/**
+	 * Reads the three bit planes of the board (see {@link Board#getPlane(int)})
+	 * and whether it is player 1's turn (1 if so, 0 otherwise) into the first
+	 * four elements of the array, all from the same version of the game, and
+	 * returns that version.
+	 */
+	public long readPosition(int[] position) {
+		long stamp = lock.tryOptimisticRead();
+		long v = version;
+		readPlanes(position);
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				v = version;
+				readPlanes(position);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return v;
+	}
+	
+	// Reads the position without locking, see readPosition(int[]).
+	private void readPlanes(int[] position) {
+		Board b = board;
+		position[0] = b.getPlane(0);
+		position[1] = b.getPlane(1);
+		position[2] = b.getPlane(2);
+		position[3] = isP1Turn? 1 : 0;
+	}
+	
+	/**
+	 * Makes the move from the start index to the end index only if the game
+	 * is still at the expected version and the move is valid, as one atomic
+	 * step, and returns true if it was made.
+	 */
+	public boolean compareAndMove(long expectedVersion, int startIndex,
+			int endIndex) {
+		long stamp = lock.writeLock();
+		try {
+			if (version != expectedVersion
+					|| makeMove(startIndex, endIndex) == Undo.NONE) {
+				return false;
+			}
+			moved(startIndex, endIndex);
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Sets the game state (see {@link #setGameState(String)}) only if the
+	 * game is still at the expected version, and returns true if it was set.
+	 */
+	public boolean compareAndSetState(long expectedVersion, String state) {
+		long stamp = lock.writeLock();
+		try {
+			if (version != expectedVersion) {
+				return false;
+			}
+			setState(state);
+			changed();
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
 	//Resets the game of checkers to the initial state.
 	public void restart() {
+		long stamp = lock.writeLock();
+		try {
+			reset();
+			changed();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	// Resets the game without locking.
+	private void reset() {
 		this.board = new Board();
 		this.isP1Turn = true;
 		this.skipIndex = -1;
+		recount();
 	}
 	
 	//Attempts to make a move from the start point to the end point.
@@ -66,38 +265,107 @@ public class Game {
 	}
 	
 	public boolean move(int startIndex, int endIndex) {
+		long stamp = lock.writeLock();
+		try {
+			if (makeMove(startIndex, endIndex) == Undo.NONE) {
+				return false;
+			}
+			moved(startIndex, endIndex);
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	// Tells the listener of a move made, if there is one.
+	private void moved(int startIndex, int endIndex) {
+		if (listener != null) {
+			listener.moved(this, startIndex, endIndex);
+		}
+	}
+	
+	// Tells the listener that the whole game was set, if there is one.
+	private void changed() {
+		if (listener != null) {
+			listener.reset(this);
+		}
+	}
+	
+	public Listener getListener() {
+		return listener;
+	}
+	
+	/**
+	 * Sets the listener told of the moves and other changes made to the game
+	 * from now on, or null for none. A new listener is first told of the
+	 * current position through {@link Listener#reset(Game)}.
+	 */
+	public void setListener(Listener listener) {
+		long stamp = lock.writeLock();
+		try {
+			this.listener = listener;
+			changed();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Makes the move from the start index to the end index if it is valid,
+	 * and returns an {@link Undo} record that {@link #unmakeMove(int)} can
+	 * use to take it back, or {@link Undo#NONE} if the move is not valid.
+	 */
+	public int makeMove(int startIndex, int endIndex) {
 		
 		// Validate the move
-		if (!Logic.isValidMove(this, startIndex, endIndex)) {
-			return false;
+		if (!isLegalMove(startIndex, endIndex)) {
+			return Undo.NONE;
 		}
 		
+		int midIndex = Tiles.middle(startIndex, endIndex);
+		return makeMove(Board.isValidIndex(midIndex)?
+				PackedMove.skip(startIndex, endIndex, midIndex, false)
+				: PackedMove.move(startIndex, endIndex, false));
+	}
+	
+	/**
+	 * Makes a {@link PackedMove} without checking that it is valid, and
+	 * returns an {@link Undo} record that {@link #unmakeMove(int)} can use to
+	 * take it back. The move must be one that
+	 * {@link BitBoard#generate(Board, boolean, int, MoveList)} gives for this
+	 * game, such as when a search walks the moves it generated.
+	 */
+	public int makeMove(int move) {
+		
+		int startIndex = PackedMove.getStartIndex(move);
+		int endIndex = PackedMove.getEndIndex(move);
+		int midIndex = PackedMove.getCapturedIndex(move);
+		int captured = (midIndex < 0)? Board.EMPTY : board.get(midIndex);
+		boolean wasP1Turn = isP1Turn;
+		int lastSkipIndex = skipIndex;
+		
 		// Make the move
-		Point middle = Board.middle(startIndex, endIndex);
-		int midIndex = Board.toIndex(middle);
 		this.board.set(endIndex, board.get(startIndex));
 		this.board.set(midIndex, Board.EMPTY);
 		this.board.set(startIndex, Board.EMPTY);
 		
 		// Make the checker a king if necessary
-		Point end = Board.toPoint(endIndex);
 		int id = board.get(endIndex);
-		boolean switchTurn = false;
-		if (end.y == 0 && id == Board.WHITE_CHECKER) {
+		boolean switchTurn = false, promoted = false;
+		if (endIndex < 4 && id == Board.WHITE_CHECKER) {
 			this.board.set(endIndex, Board.WHITE_KING);
-			switchTurn = true;
-		} else if (end.y == 7 && id == Board.BLACK_CHECKER) {
+			switchTurn = promoted = true;
+		} else if (endIndex >= 28 && id == Board.BLACK_CHECKER) {
 			this.board.set(endIndex, Board.BLACK_KING);
-			switchTurn = true;
+			switchTurn = promoted = true;
 		}
 		
 		// Check if the turn should switch
-		boolean midValid = Board.isValidIndex(midIndex);
-		if (midValid) {
+		if (midIndex >= 0) {
 			this.skipIndex = endIndex;
 		}
-		if (!midValid || MoveGenerate.getSkips(
-				board.copy(), endIndex).isEmpty()) {
+		if (midIndex < 0 || (BitBoard.getJumpers(board, isP1Turn)
+				& (1 << endIndex)) == 0) {
 			switchTurn = true;
 		}
 		if (switchTurn) {
@@ -105,7 +373,220 @@ public class Game {
 			this.skipIndex = -1;
 		}
 		
-		return true;
+		// Update the counts
+		count(captured, -1);
+		if (promoted) {
+			count(id, -1);
+			count(board.get(endIndex), 1);
+		}
+		this.threatsChanged = true;
+		this.movesChanged = true;
+		this.version ++;
+		if (debug) {
+			verify();
+		}
+		
+		move = (midIndex < 0)? PackedMove.move(startIndex, endIndex, promoted)
+				: PackedMove.skip(startIndex, endIndex, midIndex, promoted);
+		return Undo.create(move, captured, wasP1Turn, lastSkipIndex);
+	}
+	
+	/**
+	 * Takes back the move described by an {@link Undo} record. Moves must be
+	 * taken back in the reverse of the order they were made.
+	 */
+	public void unmakeMove(int undo) {
+		
+		if (undo == Undo.NONE) {
+			return;
+		}
+		
+		int move = Undo.getMove(undo);
+		int startIndex = PackedMove.getStartIndex(move);
+		int endIndex = PackedMove.getEndIndex(move);
+		int id = board.get(endIndex);
+		if (Undo.isPromotion(undo)) {
+			id = (id == Board.BLACK_KING)? Board.BLACK_CHECKER
+					: Board.WHITE_CHECKER;
+		}
+		this.board.set(startIndex, id);
+		this.board.set(endIndex, Board.EMPTY);
+		this.board.set(PackedMove.getCapturedIndex(move),
+				Undo.getCaptured(undo));
+		this.isP1Turn = Undo.wasP1Turn(undo);
+		this.skipIndex = Undo.getSkipIndex(undo);
+		
+		// Update the counts
+		count(Undo.getCaptured(undo), 1);
+		if (Undo.isPromotion(undo)) {
+			count(id == Board.BLACK_CHECKER? Board.BLACK_KING
+					: Board.WHITE_KING, -1);
+			count(id, 1);
+		}
+		this.threatsChanged = true;
+		this.movesChanged = true;
+		this.version ++;
+		if (debug) {
+			verify();
+		}
+	}
+	
+	// Adds to the counts for a piece with the given ID, if there is one.
+	private void count(int id, int change) {
+		boolean isKing = (id == Board.BLACK_KING || id == Board.WHITE_KING);
+		if (id == Board.BLACK_CHECKER || id == Board.BLACK_KING) {
+			this.blackPieces += change;
+			if (isKing) {
+				this.blackKings += change;
+			}
+		} else if (id == Board.WHITE_CHECKER || id == Board.WHITE_KING) {
+			this.whitePieces += change;
+			if (isKing) {
+				this.whiteKings += change;
+			}
+		}
+	}
+	
+	// Counts the pieces from scratch, after the whole board has changed.
+	private void recount() {
+		this.blackPieces = Integer.bitCount(board.getBlack());
+		this.whitePieces = Integer.bitCount(board.getWhite());
+		this.blackKings = Integer.bitCount(board.getBlack() & board.getKings());
+		this.whiteKings = Integer.bitCount(board.getWhite() & board.getKings());
+		this.threatsChanged = true;
+		this.movesChanged = true;
+		this.version ++;
+	}
+	
+	/**
+	 * Determines if a move is legal, looking it up in the legal moves that
+	 * are found once each time the game changes.
+	 */
+	public boolean isLegalMove(int startIndex, int endIndex) {
+		if (!Board.isValidIndex(startIndex) || !Board.isValidIndex(endIndex)) {
+			return false;
+		}
+		return (getLegalTargets(startIndex) & (1 << endIndex)) != 0;
+	}
+	
+	// Gets a mask of the tiles the current player can move a piece from.
+	public int getLegalStarts() {
+		findMoves();
+		return legalStarts;
+	}
+	
+	// Gets a mask of the tiles the piece on the index can legally move to.
+	public int getLegalTargets(int startIndex) {
+		if (!Board.isValidIndex(startIndex)) {
+			return 0;
+		}
+		findMoves();
+		return legalTargets[startIndex];
+	}
+	
+	// Determines if the current player has to make a skip.
+	public boolean isForcedCapture() {
+		findMoves();
+		return forcedCapture;
+	}
+	
+	// Finds the legal moves if the game has changed since they were found.
+	private void findMoves() {
+		
+		if (!movesChanged) {
+			return;
+		}
+		
+		MoveList moves = MoveList.get();
+		int base = moves.size();
+		int n = BitBoard.generate(board, isP1Turn, skipIndex, moves);
+		Arrays.fill(legalTargets, 0);
+		this.legalStarts = 0;
+		this.forcedCapture = (n > 0 && PackedMove.isSkip(moves.get(base)));
+		for (int i = 0; i < n; i ++) {
+			int m = moves.get(base + i);
+			int start = PackedMove.getStartIndex(m);
+			this.legalTargets[start] |= 1 << PackedMove.getEndIndex(m);
+			this.legalStarts |= 1 << start;
+		}
+		moves.setSize(base);
+		this.movesChanged = false;
+	}
+	
+	/**
+	 * Checks the counts against the board, counting the pieces with
+	 * {@link Board#find(int)} and the threatened pieces with
+	 * {@link Logic#isSafe(Board, Point)}.
+	 * 
+	 * @throws IllegalStateException if the counts are wrong.
+	 */
+	private void verify() {
+		
+		int[] counts = new int[8];
+		int[] threatened = new int[8];
+		for (int id = Board.WHITE_CHECKER; id <= Board.BLACK_KING; id ++) {
+			for (Point p : board.find(id)) {
+				counts[id] ++;
+				if (!Logic.isSafe(board, p)) {
+					threatened[id] ++;
+				}
+			}
+		}
+		
+		int bk = counts[Board.BLACK_KING], wk = counts[Board.WHITE_KING];
+		if (blackPieces != counts[Board.BLACK_CHECKER] + bk
+				|| whitePieces != counts[Board.WHITE_CHECKER] + wk
+				|| blackKings != bk || whiteKings != wk
+				|| getThreatenedCount(true) != threatened[Board.BLACK_CHECKER]
+						+ threatened[Board.BLACK_KING]
+				|| getThreatenedCount(false) != threatened[Board.WHITE_CHECKER]
+						+ threatened[Board.WHITE_KING]
+				|| getThreatenedKingCount(true) != threatened[Board.BLACK_KING]
+				|| getThreatenedKingCount(false)
+						!= threatened[Board.WHITE_KING]) {
+			throw new IllegalStateException("Counts don't match the board: "
+					+ getGameState());
+		}
+	}
+	
+	// Gets the number of checkers and kings of one colour.
+	public int getPieceCount(boolean isBlack) {
+		return isBlack? blackPieces : whitePieces;
+	}
+	
+	public int getKingCount(boolean isBlack) {
+		return isBlack? blackKings : whiteKings;
+	}
+	
+	/**
+	 * Gets a mask of the pieces of one colour that the opponent could skip if
+	 * it were the opponent's turn. It is only found again after the board
+	 * has changed.
+	 */
+	public int getThreatened(boolean isBlack) {
+		if (threatsChanged) {
+			this.blackThreatened = BitBoard.getThreatened(board, true);
+			this.whiteThreatened = BitBoard.getThreatened(board, false);
+			this.threatsChanged = false;
+		}
+		return isBlack? blackThreatened : whiteThreatened;
+	}
+	
+	public int getThreatenedCount(boolean isBlack) {
+		return Integer.bitCount(getThreatened(isBlack));
+	}
+	
+	public int getThreatenedKingCount(boolean isBlack) {
+		return Integer.bitCount(getThreatened(isBlack) & board.getKings());
+	}
+	
+	public static boolean isDebug() {
+		return debug;
+	}
+	
+	// Sets whether every game checks its counts after each move.
+	public static void setDebug(boolean debug) {
+		Game.debug = debug;
 	}
 	
 	//Gets a copy of the current board state.
@@ -113,32 +594,37 @@ public class Game {
 		return board.copy();
 	}
 	
+	// Gets one of the bit planes of the board, see Board.getPlane(int).
+	public int getPlane(int plane) {
+		return board.getPlane(plane);
+	}
+	
+	// Gets a mask of the black checkers and kings, see Board.getBlack().
+	public int getBlack() {
+		return board.getBlack();
+	}
+	
+	// Gets a mask of the white checkers and kings, see Board.getWhite().
+	public int getWhite() {
+		return board.getWhite();
+	}
+	
+	// Gets a mask of the kings of both colours, see Board.getKings().
+	public int getKings() {
+		return board.getKings();
+	}
+	
 	//Determines if the game is over.
 	public boolean isGameOver() {
 
 		//Ensure there is at least one of each checker
-		List<Point> black = board.find(Board.BLACK_CHECKER);
-		black.addAll(board.find(Board.BLACK_KING));
-		if (black.isEmpty()) {
-			return true;
-		}
-		List<Point> white = board.find(Board.WHITE_CHECKER);
-		white.addAll(board.find(Board.WHITE_KING));
-		if (white.isEmpty()) {
+		if (board.getBlack() == 0 || board.getWhite() == 0) {
 			return true;
 		}
 		
 		// Check that the current player can move
-		List<Point> test = isP1Turn? black : white;
-		for (Point p : test) {
-			int i = Board.toIndex(p);
-			if (!MoveGenerate.getMoves(board, i).isEmpty() ||
-					!MoveGenerate.getSkips(board, i).isEmpty()) {
-				return false;
-			}
-		}
-		
-		return true;
+		return (BitBoard.getMovers(board, isP1Turn)
+				| BitBoard.getJumpers(board, isP1Turn)) == 0;
 	}
 	
 	public boolean isP1Turn() {
@@ -146,31 +632,81 @@ public class Game {
 	}
 	
 	public void setP1Turn(boolean isP1Turn) {
-		this.isP1Turn = isP1Turn;
+		long stamp = lock.writeLock();
+		try {
+			this.isP1Turn = isP1Turn;
+			this.movesChanged = true;
+			this.version ++;
+			changed();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
 	}
 	
 	public int getSkipIndex() {
 		return skipIndex;
 	}
 	
-	// a string representing the current game state.
+	/**
+	 * Gets the 64-bit {@link Zobrist} key of the game, which includes the
+	 * checkers, whose turn it is and the skip index. The board part of the key
+	 * is kept up to date as checkers are moved.
+	 */
+	public long getKey() {
+		return board.getKey() ^ Zobrist.state(isP1Turn, skipIndex);
+	}
+	
+	/**
+	 * A string representing the current game state: the ID on each tile,
+	 * 1 if it is player 1's turn (0 otherwise) and the skip index. See
+	 * {@link PositionCodec} for a compact binary form.
+	 */
 	public String getGameState() {
 		
 		// Add the game board
-		String state = "";
+		StringBuilder state = new StringBuilder(36);
 		for (int i = 0; i < 32; i ++) {
-			state += "" + board.get(i);
+			state.append(board.get(i));
 		}
 		
-		state += (isP1Turn? "1" : "0");
-		state += skipIndex;
+		state.append(isP1Turn? '1' : '0');
+		state.append(skipIndex);
 		
-		return state;
+		return state.toString();
+	}
+	
+	/**
+	 * Sets the game to a position given as the three board planes (see
+	 * {@link Board#getPlane(int)}), whose turn it is and the skip index.
+	 */
+	public void setPosition(int plane0, int plane1, int plane2,
+			boolean isP1Turn, int skipIndex) {
+		long stamp = lock.writeLock();
+		try {
+			this.board.setPlanes(plane0, plane1, plane2);
+			this.isP1Turn = isP1Turn;
+			this.skipIndex = skipIndex;
+			recount();
+			changed();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
 	}
 	
 	public void setGameState(String state) {
+		long stamp = lock.writeLock();
+		try {
+			setState(state);
+			changed();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	// Sets the game state without locking, see setGameState(String).
+	private void setState(String state) {
 		
-		restart();
+		reset();
 		
 		if (state == null || state.isEmpty()) {
 			return;
@@ -179,10 +715,10 @@ public class Game {
 		// Update the board
 		int n = state.length();
 		for (int i = 0; i < 32 && i < n; i ++) {
-			try {
-				int id = Integer.parseInt("" + state.charAt(i));
+			int id = Character.digit(state.charAt(i), 10);
+			if (id >= 0) {
 				this.board.set(i, id);
-			} catch (NumberFormatException e) {}
+			}
 		}
 		
 		if (n > 32) {
@@ -195,6 +731,7 @@ public class Game {
 				this.skipIndex = -1;
 			}
 		}
+		recount();
 	}
 
 
@@ -6,10 +6,9 @@
 package checkersRules;
 
 import java.awt.Point;
-import java.util.ArrayList;
-import java.util.List;
 
 import checkersRules.MoveGenerate;
+import checkersRules.BitBoard;
 import checkersRules.Board;
 import checkersRules.Game;
 
@@ -20,11 +19,13 @@ import checkersRules.Game;
 
 public class Logic {
 	
-	// Determines if the specified move is valid based on the rules of checkers.
+	/**
+	 * Determines if the specified move is valid based on the rules of
+	 * checkers, using the legal moves the game keeps for its position.
+	 */
 	public static boolean isValidMove(Game game,
 			int startIndex, int endIndex) {
-		return game == null? false : isValidMove(game.getBoard(),
-				game.isP1Turn(), startIndex, endIndex, game.getSkipIndex());
+		return game == null? false : game.isLegalMove(startIndex, endIndex);
 	}
 	
 	public static boolean isValidMove(Board board, boolean isP1Turn,
@@ -66,8 +67,7 @@ public class Logic {
 		}
 		
 		// Check the middle
-		Point middle = Board.middle(startIndex, endIndex);
-		int midID = board.get(Board.toIndex(middle));
+		int midID = board.get(Tiles.middle(startIndex, endIndex));
 		if (midID != Board.INVALID && ((!isP1Turn &&
 				midID != Board.BLACK_CHECKER && midID != Board.BLACK_KING) ||
 				(isP1Turn && midID != Board.WHITE_CHECKER &&
@@ -83,39 +83,17 @@ public class Logic {
 			int startIndex, int endIndex) {
 		
 		// Checks that if it was a diagonal move
-		Point start = Board.toPoint(startIndex);
-		Point end = Board.toPoint(endIndex);
-		int dx = end.x - start.x;
-		int dy = end.y - start.y;
-		if (Math.abs(dx) != Math.abs(dy) || Math.abs(dx) > 2 || dx == 0) {
-			return false;
-		}
-		
-		int id = board.get(startIndex);
-		if ((id == Board.WHITE_CHECKER && dy > 0) ||
-				(id == Board.BLACK_CHECKER && dy < 0)) {
+		int dir = Tiles.direction(startIndex, endIndex);
+		if (!Tiles.canMove(board.get(startIndex), dir)) {
 			return false;
 		}
 		
 		// if this is not a skip, there are none available
-		Point middle = Board.middle(startIndex, endIndex);
-		int midID = board.get(Board.toIndex(middle));
+		int midID = board.get(Tiles.middle(startIndex, endIndex));
 		if (midID < 0) {
 			
-			List<Point> checkers;
-			if (isP1Turn) {
-				checkers = board.find(Board.BLACK_CHECKER);
-				checkers.addAll(board.find(Board.BLACK_KING));
-			} else {
-				checkers = board.find(Board.WHITE_CHECKER);
-				checkers.addAll(board.find(Board.WHITE_KING));
-			}
-			
-			for (Point p : checkers) {
-				int index = Board.toIndex(p);
-				if (!MoveGenerate.getSkips(board, index).isEmpty()) {
-					return false;
-				}
+			if (BitBoard.getJumpers(board, isP1Turn) != 0) {
+				return false;
 			}
 		}
 		
@@ -124,13 +102,14 @@ public class Logic {
 	}
 	
 	//checks if checker is safe
-public static boolean isSafe(Board board, Point checker) {
+	public static boolean isSafe(Board board, Point checker) {
+		return checker == null? true : isSafe(board, Board.toIndex(checker));
+	}
+	
+	// Checks if the piece on the index can't be skipped by the opponent.
+	public static boolean isSafe(Board board, int index) {
 		
-		if (board == null || checker == null) {
-			return true;
-		}
-		int index = Board.toIndex(checker);
-		if (index < 0) {
+		if (board == null || !Board.isValidIndex(index)) {
 			return true;
 		}
 		int id = board.get(index);
@@ -140,31 +119,22 @@ public static boolean isSafe(Board board, Point checker) {
 		
 		//Determine if it can be skipped
 		boolean isBlack = (id == Board.BLACK_CHECKER || id == Board.BLACK_KING);
-		List<Point> check = new ArrayList<>();
-		MoveGenerate.addPoints(check, checker, Board.BLACK_KING, 1);
-		for (Point p : check) {
-			int start = Board.toIndex(p);
-			int tid = board.get(start);
-			
-			if (tid == Board.EMPTY || tid == Board.INVALID) {
+		for (int dir = 0; dir < 4; dir ++) {
+			int start = Tiles.neighbor(index, dir);
+			int end = Tiles.neighbor(index, BitBoard.reverse(dir));
+			if (start < 0 || end < 0 || board.get(end) != Board.EMPTY) {
 				continue;
 			}
 			
+			int tid = board.get(start);
 			boolean isWhite = (tid == Board.WHITE_CHECKER ||
 					tid == Board.WHITE_KING);
-			if (isBlack && !isWhite) { 
+			if (tid == Board.EMPTY || isBlack != isWhite) {
 				continue;
 			}
-			boolean isKing = (tid == Board.BLACK_KING || tid == Board.BLACK_KING);
 			
-			// Determine if valid skip direction
-			int dx = (checker.x - p.x) * 2;
-			int dy = (checker.y - p.y) * 2;
-			if (!isKing && (isWhite ^ (dy < 0))) {
-				continue;
-			}
-			int endIndex = Board.toIndex(new Point(p.x + dx, p.y + dy));
-			if (MoveGenerate.isValidSkip(board, start, endIndex)) {
+			// The attacker skips back the way it came
+			if (Tiles.canMove(tid, BitBoard.reverse(dir))) {
 				return false;
 			}
 		}
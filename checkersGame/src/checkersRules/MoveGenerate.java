@@ -3,11 +3,13 @@ package checkersRules;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
+import checkersRules.BitBoard;
 import checkersRules.Board;
 
 /**
  * The {@code MoveGenerate} class provides a method for determining if a given
- * checker can make any move or skip.
+ * checker can make any move or skip. The end points are computed by
+ * {@link BitBoard} and converted to points for existing callers.
  */
 
 public class MoveGenerate {
@@ -25,18 +27,8 @@ public class MoveGenerate {
 			return endPoints;
 		}
 		
-		//Determine possible points
-		int id = board.get(startIndex);
-		Point p = Board.toPoint(startIndex);
-		addPoints(endPoints, p, id, 1);
-		
-		//Remove invalid points
-		for (int i = 0; i < endPoints.size(); i ++) {
-			Point end = endPoints.get(i);
-			if (board.get(end.x, end.y) != Board.EMPTY) {
-				endPoints.remove(i --);
-			}
-		}
+		int targets = BitBoard.getMoveTargets(board, startIndex);
+		addTargets(endPoints, startIndex, targets, 1);
 		
 		return endPoints;
 	}
@@ -53,22 +45,25 @@ public class MoveGenerate {
 			return endPoints;
 		}
 		
-		// Determine possible points
-		int id = board.get(startIndex);
-		Point p = Board.toPoint(startIndex);
-		addPoints(endPoints, p, id, 2);
-		
-		// Remove invalid points
-		for (int i = 0; i < endPoints.size(); i ++) {
-			Point end = endPoints.get(i);
-			if (!isValidSkip(board, startIndex, Board.toIndex(end))) {
-				endPoints.remove(i --);
-			}
-		}
+		int targets = BitBoard.getSkipTargets(board, startIndex);
+		addTargets(endPoints, startIndex, targets, 2);
 
 		return endPoints;
 	 }
     
+     // Adds the targets in the same order as addPoints (down, then up).
+     private static void addTargets(List<Point> points, int startIndex,
+    		 int targets, int delta) {
+    	 
+    	 for (int dir = 0; dir < 4 && targets != 0; dir ++) {
+    		 int end = (delta == 1)? Tiles.neighbor(startIndex, dir)
+    				 : Tiles.jump(startIndex, dir);
+    		 if (end >= 0 && (targets & (1 << end)) != 0) {
+    			 points.add(Board.toPoint(end));
+    		 }
+    	 }
+     }
+    
      public static boolean isValidSkip(Board board,
 			int startIndex, int endIndex) {
 		
@@ -82,7 +77,7 @@ public class MoveGenerate {
 		}
 		
 		int id = board.get(startIndex);
-		int midID = board.get(Board.toIndex(Board.middle(startIndex, endIndex)));
+		int midID = board.get(Tiles.middle(startIndex, endIndex));
 		if (id == Board.INVALID || id == Board.EMPTY) {
 			return false;
 		} else if (midID == Board.INVALID || midID == Board.EMPTY) {
@@ -0,0 +1,92 @@
+package checkersRules;
+
+import java.util.Arrays;
+
+import checkersRules.PackedMove;
+
+/**
+ * The {@code MoveList} class is a growable stack of {@link PackedMove}s that
+ * is reused between searches. A search generates the moves for a position on
+ * top of the stack, walks them, and then truncates the stack back to where it
+ * started with {@link #setSize(int)}, so no memory is allocated per node.
+ */
+
+public class MoveList {
+
+	/** The initial capacity, enough for a deep search without growing. */
+	private static final int DEFAULT_CAPACITY = 4096;
+
+	/** The move lists owned by each thread. */
+	private static final ThreadLocal<MoveList> LOCAL =
+			new ThreadLocal<MoveList>() {
+
+		@Override
+		protected MoveList initialValue() {
+			return new MoveList();
+		}
+	};
+
+	/** The packed moves in the list. */
+	private int[] moves;
+
+	/** The number of moves in the list. */
+	private int size;
+
+	public MoveList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public MoveList(int capacity) {
+		this.moves = new int[Math.max(capacity, 16)];
+	}
+
+	// Gets the move list for the calling thread.
+	public static MoveList get() {
+		return LOCAL.get();
+	}
+
+	public void add(int move) {
+		if (size == moves.length) {
+			this.moves = Arrays.copyOf(moves, size * 2);
+		}
+		this.moves[size ++] = move;
+	}
+
+	public int get(int index) {
+		return moves[index];
+	}
+
+	public void set(int index, int move) {
+		this.moves[index] = move;
+	}
+
+	// Swaps two moves, used to order moves during a search.
+	public void swap(int i, int j) {
+		int tmp = moves[i];
+		this.moves[i] = moves[j];
+		this.moves[j] = tmp;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// Truncates the list to a size previously returned by size().
+	public void setSize(int size) {
+		this.size = Math.max(0, Math.min(size, this.size));
+	}
+
+	public void clear() {
+		this.size = 0;
+	}
+
+	@Override
+	public String toString() {
+		String obj = getClass().getSimpleName() + "[";
+		for (int i = 0; i < size; i ++) {
+			obj += (i == 0? "" : ", ") + PackedMove.toString(moves[i]);
+		}
+		return obj + "]";
+	}
+
+}
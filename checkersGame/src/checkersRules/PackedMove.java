@@ -0,0 +1,84 @@
+package checkersRules;
+
+import checkersRules.Board;
+import checkersRules.Move;
+
+/**
+ * The {@code PackedMove} class encodes a move in a single {@code int} so that
+ * move generation and search don't need to allocate {@link Move} objects.
+ * <p>
+ * Every call to {@link Game#move(int, int)} captures at most one checker (a
+ * multiple skip is a sequence of moves that share the skip index), so the
+ * captured tile is stored as an index and {@link #getCaptured(int)} expands
+ * it to a one-bit mask.
+ * <pre>
+ * bits  0-4   start index
+ * bits  5-9   end index
+ * bits 10-14  captured index
+ * bit  15     set if the move is a skip
+ * bit  16     set if the checker becomes a king
+ * </pre>
+ */
+
+public class PackedMove {
+
+	/** The value used to indicate that there is no move. */
+	public static final int NONE = -1;
+
+	private static final int SKIP_FLAG = 1 << 15;
+
+	private static final int KING_FLAG = 1 << 16;
+
+	// Encodes a regular move.
+	public static int move(int startIndex, int endIndex, boolean promotes) {
+		return (startIndex & 31) | ((endIndex & 31) << 5)
+				| (promotes? KING_FLAG : 0);
+	}
+
+	// Encodes a skip over the checker on the captured index.
+	public static int skip(int startIndex, int endIndex, int capturedIndex,
+			boolean promotes) {
+		return move(startIndex, endIndex, promotes)
+				| ((capturedIndex & 31) << 10) | SKIP_FLAG;
+	}
+
+	public static int getStartIndex(int move) {
+		return move & 31;
+	}
+
+	public static int getEndIndex(int move) {
+		return (move >>> 5) & 31;
+	}
+
+	/** Gets the index of the skipped checker, or -1 if it is not a skip. */
+	public static int getCapturedIndex(int move) {
+		return isSkip(move)? (move >>> 10) & 31 : -1;
+	}
+
+	/** Gets a mask of the skipped checker, or 0 if it is not a skip. */
+	public static int getCaptured(int move) {
+		return isSkip(move)? 1 << ((move >>> 10) & 31) : 0;
+	}
+
+	public static boolean isSkip(int move) {
+		return (move & SKIP_FLAG) != 0;
+	}
+
+	public static boolean isPromotion(int move) {
+		return (move & KING_FLAG) != 0;
+	}
+
+	// Creates a UI move (with no weight) from a packed move.
+	public static Move toMove(int move) {
+		return new Move(getStartIndex(move), getEndIndex(move));
+	}
+
+	public static String toString(int move) {
+		if (move == NONE) {
+			return "none";
+		}
+		return getStartIndex(move) + (isSkip(move)? "x" : "-")
+				+ getEndIndex(move) + (isPromotion(move)? "K" : "");
+	}
+
+}
@@ -0,0 +1,112 @@
+package checkersRules;
+
+import java.nio.ByteBuffer;
+
+import checkersRules.Board;
+import checkersRules.Game;
+
+/**
+ * The {@code PositionCodec} class stores a game position in a fixed
+ * {@value #SIZE} bytes, so that positions can be written to files, sent over
+ * a connection or kept in large arrays without building a string for each.
+ * <pre>
+ * bytes  0-11  the three bit planes of the board (see Board.getPlane)
+ * byte  12     1 if it is player 1's turn, 0 otherwise
+ * byte  13     the skip index, or -1 if there isn't one
+ * </pre>
+ * The planes are written in the byte order of the buffer, which is big-endian
+ * unless it has been changed. The string from {@link Game#getGameState()} is
+ * still supported and can be converted to and from this form.
+ */
+
+public class PositionCodec {
+
+	/** The number of bytes a position takes. */
+	public static final int SIZE = 14;
+
+	// Writes the position of the game to the buffer.
+	public static void write(Game game, ByteBuffer buffer) {
+		buffer.putInt(game.getPlane(0));
+		buffer.putInt(game.getPlane(1));
+		buffer.putInt(game.getPlane(2));
+		buffer.put((byte) (game.isP1Turn()? 1 : 0));
+		int skipIndex = game.getSkipIndex();
+		buffer.put((byte) (Board.isValidIndex(skipIndex)? skipIndex : -1));
+	}
+
+	// Reads a position from the buffer into a new game.
+	public static Game read(ByteBuffer buffer) {
+		Game game = new Game();
+		read(buffer, game);
+		return game;
+	}
+
+	/**
+	 * Reads a position from the buffer into an existing game, replacing its
+	 * board, whose turn it is and the skip index.
+	 */
+	public static void read(ByteBuffer buffer, Game game) {
+		int plane0 = buffer.getInt();
+		int plane1 = buffer.getInt();
+		int plane2 = buffer.getInt();
+		boolean isP1Turn = buffer.get() != 0;
+		int skipIndex = buffer.get();
+		game.setPosition(plane0, plane1, plane2, isP1Turn,
+				Board.isValidIndex(skipIndex)? skipIndex : -1);
+	}
+
+	// Encodes every game into one array, SIZE bytes each.
+	public static byte[] encode(Game[] games) {
+		byte[] data = new byte[games.length * SIZE];
+		encode(games, 0, games.length, data, 0);
+		return data;
+	}
+
+	/**
+	 * Encodes {@code count} games starting at {@code index} into the array,
+	 * starting at {@code offset}.
+	 */
+	public static void encode(Game[] games, int index, int count,
+			byte[] data, int offset) {
+		ByteBuffer buffer = ByteBuffer.wrap(data, offset, count * SIZE);
+		for (int i = 0; i < count; i ++) {
+			write(games[index + i], buffer);
+		}
+	}
+
+	// Decodes every position in the array into new games.
+	public static Game[] decode(byte[] data) {
+		Game[] games = new Game[data.length / SIZE];
+		decode(data, 0, games, 0, games.length);
+		return games;
+	}
+
+	/**
+	 * Decodes {@code count} positions starting at {@code offset} into the
+	 * games starting at {@code index}. Games already in the array are reused,
+	 * and new ones are created where there are none.
+	 */
+	public static void decode(byte[] data, int offset, Game[] games,
+			int index, int count) {
+		ByteBuffer buffer = ByteBuffer.wrap(data, offset, count * SIZE);
+		for (int i = 0; i < count; i ++) {
+			if (games[index + i] == null) {
+				games[index + i] = new Game();
+			}
+			read(buffer, games[index + i]);
+		}
+	}
+
+	// Converts an encoded position to the string used by Game.
+	public static String toGameState(byte[] data, int offset) {
+		Game game = new Game();
+		read(ByteBuffer.wrap(data, offset, SIZE), game);
+		return game.getGameState();
+	}
+
+	// Encodes the position given as a string used by Game into the array.
+	public static void fromGameState(String state, byte[] data, int offset) {
+		write(new Game(state), ByteBuffer.wrap(data, offset, SIZE));
+	}
+
+}
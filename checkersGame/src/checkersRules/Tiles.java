@@ -0,0 +1,115 @@
+package checkersRules;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import checkersRules.BitBoard;
+import checkersRules.Board;
+
+/**
+ * The {@code Tiles} class holds lookup tables for the 32 tiles a checker can
+ * be on, so that the rules can find a neighbouring tile, the landing tile of
+ * a skip or the tile that is skipped without creating points or working with
+ * coordinates. The tables are built once from {@link Board#toPoint(int)}.
+ * <p>
+ * Directions are those of {@link BitBoard}: {@link BitBoard#DOWN_RIGHT},
+ * {@link BitBoard#DOWN_LEFT}, {@link BitBoard#UP_RIGHT} and
+ * {@link BitBoard#UP_LEFT}, where down is towards the white side.
+ */
+
+public class Tiles {
+
+	/** The tile one step away in each direction, or -1 if off the board. */
+	private static final int[][] NEIGHBOR = new int[32][4];
+
+	/** The landing tile of a skip in each direction, or -1. */
+	private static final int[][] JUMP = new int[32][4];
+
+	/** The tile skipped going from one tile to another, or -1. */
+	private static final int[][] MIDDLE = new int[32][32];
+
+	/**
+	 * The direction from one tile to another one or two steps away on a
+	 * diagonal, or -1.
+	 */
+	private static final int[][] DIRECTION = new int[32][32];
+
+	static {
+		final int[] dx = {1, -1, 1, -1}, dy = {1, 1, -1, -1};
+		for (int i = 0; i < 32; i ++) {
+			Arrays.fill(MIDDLE[i], -1);
+			Arrays.fill(DIRECTION[i], -1);
+		}
+		for (int i = 0; i < 32; i ++) {
+			Point p = Board.toPoint(i);
+			int x = p.x, y = p.y;
+			for (int dir = 0; dir < 4; dir ++) {
+				int next = Board.toIndex(x + dx[dir], y + dy[dir]);
+				int jump = Board.toIndex(x + 2 * dx[dir], y + 2 * dy[dir]);
+				NEIGHBOR[i][dir] = next;
+				JUMP[i][dir] = (next < 0)? -1 : jump;
+				if (next >= 0) {
+					DIRECTION[i][next] = dir;
+				}
+				if (JUMP[i][dir] >= 0) {
+					DIRECTION[i][jump] = dir;
+					MIDDLE[i][jump] = next;
+				}
+			}
+		}
+	}
+
+	// Gets the tile one step from the index in a direction, or -1.
+	public static int neighbor(int index, int direction) {
+		return NEIGHBOR[index][direction];
+	}
+
+	// Gets the landing tile of a skip from the index in a direction, or -1.
+	public static int jump(int index, int direction) {
+		return JUMP[index][direction];
+	}
+
+	/**
+	 * Gets the tile between two tiles that are a skip apart, or -1 if they
+	 * aren't (including if either index isn't valid).
+	 */
+	public static int middle(int startIndex, int endIndex) {
+		if (!Board.isValidIndex(startIndex) || !Board.isValidIndex(endIndex)) {
+			return -1;
+		}
+		return MIDDLE[startIndex][endIndex];
+	}
+
+	/**
+	 * Gets the direction from one tile to another that is one or two steps
+	 * away on a diagonal, or -1 if it isn't.
+	 */
+	public static int direction(int startIndex, int endIndex) {
+		if (!Board.isValidIndex(startIndex) || !Board.isValidIndex(endIndex)) {
+			return -1;
+		}
+		return DIRECTION[startIndex][endIndex];
+	}
+
+	// Determines if a direction is towards the white side.
+	public static boolean isDown(int direction) {
+		return direction == BitBoard.DOWN_RIGHT
+				|| direction == BitBoard.DOWN_LEFT;
+	}
+
+	/** Determines if a piece with the given ID can move in a direction. */
+	public static boolean canMove(int id, int direction) {
+		switch (id) {
+		case Board.BLACK_KING:
+		case Board.WHITE_KING:
+			return direction >= 0;
+		case Board.BLACK_CHECKER:
+			return isDown(direction);
+		case Board.WHITE_CHECKER:
+			return direction >= 0 && !isDown(direction);
+		default:
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+package checkersRules;
+
+import checkersRules.PackedMove;
+
+/**
+ * The {@code Undo} class encodes what {@link Game#unmakeMove(int)} needs to
+ * take back a move in a single {@code int}, so that a search can make and
+ * unmake moves on one game without copying it or allocating.
+ * <p>
+ * The low bits are the {@link PackedMove} that was made, with its promotion
+ * flag set if the checker was crowned. The rest record the ID of the
+ * captured checker and whose turn it was and the skip index before the move.
+ * <pre>
+ * bits  0-16  the packed move
+ * bits 17-19  the ID of the captured checker (0 if none)
+ * bit  20     set if it was player 1's turn
+ * bits 21-26  the skip index plus one
+ * </pre>
+ */
+
+public class Undo {
+
+	/** The value used to indicate that no move was made. */
+	public static final int NONE = -1;
+
+	private static final int MOVE_MASK = (1 << 17) - 1;
+
+	private static final int TURN_FLAG = 1 << 20;
+
+	// Encodes the undo record for a move.
+	public static int create(int move, int captured, boolean wasP1Turn,
+			int skipIndex) {
+		return (move & MOVE_MASK) | ((captured & 7) << 17)
+				| (wasP1Turn? TURN_FLAG : 0)
+				| (((Board.isValidIndex(skipIndex)? skipIndex : -1) + 1) << 21);
+	}
+
+	// Gets the packed move that was made.
+	public static int getMove(int undo) {
+		return undo & MOVE_MASK;
+	}
+
+	/** Gets the ID of the checker that was skipped, or EMPTY if none was. */
+	public static int getCaptured(int undo) {
+		return (undo >>> 17) & 7;
+	}
+
+	public static boolean isPromotion(int undo) {
+		return PackedMove.isPromotion(undo & MOVE_MASK);
+	}
+
+	public static boolean wasP1Turn(int undo) {
+		return (undo & TURN_FLAG) != 0;
+	}
+
+	// Gets the skip index before the move, -1 if there wasn't one.
+	public static int getSkipIndex(int undo) {
+		return ((undo >>> 21) & 63) - 1;
+	}
+
+	public static String toString(int undo) {
+		if (undo == NONE) {
+			return "none";
+		}
+		return PackedMove.toString(getMove(undo)) + "[captured="
+				+ getCaptured(undo) + ", wasP1Turn=" + wasP1Turn(undo)
+				+ ", skipIndex=" + getSkipIndex(undo) + "]";
+	}
+
+}
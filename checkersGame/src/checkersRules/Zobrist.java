@@ -0,0 +1,66 @@
+package checkersRules;
+
+/**
+ * The {@code Zobrist} class holds the random 64-bit keys used to identify a
+ * position. The key of a position is the XOR of the key of every checker on
+ * its tile, the side to move key if it is player 2's turn and the key of the
+ * skip index if a multiple skip is in progress, so it can be updated one
+ * tile at a time. The keys come from a fixed seed and never change between
+ * runs, so keys can be stored on disk.
+ */
+
+public class Zobrist {
+
+	/** The SplitMix64 increment used to generate the keys. */
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** The keys for each tile and checker ID (an empty tile has no key). */
+	private static final long[] PIECES = new long[32 * 8];
+
+	/** The keys for each skip index. */
+	private static final long[] SKIPS = new long[32];
+
+	/** The key added when it is player 2's turn. */
+	private static final long SIDE;
+
+	static {
+		long seed = 0x636865636B657273L;
+		for (int i = 0; i < 32; i ++) {
+			for (int id = 1; id < 8; id ++) {
+				PIECES[i * 8 + id] = mix(seed += GAMMA);
+			}
+		}
+		for (int i = 0; i < 32; i ++) {
+			SKIPS[i] = mix(seed += GAMMA);
+		}
+		SIDE = mix(seed + GAMMA);
+	}
+
+	// Gets the key of a checker ID on a tile.
+	public static long piece(int index, int id) {
+		return PIECES[index * 8 + (id & 7)];
+	}
+
+	// Gets the key of a skip index, or 0 if no skip is in progress.
+	public static long skip(int skipIndex) {
+		return Board.isValidIndex(skipIndex)? SKIPS[skipIndex] : 0;
+	}
+
+	// Gets the key for whose turn it is.
+	public static long side(boolean isP1Turn) {
+		return isP1Turn? 0 : SIDE;
+	}
+
+	// Gets the key for whose turn it is and the skip index.
+	public static long state(boolean isP1Turn, int skipIndex) {
+		return side(isP1Turn) ^ skip(skipIndex);
+	}
+
+	/** Mixes a SplitMix64 state into a key. */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
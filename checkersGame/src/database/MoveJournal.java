@@ -0,0 +1,479 @@
+package database;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.PositionCodec;
+import checkersRules.Undo;
+
+/**
+ * The {@code MoveJournal} class keeps a game safe if the program stops in
+ * the middle of it. It listens to a {@link Game} and appends every move made
+ * to a memory mapped file as a fixed size record, along with a checkpoint of
+ * the whole position every {@link #DEFAULT_CHECKPOINT_INTERVAL} moves and
+ * whenever the game is set another way, such as by a restart. When the
+ * journal is opened again, the game is restored from the last checkpoint
+ * and the moves made after it.
+ * <pre>
+ * header (64 bytes)      magic, version, record size, last checkpoint
+ * move (16 bytes)        type 1, start index, end index, 1 if it is then
+ *                        player 1's turn, skip index, unused, key after
+ * checkpoint (16 bytes)  type 2, position (see PositionCodec), unused
+ * </pre>
+ * The file is mapped in segments of {@link #SEGMENT_RECORDS} records and
+ * grows as they fill. Records are written by a thread of the journal's own,
+ * so making a move only queues its record. How often the file is forced to
+ * the disk is set by the sync interval: {@link #SYNC_ALWAYS} after every
+ * write, {@link #SYNC_NEVER} only when the journal is flushed or closed
+ * (the operating system still writes it back in time), or otherwise at most
+ * once in that many milliseconds. A move replayed from the journal is
+ * checked against the turn, skip index and key in its record, and replaying
+ * stops at the first record that doesn't match, such as one that was only
+ * partly written.
+ * <p>
+ * Usage: {@code java database.MoveJournal <file>}
+ */
+
+public class MoveJournal implements Game.Listener, Closeable {
+
+	/** The first bytes of every journal file. */
+	public static final int MAGIC = 0x434A4E31;
+
+	/** The version of the file layout. */
+	public static final int VERSION = 1;
+
+	/** The number of bytes before the records. */
+	public static final int HEADER_SIZE = 64;
+
+	/** The number of bytes in each record. */
+	public static final int RECORD_SIZE = 16;
+
+	/** The number of records in each mapped segment, 1 MB. */
+	public static final int SEGMENT_RECORDS = 1 << 16;
+
+	// The record types, 0 marks the end of the journal.
+	public static final byte MOVE = 1;
+	public static final byte CHECKPOINT = 2;
+
+	/** Forces the file to the disk after every write. */
+	public static final long SYNC_ALWAYS = 0;
+
+	/** Only forces the file when the journal is flushed or closed. */
+	public static final long SYNC_NEVER = -1;
+
+	/** The default milliseconds between forcing the file to the disk. */
+	public static final long DEFAULT_SYNC_INTERVAL = 1000;
+
+	/** The default number of moves between checkpoints. */
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 64;
+
+	/** Stops the writer thread when it is taken from the queue. */
+	private static final byte[] STOP = new byte[0];
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer header;
+
+	/** The mapped segments of the file, in order. */
+	private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+	/** The records waiting to be written, and requests to flush. */
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+	private final long syncInterval;
+
+	/** The index of the next record to write, used by the writer thread. */
+	private long records;
+
+	/** The game restored when the journal was opened, or null. */
+	private final Game restored;
+
+	/** The game whose moves are written, or null. */
+	private Game game;
+
+	private volatile int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+	/** The moves queued since the last checkpoint, used by the game's lock. */
+	private int sinceCheckpoint;
+
+	/** The first error writing the file, after which nothing is written. */
+	private volatile IOException error;
+
+	private final Thread writer;
+
+	private volatile boolean closed;
+
+	private MoveJournal(RandomAccessFile raf, long syncInterval)
+			throws IOException {
+
+		this.channel = raf.getChannel();
+		this.syncInterval = syncInterval;
+		this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+				HEADER_SIZE);
+		long length = raf.length() - HEADER_SIZE;
+		for (long i = 0; i * SEGMENT_RECORDS * RECORD_SIZE < length; i ++) {
+			map();
+		}
+		this.restored = replay();
+		if (records / SEGMENT_RECORDS == segments.size()) {
+			map();
+		}
+
+		// Clear anything left after the last good record
+		MappedByteBuffer seg = segments.get((int) (records / SEGMENT_RECORDS));
+		for (int i = (int) (records % SEGMENT_RECORDS) * RECORD_SIZE;
+				i < SEGMENT_RECORDS * RECORD_SIZE; i ++) {
+			seg.put(i, (byte) 0);
+		}
+
+		this.writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				write();
+			}
+		}, "move-journal");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Opens a journal, creating the file if there isn't one, and restores
+	 * the game it holds. The file is forced to the disk at most once every
+	 * {@link #DEFAULT_SYNC_INTERVAL} milliseconds.
+	 *
+	 * @throws IOException if the file isn't a journal or can't be mapped.
+	 */
+	public static MoveJournal open(File file) throws IOException {
+		return open(file, DEFAULT_SYNC_INTERVAL);
+	}
+
+	/**
+	 * Opens a journal that forces the file to the disk at most once in the
+	 * given milliseconds, or {@link #SYNC_ALWAYS} or {@link #SYNC_NEVER}.
+	 *
+	 * @throws IOException if the file isn't a journal or can't be mapped.
+	 */
+	public static MoveJournal open(File file, long syncInterval)
+			throws IOException {
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			if (raf.length() < HEADER_SIZE) {
+				raf.setLength(0);
+				raf.writeInt(MAGIC);
+				raf.writeInt(VERSION);
+				raf.writeInt(RECORD_SIZE);
+				raf.setLength(HEADER_SIZE);
+			} else if (raf.readInt() != MAGIC || raf.readInt() != VERSION
+					|| raf.readInt() != RECORD_SIZE) {
+				throw new IOException("Not a move journal: " + file);
+			}
+			return new MoveJournal(raf, syncInterval);
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1) {
+			System.out.println("Usage: java database.MoveJournal <file>");
+			return;
+		}
+		MoveJournal journal = open(new File(args[0]), SYNC_NEVER);
+		Game game = journal.getRestored();
+		System.out.println(journal.getRecords() + " records, "
+				+ (game == null? "no game" : "game " + game.getGameState()));
+		journal.close();
+	}
+
+	// Maps the next segment of the file, making the file longer if needed.
+	private void map() throws IOException {
+		long start = HEADER_SIZE
+				+ (long) segments.size() * SEGMENT_RECORDS * RECORD_SIZE;
+		segments.add(channel.map(FileChannel.MapMode.READ_WRITE, start,
+				(long) SEGMENT_RECORDS * RECORD_SIZE));
+	}
+
+	// Gets the type of a record, or 0 past the end of the file.
+	private byte getType(long index) {
+		int s = (int) (index / SEGMENT_RECORDS);
+		return (s >= segments.size())? 0 : segments.get(s).get(
+				(int) (index % SEGMENT_RECORDS) * RECORD_SIZE);
+	}
+
+	// Gets a buffer positioned at a record.
+	private ByteBuffer getRecord(long index) {
+		ByteBuffer b = segments.get((int) (index / SEGMENT_RECORDS)).duplicate();
+		b.position((int) (index % SEGMENT_RECORDS) * RECORD_SIZE);
+		return b;
+	}
+
+	/**
+	 * Finds the last checkpoint and replays the moves after it, leaving the
+	 * record count at the first record that isn't valid. Returns the game,
+	 * or null if there is no checkpoint.
+	 */
+	private Game replay() {
+
+		// The header names the last checkpoint, otherwise look for it
+		long first = header.getLong(16);
+		if (first < 0 || getType(first) != CHECKPOINT) {
+			first = -1;
+			for (long i = 0; getType(i) != 0; i ++) {
+				if (getType(i) == CHECKPOINT) {
+					first = i;
+				}
+			}
+		}
+		if (first < 0) {
+			this.records = 0;
+			return null;
+		}
+
+		Game g = new Game();
+		long i = first;
+		for (byte type; (type = getType(i)) != 0; i ++) {
+			ByteBuffer r = getRecord(i);
+			r.get();
+			if (type == CHECKPOINT) {
+				PositionCodec.read(r, g);
+				continue;
+			}
+			int start = r.get(), end = r.get();
+			boolean isP1Turn = r.get() != 0;
+			int skipIndex = r.get();
+			r.position(r.position() + 3);
+			int undo = (type == MOVE)? g.makeMove(start, end) : Undo.NONE;
+			if (undo == Undo.NONE || g.isP1Turn() != isP1Turn
+					|| g.getSkipIndex() != skipIndex
+					|| g.getKey() != r.getLong()) {
+				g.unmakeMove(undo);
+				break;
+			}
+		}
+		this.records = i;
+		return g;
+	}
+
+	/**
+	 * Starts writing the moves of a game, beginning with a checkpoint of its
+	 * current position. Any game attached before is no longer written.
+	 */
+	public synchronized void attach(Game game) {
+		detach();
+		this.game = game;
+		if (game != null) {
+			game.setListener(this);
+		}
+	}
+
+	// Stops writing the moves of the attached game.
+	public synchronized void detach() {
+		if (game != null && game.getListener() == this) {
+			game.setListener(null);
+		}
+		this.game = null;
+	}
+
+	// Queues the record of a move, called by the game.
+	@Override
+	public void moved(Game game, int startIndex, int endIndex) {
+		byte[] record = new byte[RECORD_SIZE];
+		ByteBuffer r = ByteBuffer.wrap(record);
+		r.put(MOVE).put((byte) startIndex).put((byte) endIndex);
+		r.put((byte) (game.isP1Turn()? 1 : 0));
+		int skipIndex = game.getSkipIndex();
+		r.put((byte) (Board.isValidIndex(skipIndex)? skipIndex : -1));
+		r.putLong(8, game.getKey());
+		queue.add(record);
+		if (++ sinceCheckpoint >= checkpointInterval) {
+			reset(game);
+		}
+	}
+
+	// Queues a checkpoint of the whole position, called by the game.
+	@Override
+	public void reset(Game game) {
+		byte[] record = new byte[RECORD_SIZE];
+		ByteBuffer r = ByteBuffer.wrap(record);
+		r.put(CHECKPOINT);
+		PositionCodec.write(game, r);
+		queue.add(record);
+		this.sinceCheckpoint = 0;
+	}
+
+	// Writes the queued records until the journal is closed.
+	private void write() {
+
+		long lastSync = System.currentTimeMillis();
+		boolean dirty = false;
+		while (true) {
+
+			// Wait for a record, or until the file is due to be forced
+			Object next;
+			try {
+				long wait = (!dirty || syncInterval <= 0)? Long.MAX_VALUE
+						: lastSync + syncInterval - System.currentTimeMillis();
+				next = (wait == Long.MAX_VALUE)? queue.take()
+						: queue.poll(Math.max(0, wait), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				next = STOP;
+			}
+
+			// Write every record waiting
+			for (; next != null && next != STOP; next = queue.poll()) {
+				if (next instanceof CountDownLatch) {
+					sync(dirty);
+					dirty = false;
+					((CountDownLatch) next).countDown();
+				} else if (error == null) {
+					append((byte[]) next);
+					dirty = true;
+				}
+			}
+			if (next == STOP) {
+				sync(dirty);
+				return;
+			}
+			long now = System.currentTimeMillis();
+			if (dirty && (syncInterval == SYNC_ALWAYS || (syncInterval > 0
+					&& now - lastSync >= syncInterval))) {
+				sync(dirty);
+				dirty = false;
+				lastSync = now;
+			}
+		}
+	}
+
+	// Writes one record at the end of the journal.
+	private void append(byte[] record) {
+		try {
+			if (records / SEGMENT_RECORDS == segments.size()) {
+				segments.get(segments.size() - 1).force();
+				map();
+			}
+		} catch (IOException e) {
+			this.error = e;
+			System.err.println("Could not write the journal: "
+					+ e.getMessage());
+			return;
+		}
+
+		// The type is written last, so a record is whole once it is seen
+		ByteBuffer r = getRecord(records);
+		int offset = r.position();
+		r.put(offset, (byte) 0);
+		r.position(offset + 1);
+		r.put(record, 1, RECORD_SIZE - 1);
+		r.put(offset, record[0]);
+		if (record[0] == CHECKPOINT) {
+			header.putLong(16, records);
+		}
+		this.records ++;
+	}
+
+	// Forces the last segment and the header to the disk if they changed.
+	private void sync(boolean dirty) {
+		if (dirty) {
+			segments.get((int) Math.min(segments.size() - 1,
+					records / SEGMENT_RECORDS)).force();
+			header.force();
+		}
+	}
+
+	/**
+	 * Waits for every queued record to be written and forces the file to
+	 * the disk.
+	 */
+	public void flush() {
+		if (closed) {
+			return;
+		}
+		CountDownLatch done = new CountDownLatch(1);
+		queue.add(done);
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Gets a copy of the game restored when the journal was opened, or null
+	 * if the journal was empty.
+	 */
+	public Game getRestored() {
+		return (restored == null)? null : restored.copy();
+	}
+
+	public synchronized Game getGame() {
+		return game;
+	}
+
+	// Gets the number of records in the journal, once the queue is written.
+	public long getRecords() {
+		flush();
+		return records;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	// Sets the number of moves between checkpoints.
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = Math.max(1, checkpointInterval);
+	}
+
+	public long getSyncInterval() {
+		return syncInterval;
+	}
+
+	// Gets the error that stopped records being written, or null.
+	public IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Stops writing the attached game, writes what is queued and forces the
+	 * file to the disk. The file stays mapped until the journal is garbage
+	 * collected, as Java can't unmap it sooner.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		detach();
+		this.closed = true;
+		queue.add(STOP);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.err.println("Could not close the journal: "
+					+ e.getMessage());
+		}
+	}
+
+}
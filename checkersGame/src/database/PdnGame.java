@@ -0,0 +1,521 @@
+package database;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.PackedMove;
+import checkersRules.Tiles;
+import checkersRules.Undo;
+
+/**
+ * The {@code PdnGame} class is one game record of a PDN (Portable Draughts
+ * Notation) file: its tags, the position it starts from, the moves that were
+ * made and the result.
+ * <p>
+ * PDN numbers the dark squares 1 to 32 from the black side, so square
+ * {@code n} is {@link Board} index {@code n - 1}. Black moves first, and a
+ * result is given as black's score then white's, so {@code 1-0} is a black
+ * win. A turn with several skips is written with every square it lands on
+ * ({@code 9x18x27}), but a reader also accepts just the first and last.
+ * <p>
+ * The moves are kept as the {@link PackedMove} of each call to
+ * {@link Game#move(int, int)}, so a multiple skip is several moves.
+ */
+
+public class PdnGame {
+
+	/** The result of a game that black won. */
+	public static final int BLACK_WIN = 1;
+
+	/** The result of a drawn game. */
+	public static final int DRAW = 0;
+
+	/** The result of a game that white won. */
+	public static final int WHITE_WIN = -1;
+
+	/** The result of a game that isn't finished or has no result. */
+	public static final int UNKNOWN = 2;
+
+	/** The tags of the game, in the order they were added. */
+	private final Map<String, String> tags = new LinkedHashMap<>();
+
+	/** The game state the game starts from, or null for the usual start. */
+	private String startState;
+
+	/** The moves of the game. */
+	private int[] moves = new int[64];
+
+	/** The number of moves in {@link #moves}. */
+	private int moveCount;
+
+	/** The result of the game. */
+	private int result = UNKNOWN;
+
+	// Gets the board index of a PDN square, or -1 if it isn't one.
+	public static int toIndex(int square) {
+		return (square >= 1 && square <= 32)? square - 1 : -1;
+	}
+
+	// Gets the PDN square of a board index, or -1 if it isn't one.
+	public static int toSquare(int index) {
+		return Board.isValidIndex(index)? index + 1 : -1;
+	}
+
+	/**
+	 * Parses one game from its PDN text, replaying every move to check that
+	 * it is valid.
+	 *
+	 * @throws IllegalArgumentException if the text has an invalid move or
+	 * position.
+	 */
+	public static PdnGame parse(String text) {
+
+		PdnGame pdn = new PdnGame();
+		Game game = null;
+		int n = text.length(), i = 0;
+		while (i < n) {
+			char c = text.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i ++;
+			} else if (c == '[') {
+				int end = text.indexOf(']', i);
+				end = (end < 0)? n : end;
+				pdn.parseTag(text.substring(i + 1, end));
+				i = end + 1;
+			} else if (c == '{') {
+				int end = text.indexOf('}', i);
+				i = (end < 0)? n : end + 1;
+			} else if (c == ';' || c == '%') {
+				int end = text.indexOf('\n', i);
+				i = (end < 0)? n : end + 1;
+			} else if (c == '(') {
+				i = skipVariation(text, i);
+			} else {
+				int end = i;
+				while (end < n && !Character.isWhitespace(text.charAt(end))
+						&& "{([;".indexOf(text.charAt(end)) < 0) {
+					end ++;
+				}
+				if (game == null) {
+					game = new Game(pdn.startState == null?
+							new Game().getGameState() : pdn.startState);
+				}
+				pdn.parseToken(text.substring(i, end), game);
+				i = end;
+			}
+		}
+
+		// Use the result tag if there was none after the moves
+		if (pdn.result == UNKNOWN && pdn.getTag("Result") != null) {
+			pdn.result = parseResult(pdn.getTag("Result"));
+		}
+
+		return pdn;
+	}
+
+	// Gets the end of a variation, which can hold other variations.
+	private static int skipVariation(String text, int i) {
+		int depth = 0, n = text.length();
+		for (; i < n; i ++) {
+			char c = text.charAt(i);
+			if (c == '{') {
+				int end = text.indexOf('}', i);
+				i = (end < 0)? n : end;
+			} else if (c == '(') {
+				depth ++;
+			} else if (c == ')' && -- depth == 0) {
+				return i + 1;
+			}
+		}
+		return n;
+	}
+
+	// Reads a tag from between its brackets.
+	private void parseTag(String tag) {
+
+		tag = tag.trim();
+		int space = tag.indexOf(' ');
+		if (space < 0) {
+			return;
+		}
+		String name = tag.substring(0, space);
+		String value = tag.substring(space + 1).trim();
+		if (value.length() >= 2 && value.startsWith("\"")
+				&& value.endsWith("\"")) {
+			value = value.substring(1, value.length() - 1);
+		}
+		setTag(name, unescape(value));
+		if (name.equals("FEN")) {
+			this.startState = parseFen(value);
+		}
+	}
+
+	// Removes the backslashes that escape quotes and backslashes in a tag.
+	private static String unescape(String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i ++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				c = value.charAt(++ i);
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	// Reads a move number, move or result and makes the move on the game.
+	private void parseToken(String token, Game game) {
+
+		int r = parseResult(token);
+		if (r != UNKNOWN || token.equals("*")) {
+			this.result = r;
+			return;
+		}
+
+		// Remove the move number and any annotation
+		int start = 0, end = token.length();
+		int dot = token.lastIndexOf('.');
+		if (dot >= 0) {
+			start = dot + 1;
+		}
+		while (end > start && !Character.isDigit(token.charAt(end - 1))) {
+			end --;
+		}
+		if (start >= end || token.charAt(start) == '$') {
+			return;
+		}
+
+		// Make each step of the move, reading the squares as they come
+		boolean isSkip = token.indexOf('x', start) >= 0
+				|| token.indexOf(':', start) >= 0;
+		boolean isP1Turn = game.isP1Turn();
+		int from = -1, steps = 0;
+		for (int i = start; i < end; i ++) {
+			int square = 0;
+			while (i < end && Character.isDigit(token.charAt(i))) {
+				square = square * 10 + (token.charAt(i ++) - '0');
+			}
+			int to = toIndex(square);
+			if (to < 0 || (i < end && "-x:".indexOf(token.charAt(i)) < 0)) {
+				throw new IllegalArgumentException("Invalid move: " + token);
+			}
+			if (from >= 0) {
+				boolean last = (i >= end);
+				boolean direct = !isSkip || Tiles.middle(from, to) >= 0;
+				if (!(direct? addMove(game, from, to)
+						: findSkips(game, from, to, last, isP1Turn))) {
+					throw new IllegalArgumentException("Invalid move: " + token);
+				}
+				steps ++;
+			}
+			from = to;
+		}
+		if (steps == 0) {
+			throw new IllegalArgumentException("Invalid move: " + token);
+		}
+		if (game.isP1Turn() == isP1Turn) {
+			throw new IllegalArgumentException("Unfinished move: " + token);
+		}
+	}
+
+	// Reads a square number, throwing an exception if it isn't one.
+	private static int parseSquare(String square, String token) {
+		try {
+			int n = Integer.parseInt(square);
+			if (toIndex(n) >= 0) {
+				return n;
+			}
+		} catch (NumberFormatException e) {}
+		throw new IllegalArgumentException("Invalid move: " + token);
+	}
+
+	// Makes a move on the game and adds it, if it is valid.
+	private boolean addMove(Game game, int startIndex, int endIndex) {
+		int undo = game.makeMove(startIndex, endIndex);
+		if (undo == Undo.NONE) {
+			return false;
+		}
+		addMove(Undo.getMove(undo));
+		return true;
+	}
+
+	/**
+	 * Finds and makes skips that take a checker from the start index to the
+	 * end index, and if it is the last square of the move, that finish the
+	 * turn there.
+	 */
+	private boolean findSkips(Game game, int startIndex, int endIndex,
+			boolean last, boolean isP1Turn) {
+
+		for (int dir = 0; dir < 4; dir ++) {
+			int next = Tiles.jump(startIndex, dir);
+			if (next < 0) {
+				continue;
+			}
+			int undo = game.makeMove(startIndex, next);
+			if (undo == Undo.NONE) {
+				continue;
+			}
+			addMove(Undo.getMove(undo));
+			boolean done = (game.isP1Turn() != isP1Turn);
+			if (next == endIndex && (done || !last)) {
+				return true;
+			}
+			if (!done && findSkips(game, next, endIndex, last, isP1Turn)) {
+				return true;
+			}
+			game.unmakeMove(undo);
+			this.moveCount --;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reads a result token as {@link #BLACK_WIN}, {@link #DRAW} or
+	 * {@link #WHITE_WIN}, or {@link #UNKNOWN} if it isn't one. Scores out of
+	 * one and out of two are both accepted.
+	 */
+	public static int parseResult(String token) {
+		switch (token) {
+		case "1-0":
+		case "2-0":
+			return BLACK_WIN;
+		case "0-1":
+		case "0-2":
+			return WHITE_WIN;
+		case "1/2-1/2":
+		case "1-1":
+			return DRAW;
+		default:
+			return UNKNOWN;
+		}
+	}
+
+	// Gets the result as it is written after the moves.
+	public static String toResult(int result) {
+		switch (result) {
+		case BLACK_WIN:
+			return "1-0";
+		case WHITE_WIN:
+			return "0-1";
+		case DRAW:
+			return "1/2-1/2";
+		default:
+			return "*";
+		}
+	}
+
+	/**
+	 * Reads a FEN tag such as {@code B:W21,22,K3:B1-12} as a game state:
+	 * the side to move, then the squares of each colour, where {@code K}
+	 * marks a king and a range gives several squares.
+	 *
+	 * @throws IllegalArgumentException if it isn't a valid position.
+	 */
+	public static String parseFen(String fen) {
+
+		char[] tiles = new char[32];
+		Arrays.fill(tiles, (char) ('0' + Board.EMPTY));
+		String[] parts = fen.trim().replace(".", "").split(":");
+		if (parts.length == 0 || (!parts[0].equals("B")
+				&& !parts[0].equals("W"))) {
+			throw new IllegalArgumentException("Invalid FEN: " + fen);
+		}
+		for (int i = 1; i < parts.length; i ++) {
+			String part = parts[i].trim();
+			if (part.isEmpty()) {
+				continue;
+			}
+			boolean isBlack = part.charAt(0) == 'B';
+			if (!isBlack && part.charAt(0) != 'W') {
+				throw new IllegalArgumentException("Invalid FEN: " + fen);
+			}
+			for (String s : part.substring(1).split(",")) {
+				s = s.trim();
+				boolean isKing = s.startsWith("K");
+				s = isKing? s.substring(1) : s;
+				if (s.isEmpty()) {
+					continue;
+				}
+				int id = isBlack? (isKing? Board.BLACK_KING : Board.BLACK_CHECKER)
+						: (isKing? Board.WHITE_KING : Board.WHITE_CHECKER);
+				int dash = s.indexOf('-');
+				int first = parseSquare(dash < 0? s : s.substring(0, dash), fen);
+				int last = dash < 0? first : parseSquare(s.substring(dash + 1), fen);
+				for (int square = first; square <= last; square ++) {
+					tiles[toIndex(square)] = (char) ('0' + id);
+				}
+			}
+		}
+
+		return new String(tiles) + (parts[0].equals("B")? "1" : "0") + "-1";
+	}
+
+	/**
+	 * Writes a game state as a FEN tag, or returns null if it is in the
+	 * middle of a multiple skip, which FEN can't show.
+	 */
+	public static String toFen(String state) {
+
+		Game game = new Game(state);
+		if (Board.isValidIndex(game.getSkipIndex())) {
+			return null;
+		}
+		StringBuilder white = new StringBuilder("W");
+		StringBuilder black = new StringBuilder("B");
+		Board board = game.getBoard();
+		for (int i = 0; i < 32; i ++) {
+			int id = board.get(i);
+			StringBuilder sb = (id == Board.BLACK_CHECKER
+					|| id == Board.BLACK_KING)? black
+					: (id == Board.WHITE_CHECKER || id == Board.WHITE_KING)?
+					white : null;
+			if (sb == null) {
+				continue;
+			}
+			if (sb.length() > 1) {
+				sb.append(',');
+			}
+			if (id == Board.BLACK_KING || id == Board.WHITE_KING) {
+				sb.append('K');
+			}
+			sb.append(toSquare(i));
+		}
+
+		return (game.isP1Turn()? "B" : "W") + ":" + white + ":" + black;
+	}
+
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+
+	// Sets a tag, removing it if the value is null.
+	public void setTag(String name, String value) {
+		if (value == null) {
+			this.tags.remove(name);
+		} else {
+			this.tags.put(name, value);
+		}
+	}
+
+	// Gets the tags in the order they were added, which can't be changed.
+	public Map<String, String> getTags() {
+		return Collections.unmodifiableMap(tags);
+	}
+
+	/** Gets the game state the game starts from, see Game.getGameState(). */
+	public String getStartState() {
+		return (startState == null)? new Game().getGameState() : startState;
+	}
+
+	/**
+	 * Sets the game state the game starts from, or null for the usual start.
+	 * The FEN and SetUp tags are updated to match.
+	 */
+	public void setStartState(String state) {
+		this.startState = state;
+		String fen = (state == null)? null : toFen(state);
+		setTag("SetUp", fen == null? null : "1");
+		setTag("FEN", fen);
+	}
+
+	// Adds a packed move, which is checked when the game is replayed.
+	public void addMove(int move) {
+		if (moveCount == moves.length) {
+			this.moves = Arrays.copyOf(moves, moves.length * 2);
+		}
+		this.moves[moveCount ++] = move;
+	}
+
+	public int getMove(int i) {
+		return moves[i];
+	}
+
+	public int getMoveCount() {
+		return moveCount;
+	}
+
+	public int getResult() {
+		return result;
+	}
+
+	// Sets the result, and the result tag to match.
+	public void setResult(int result) {
+		this.result = result;
+		setTag("Result", toResult(result));
+	}
+
+	/**
+	 * Replays the game from its start, returning the game after the first
+	 * {@code count} moves.
+	 *
+	 * @throws IllegalArgumentException if one of the moves isn't valid.
+	 */
+	public Game replay(int count) {
+
+		Game game = new Game(getStartState());
+		for (int i = 0; i < count && i < moveCount; i ++) {
+			if (!game.move(PackedMove.getStartIndex(moves[i]),
+					PackedMove.getEndIndex(moves[i]))) {
+				throw new IllegalArgumentException("Invalid move "
+						+ (i + 1) + ": " + PackedMove.toString(moves[i]));
+			}
+		}
+
+		return game;
+	}
+
+	// Replays the whole game, see replay(int).
+	public Game replay() {
+		return replay(moveCount);
+	}
+
+	/**
+	 * Gets the moves as PDN text with move numbers, one turn per move and
+	 * the result at the end, but no line breaks.
+	 */
+	public String getMoveText() {
+
+		StringBuilder sb = new StringBuilder(moveCount * 4 + 8);
+		Game game = new Game(getStartState());
+		int number = 1;
+		boolean first = true;
+		for (int i = 0; i < moveCount; i ++) {
+			int m = moves[i];
+			boolean isP1Turn = game.isP1Turn();
+			if (!first && Board.isValidIndex(game.getSkipIndex())) {
+				sb.append('x');
+			} else {
+				if (first || isP1Turn) {
+					sb.append(first? "" : " ").append(number)
+							.append(isP1Turn? ". " : "... ");
+				} else {
+					sb.append(' ');
+				}
+				sb.append(toSquare(PackedMove.getStartIndex(m)))
+						.append(PackedMove.isSkip(m)? 'x' : '-');
+				first = false;
+			}
+			sb.append(toSquare(PackedMove.getEndIndex(m)));
+			if (!game.move(PackedMove.getStartIndex(m),
+					PackedMove.getEndIndex(m))) {
+				throw new IllegalArgumentException("Invalid move "
+						+ (i + 1) + ": " + PackedMove.toString(m));
+			}
+			if (game.isP1Turn() && !isP1Turn) {
+				number ++;
+			}
+		}
+
+		return sb.append(first? "" : " ").append(toResult(result)).toString();
+	}
+
+}
@@ -0,0 +1,297 @@
+package database;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code PdnImporter} class reads PDN files and passes each game to a
+ * handler. One thread reads the file and splits it into games, and a pool of
+ * threads parses the games and replays their moves, so the handler is called
+ * from several threads and not in the order of the file. Only a fixed number
+ * of games are waiting to be parsed at any time, so memory use doesn't grow
+ * with the size of the file.
+ * <p>
+ * Usage: {@code java database.PdnImporter [-threads n] <files...>}, which
+ * checks every game and prints the counts for each file.
+ */
+
+public class PdnImporter {
+
+	/** The number of games waiting to be parsed for each thread. */
+	public static final int QUEUE_PER_THREAD = 64;
+
+	/** Gets each game that was read. */
+	public interface Handler {
+
+		void handle(PdnGame game);
+
+	}
+
+	/**
+	 * The {@code Stats} class counts what has been read from one file. The
+	 * counts can be read while the file is being imported.
+	 */
+	public static class Stats {
+
+		private final String name;
+
+		private final AtomicLong bytes = new AtomicLong();
+
+		private final AtomicLong games = new AtomicLong();
+
+		private final AtomicLong moves = new AtomicLong();
+
+		private final AtomicLong errors = new AtomicLong();
+
+		private volatile long skipped;
+
+		private final long start = System.nanoTime();
+
+		private volatile long time = -1;
+
+		public Stats(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		// Gets the number of bytes read from the file.
+		public long getBytes() {
+			return bytes.get();
+		}
+
+		// Gets the number of games that were read without errors.
+		public long getGames() {
+			return games.get();
+		}
+
+		// Gets the number of moves in the games read without errors.
+		public long getMoves() {
+			return moves.get();
+		}
+
+		// Gets the number of games with an invalid move or position.
+		public long getErrors() {
+			return errors.get();
+		}
+
+		// Gets the number of games skipped for being too long.
+		public long getSkipped() {
+			return skipped;
+		}
+
+		// Gets the time taken in nanoseconds, so far if it isn't done.
+		public long getTime() {
+			long t = time;
+			return (t < 0)? System.nanoTime() - start : t;
+		}
+
+		public double getGamesPerSecond() {
+			return (games.get() + errors.get()) * 1e9 / Math.max(1, getTime());
+		}
+
+		public double getBytesPerSecond() {
+			return bytes.get() * 1e9 / Math.max(1, getTime());
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d games, %d moves, %d errors, "
+					+ "%d skipped, %.1f s, %.0f games/s, %.1f MB/s", name,
+					getGames(), getMoves(), getErrors(), getSkipped(),
+					getTime() / 1e9, getGamesPerSecond(),
+					getBytesPerSecond() / (1 << 20));
+		}
+
+	}
+
+	/** Counts the bytes read from a stream. */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private final AtomicLong count;
+
+		CountingInputStream(InputStream in, AtomicLong count) {
+			super(in);
+			this.count = count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count.incrementAndGet();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count.addAndGet(n);
+			}
+			return n;
+		}
+
+	}
+
+	/** Marks the end of the games in the queue. */
+	private static final String END = new String();
+
+	/** The number of threads that parse games. */
+	private final int threads;
+
+	public PdnImporter() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public PdnImporter(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> files = new ArrayList<>();
+		for (int i = 0; i < args.length; i ++) {
+			if (args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++ i]);
+			} else {
+				files.add(args[i]);
+			}
+		}
+		if (files.isEmpty()) {
+			System.out.println("Usage: java database.PdnImporter"
+					+ " [-threads n] <files...>");
+			return;
+		}
+
+		PdnImporter importer = new PdnImporter(threads);
+		for (String file : files) {
+			System.out.println(importer.importFile(new File(file),
+					new Handler() {
+						@Override
+						public void handle(PdnGame game) {}
+					}));
+		}
+	}
+
+	/**
+	 * Reads every game in a file, passing the games without errors to the
+	 * handler, and returns the counts for the file.
+	 */
+	public Stats importFile(File file, Handler handler) throws IOException {
+		Stats stats = new Stats(file.getName());
+		try (InputStream in = new FileInputStream(file)) {
+			importStream(in, handler, stats);
+		}
+		return stats;
+	}
+
+	/**
+	 * Reads every game from a stream, passing the games without errors to
+	 * the handler and counting them in the stats. The stream isn't closed.
+	 */
+	public void importStream(InputStream in, final Handler handler,
+			final Stats stats) throws IOException {
+
+		final BlockingQueue<String> queue =
+				new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < threads; i ++) {
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						parseGames(queue, handler, stats);
+					}
+				}));
+			}
+
+			// Split the file into games
+			PdnReader reader = new PdnReader(new InputStreamReader(
+					new CountingInputStream(in, stats.bytes),
+					StandardCharsets.UTF_8));
+			try {
+				String text;
+				while ((text = reader.nextText()) != null) {
+					put(queue, text, futures);
+				}
+			} finally {
+				for (int i = 0; i < threads; i ++) {
+					put(queue, END, futures);
+				}
+				stats.skipped = reader.getSkipped();
+			}
+
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			stats.time = System.nanoTime() - stats.start;
+		}
+	}
+
+	/**
+	 * Adds a game to the queue, waiting for room unless a thread parsing
+	 * games has stopped.
+	 */
+	private static void put(BlockingQueue<String> queue, String text,
+			List<Future<?>> futures) throws InterruptedException {
+
+		while (!queue.offer(text, 100, TimeUnit.MILLISECONDS)) {
+			for (Future<?> f : futures) {
+				if (f.isDone()) {
+					return;
+				}
+			}
+		}
+	}
+
+	// Parses the games from the queue until the end is reached.
+	private static void parseGames(BlockingQueue<String> queue,
+			Handler handler, Stats stats) {
+
+		try {
+			String text;
+			while ((text = queue.take()) != END) {
+				PdnGame game;
+				try {
+					game = PdnGame.parse(text);
+				} catch (IllegalArgumentException e) {
+					stats.errors.incrementAndGet();
+					continue;
+				}
+				stats.games.incrementAndGet();
+				stats.moves.addAndGet(game.getMoveCount());
+				handler.handle(game);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
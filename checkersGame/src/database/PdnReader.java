@@ -0,0 +1,128 @@
+package database;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The {@code PdnReader} class reads the games of a PDN file one at a time,
+ * keeping only the game being read in memory, so a file can be much larger
+ * than the memory available.
+ * <p>
+ * A game starts at its first tag and ends when the next game's tags start,
+ * or at a blank line after its result. {@link #nextText()} only finds where
+ * games start and end, so the games can be parsed by other threads with
+ * {@link PdnGame#parse(String)}.
+ */
+
+public class PdnReader implements Closeable {
+
+	/** The longest game text that is read, longer games are skipped. */
+	public static final int MAX_LENGTH = 1 << 20;
+
+	/** The file being read. */
+	private final BufferedReader in;
+
+	/** A line that was read but belongs to the next game. */
+	private String pending;
+
+	/** The number of games read and skipped. */
+	private long games, skipped;
+
+	public PdnReader(Reader in) {
+		this.in = (in instanceof BufferedReader)? (BufferedReader) in
+				: new BufferedReader(in, 1 << 16);
+	}
+
+	/**
+	 * Reads the text of the next game, or returns null at the end of the
+	 * file. Games longer than {@link #MAX_LENGTH} are skipped.
+	 */
+	public String nextText() throws IOException {
+
+		StringBuilder sb = new StringBuilder(1024);
+		boolean moves = false, ended = false, tooLong = false;
+		while (true) {
+			String line = (pending != null)? pending : in.readLine();
+			this.pending = null;
+			if (line == null) {
+				break;
+			}
+			String trimmed = line.trim();
+			if (trimmed.startsWith("[") && moves) {
+				this.pending = line;
+				if (!tooLong) {
+					break;
+				}
+				sb.setLength(0);
+				moves = ended = tooLong = false;
+				this.skipped ++;
+				continue;
+			} else if (trimmed.isEmpty()) {
+				if (ended) {
+					if (!tooLong) {
+						break;
+					}
+					sb.setLength(0);
+					moves = ended = tooLong = false;
+					this.skipped ++;
+					continue;
+				}
+			} else if (!trimmed.startsWith("[")) {
+				moves = true;
+				ended = endsWithResult(trimmed);
+			}
+			if (sb.length() + line.length() >= MAX_LENGTH) {
+				tooLong = true;
+			}
+			if (!tooLong) {
+				sb.append(line).append('\n');
+			}
+		}
+
+		if (tooLong) {
+			this.skipped ++;
+			return null;
+		}
+		if (sb.toString().trim().isEmpty()) {
+			return null;
+		}
+		this.games ++;
+		return sb.toString();
+	}
+
+	/**
+	 * Reads and parses the next game, or returns null at the end of the
+	 * file.
+	 *
+	 * @throws IllegalArgumentException if the game has an invalid move.
+	 */
+	public PdnGame next() throws IOException {
+		String text = nextText();
+		return (text == null)? null : PdnGame.parse(text);
+	}
+
+	// Determines if the last word on a line is a result.
+	private static boolean endsWithResult(String line) {
+		int space = Math.max(line.lastIndexOf(' '), line.lastIndexOf('\t'));
+		String last = line.substring(space + 1);
+		return last.equals("*") || PdnGame.parseResult(last) != PdnGame.UNKNOWN;
+	}
+
+	// Gets the number of games that have been read.
+	public long getGames() {
+		return games;
+	}
+
+	// Gets the number of games skipped for being too long.
+	public long getSkipped() {
+		return skipped;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
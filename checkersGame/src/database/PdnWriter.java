@@ -0,0 +1,96 @@
+package database;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * The {@code PdnWriter} class writes games to a PDN file one at a time: the
+ * tags, then the moves wrapped to {@link #LINE_LENGTH} characters, then a
+ * blank line.
+ */
+
+public class PdnWriter implements Closeable, Flushable {
+
+	/** The longest line of moves that is written. */
+	public static final int LINE_LENGTH = 80;
+
+	/** The file being written. */
+	private final Writer out;
+
+	/** The number of games written. */
+	private long games;
+
+	public PdnWriter(Writer out) {
+		this.out = (out instanceof BufferedWriter)? out
+				: new BufferedWriter(out, 1 << 16);
+	}
+
+	/**
+	 * Writes a game. A result tag is added if the game doesn't have one.
+	 *
+	 * @throws IllegalArgumentException if one of the moves isn't valid.
+	 */
+	public void write(PdnGame game) throws IOException {
+
+		// Get the moves first, in case they aren't valid
+		String moves = game.getMoveText();
+
+		// Write the tags
+		StringBuilder sb = new StringBuilder(moves.length() + 256);
+		for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+			appendTag(sb, tag.getKey(), tag.getValue());
+		}
+		if (game.getTag("Result") == null) {
+			appendTag(sb, "Result", PdnGame.toResult(game.getResult()));
+		}
+		sb.append('\n');
+
+		// Write the moves, keeping lines short
+		int lineStart = sb.length();
+		int i = 0, n = moves.length();
+		while (i < n) {
+			int end = moves.indexOf(' ', i);
+			end = (end < 0)? n : end;
+			if (sb.length() > lineStart
+					&& sb.length() - lineStart + 1 + end - i > LINE_LENGTH) {
+				sb.append('\n');
+				lineStart = sb.length();
+			} else if (sb.length() > lineStart) {
+				sb.append(' ');
+			}
+			sb.append(moves, i, end);
+			i = end + 1;
+		}
+		sb.append("\n\n");
+
+		out.write(sb.toString());
+		this.games ++;
+	}
+
+	// Adds a tag, escaping quotes in its value.
+	private static void appendTag(StringBuilder sb, String name, String value) {
+		sb.append('[').append(name).append(" \"")
+				.append(value.replace("\\", "\\\\").replace("\"", "\\\""))
+				.append("\"]\n");
+	}
+
+	// Gets the number of games written.
+	public long getGames() {
+		return games;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+}
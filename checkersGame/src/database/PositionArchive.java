@@ -0,0 +1,517 @@
+package database;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.PackedMove;
+
+/**
+ * The {@code PositionArchive} class keeps what happened in every position of
+ * a collection of games: how many games reached it, how many of those the
+ * player to move won and drew, and the best move known. Positions are found
+ * by their key from {@link Game#getKey()}, which covers the board, whose turn
+ * it is and the skip index.
+ * <p>
+ * The entries are an open addressing hash table in a memory mapped file, so
+ * they are not on the heap and the archive can hold far more positions than
+ * would fit there. The file is mapped in segments of {@link #SEGMENT_SLOTS}
+ * entries, and the table can't grow past three quarters full, so the
+ * capacity has to be chosen when the file is created.
+ * <pre>
+ * header (64 bytes)  magic, version, capacity, size
+ * entry (32 bytes)   key, games, wins, draws, best move, best score, unused
+ * </pre>
+ * Any number of threads can read at once. Writes are made in batches that
+ * take the write lock once, and a read that overlaps a write is read again.
+ * <p>
+ * Usage: {@code java database.PositionArchive <file> create <entries>},
+ * {@code ... <file> import [-threads n] <pdn files...>} or
+ * {@code ... <file> probe <game state>}
+ */
+
+public class PositionArchive {
+
+	/** The first bytes of every archive file. */
+	public static final int MAGIC = 0x43504131;
+
+	/** The version of the file layout. */
+	public static final int VERSION = 1;
+
+	/** The number of bytes before the entries. */
+	public static final int HEADER_SIZE = 64;
+
+	/** The number of bytes in each entry. */
+	public static final int ENTRY_SIZE = 32;
+
+	/** The number of entries in each mapped segment, 1 GB. */
+	public static final int SEGMENT_SLOTS = 1 << 25;
+
+	/** The number of entries a batch holds before it is written. */
+	public static final int BATCH_SIZE = 1 << 12;
+
+	/** The bits used to keep the index of an entry in a batch. */
+	private static final int BATCH_BITS = 12;
+
+	/** A game the player to move won. */
+	public static final int WIN = 1;
+
+	/** A drawn game. */
+	public static final int DRAW = 0;
+
+	/** A game the player to move lost. */
+	public static final int LOSS = -1;
+
+	/** The key stored instead of 0, which marks an empty entry. */
+	private static final long ZERO_KEY = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * The {@code Entry} class is a copy of what the archive holds for one
+	 * position.
+	 */
+	public static class Entry {
+
+		private final long key;
+
+		private final int games, wins, draws, bestMove, bestScore;
+
+		private Entry(long key, int games, int wins, int draws,
+				int bestMove, int bestScore) {
+			this.key = key;
+			this.games = games;
+			this.wins = wins;
+			this.draws = draws;
+			this.bestMove = bestMove;
+			this.bestScore = bestScore;
+		}
+
+		public long getKey() {
+			return key;
+		}
+
+		public int getGames() {
+			return games;
+		}
+
+		// Gets the number of games the player to move won.
+		public int getWins() {
+			return wins;
+		}
+
+		public int getDraws() {
+			return draws;
+		}
+
+		// Gets the number of games the player to move lost.
+		public int getLosses() {
+			return games - wins - draws;
+		}
+
+		/** Gets the best move known as a {@link PackedMove}, or NONE. */
+		public int getBestMove() {
+			return bestMove;
+		}
+
+		public int getBestScore() {
+			return bestScore;
+		}
+
+		@Override
+		public String toString() {
+			return games + " games, " + wins + " wins, " + draws + " draws, "
+					+ getLosses() + " losses, best move "
+					+ PackedMove.toString(bestMove);
+		}
+
+	}
+
+	/**
+	 * The {@code Batch} class collects positions to add and writes them to
+	 * the archive together. A batch is used by one thread, and is written
+	 * when it is full or flushed.
+	 */
+	public class Batch {
+
+		private final long[] keys = new long[BATCH_SIZE];
+
+		private final int[] results = new int[BATCH_SIZE];
+
+		private final int[] moves = new int[BATCH_SIZE];
+
+		private final int[] scores = new int[BATCH_SIZE];
+
+		/** The slot and the index of each position, to sort by slot. */
+		private final long[] order = new long[BATCH_SIZE];
+
+		private int size;
+
+		/**
+		 * Adds a game reaching a position, with the result for the player to
+		 * move, the move made and its score. The move replaces the best move
+		 * if its score is higher.
+		 */
+		public void add(long key, int result, int move, int score) {
+			if (size == BATCH_SIZE) {
+				flush();
+			}
+			this.keys[size] = key;
+			this.results[size] = result;
+			this.moves[size] = move;
+			this.scores[size] = score;
+			this.size ++;
+		}
+
+		/**
+		 * Adds every position at the start of a turn in a game, with the
+		 * first move of the turn scored by the result. Games with no result
+		 * are not added.
+		 *
+		 * @return true if the game was added.
+		 * @throws IllegalArgumentException if the game has an invalid move.
+		 */
+		public boolean add(PdnGame pdn) {
+
+			int result = pdn.getResult();
+			if (result == PdnGame.UNKNOWN) {
+				return false;
+			}
+			Game game = new Game(pdn.getStartState());
+			for (int i = 0; i < pdn.getMoveCount(); i ++) {
+				int m = pdn.getMove(i);
+				if (!Board.isValidIndex(game.getSkipIndex())) {
+					int r = game.isP1Turn()? result : -result;
+					add(game.getKey(), r, m, r);
+				}
+				if (!game.move(PackedMove.getStartIndex(m),
+						PackedMove.getEndIndex(m))) {
+					throw new IllegalArgumentException("Invalid move "
+							+ (i + 1) + ": " + PackedMove.toString(m));
+				}
+			}
+			return true;
+		}
+
+		// Gets the number of positions waiting to be written.
+		public int size() {
+			return size;
+		}
+
+		/** Writes the positions to the archive, in the order of the table. */
+		public void flush() {
+
+			if (size == 0) {
+				return;
+			}
+			for (int i = 0; i < size; i ++) {
+				this.order[i] = (getSlot(fixKey(keys[i])) << BATCH_BITS) | i;
+			}
+			Arrays.sort(order, 0, size);
+			long stamp = lock.writeLock();
+			try {
+				for (int j = 0; j < size; j ++) {
+					int i = (int) order[j] & (BATCH_SIZE - 1);
+					put(keys[i], results[i], moves[i], scores[i]);
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+				this.size = 0;
+			}
+		}
+
+	}
+
+	/** The mapped segments of the file, the header first. */
+	private final MappedByteBuffer header;
+
+	private final MappedByteBuffer[] segments;
+
+	/** The number of entries, a power of two. */
+	private final long capacity;
+
+	/** The number of positions in the archive. */
+	private long size;
+
+	/** Lets reads go ahead without locking while nothing is written. */
+	private final StampedLock lock = new StampedLock();
+
+	private PositionArchive(RandomAccessFile raf, long capacity)
+			throws IOException {
+
+		FileChannel ch = raf.getChannel();
+		this.capacity = capacity;
+		this.header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		int count = (int) ((capacity + SEGMENT_SLOTS - 1) / SEGMENT_SLOTS);
+		this.segments = new MappedByteBuffer[count];
+		for (int i = 0; i < count; i ++) {
+			long slots = Math.min(SEGMENT_SLOTS, capacity - (long) i * SEGMENT_SLOTS);
+			this.segments[i] = ch.map(FileChannel.MapMode.READ_WRITE,
+					HEADER_SIZE + (long) i * SEGMENT_SLOTS * ENTRY_SIZE,
+					slots * ENTRY_SIZE);
+		}
+		this.size = header.getLong(16);
+	}
+
+	/**
+	 * Creates an empty archive that can hold at least the given number of
+	 * positions, replacing the file if there is one.
+	 */
+	public static PositionArchive create(File file, long entries)
+			throws IOException {
+
+		long capacity = 16;
+		while (capacity * 3 / 4 < entries) {
+			capacity <<= 1;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			raf.setLength(HEADER_SIZE + capacity * ENTRY_SIZE);
+			PositionArchive archive = new PositionArchive(raf, capacity);
+			archive.header.putInt(0, MAGIC);
+			archive.header.putInt(4, VERSION);
+			archive.header.putLong(8, capacity);
+			archive.header.putLong(16, 0);
+			return archive;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Opens an archive that was created before.
+	 *
+	 * @throws IOException if the file isn't an archive.
+	 */
+	public static PositionArchive open(File file) throws IOException {
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC
+					|| raf.readInt() != VERSION) {
+				throw new IOException("Not a position archive: " + file);
+			}
+			long capacity = raf.readLong();
+			if (Long.bitCount(capacity) != 1 || raf.length()
+					< HEADER_SIZE + capacity * ENTRY_SIZE) {
+				throw new IOException("Damaged position archive: " + file);
+			}
+			return new PositionArchive(raf, capacity);
+		} finally {
+			raf.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 3) {
+			System.out.println("Usage: java database.PositionArchive <file>"
+					+ " create <entries> | import [-threads n] <pdn files...>"
+					+ " | probe <game state>");
+			return;
+		}
+		File file = new File(args[0]);
+		if (args[1].equals("create")) {
+			create(file, Long.parseLong(args[2])).close();
+		} else if (args[1].equals("probe")) {
+			PositionArchive archive = open(file);
+			Entry e = archive.get(new Game(args[2]).getKey());
+			System.out.println(e == null? "not found" : e.toString());
+			archive.close();
+		} else if (args[1].equals("import")) {
+			int threads = Runtime.getRuntime().availableProcessors();
+			int first = 2;
+			if (args[2].equals("-threads") && args.length > 3) {
+				threads = Integer.parseInt(args[3]);
+				first = 4;
+			}
+			PositionArchive archive = open(file);
+			PdnImporter importer = new PdnImporter(threads);
+			for (int i = first; i < args.length; i ++) {
+				System.out.println(archive.importFile(importer,
+						new File(args[i])));
+			}
+			System.out.println(archive.getSize() + " positions");
+			archive.close();
+		}
+	}
+
+	/**
+	 * Adds every game in a PDN file, each thread of the importer using its
+	 * own batch, and returns the counts for the file.
+	 */
+	public PdnImporter.Stats importFile(PdnImporter importer, File file)
+			throws IOException {
+
+		final List<Batch> batches = new ArrayList<>();
+		final ThreadLocal<Batch> local = new ThreadLocal<Batch>() {
+			@Override
+			protected Batch initialValue() {
+				Batch batch = newBatch();
+				synchronized (batches) {
+					batches.add(batch);
+				}
+				return batch;
+			}
+		};
+		PdnImporter.Stats stats = importer.importFile(file,
+				new PdnImporter.Handler() {
+					@Override
+					public void handle(PdnGame game) {
+						local.get().add(game);
+					}
+				});
+		for (Batch batch : batches) {
+			batch.flush();
+		}
+		return stats;
+	}
+
+	public Batch newBatch() {
+		return new Batch();
+	}
+
+	// Adds one game reaching a position, see Batch.add(long, int, int, int).
+	public void add(long key, int result, int move, int score) {
+		long stamp = lock.writeLock();
+		try {
+			put(key, result, move, score);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// Gets what is known about the game's position, or null if nothing.
+	public Entry get(Game game) {
+		return (game == null)? null : get(game.getKey());
+	}
+
+	/** Gets what is known about a position, or null if it isn't stored. */
+	public Entry get(long key) {
+
+		long stamp = lock.tryOptimisticRead();
+		Entry e = find(key);
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				e = find(key);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		return e;
+	}
+
+	// Looks for the entry of a key, which may be torn if a write overlaps.
+	private Entry find(long key) {
+
+		key = fixKey(key);
+		long mask = capacity - 1;
+		for (long slot = getSlot(key), n = 0; n < capacity;
+				slot = (slot + 1) & mask, n ++) {
+			MappedByteBuffer seg = segments[(int) (slot / SEGMENT_SLOTS)];
+			int offset = (int) (slot % SEGMENT_SLOTS) * ENTRY_SIZE;
+			long k = seg.getLong(offset);
+			if (k == 0) {
+				return null;
+			} else if (k == key) {
+				return new Entry(k, seg.getInt(offset + 8),
+						seg.getInt(offset + 12), seg.getInt(offset + 16),
+						seg.getInt(offset + 20), seg.getInt(offset + 24));
+			}
+		}
+
+		return null;
+	}
+
+	// Adds a game to the entry of a key, holding the write lock.
+	private void put(long key, int result, int move, int score) {
+
+		key = fixKey(key);
+		long mask = capacity - 1;
+		long slot = getSlot(key);
+		while (true) {
+			MappedByteBuffer seg = segments[(int) (slot / SEGMENT_SLOTS)];
+			int offset = (int) (slot % SEGMENT_SLOTS) * ENTRY_SIZE;
+			long k = seg.getLong(offset);
+			if (k == 0) {
+				if (size >= capacity / 4 * 3) {
+					throw new IllegalStateException("The archive is full");
+				}
+				seg.putInt(offset + 20, PackedMove.NONE);
+				seg.putInt(offset + 24, Integer.MIN_VALUE);
+				seg.putLong(offset, key);
+				this.size ++;
+				this.header.putLong(16, size);
+			} else if (k != key) {
+				slot = (slot + 1) & mask;
+				continue;
+			}
+			seg.putInt(offset + 8, seg.getInt(offset + 8) + 1);
+			if (result == WIN) {
+				seg.putInt(offset + 12, seg.getInt(offset + 12) + 1);
+			} else if (result == DRAW) {
+				seg.putInt(offset + 16, seg.getInt(offset + 16) + 1);
+			}
+			if (move != PackedMove.NONE && score > seg.getInt(offset + 24)) {
+				seg.putInt(offset + 20, move);
+				seg.putInt(offset + 24, score);
+			}
+			return;
+		}
+	}
+
+	// Gets the first slot to look in for a key.
+	private long getSlot(long key) {
+		return (key ^ (key >>> 29)) & (capacity - 1);
+	}
+
+	// Replaces a key of 0, which marks an empty entry.
+	private static long fixKey(long key) {
+		return (key == 0)? ZERO_KEY : key;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	// Gets the number of positions in the archive.
+	public long getSize() {
+		long stamp = lock.readLock();
+		try {
+			return size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	// Writes any changes to the file.
+	public void flush() {
+		long stamp = lock.readLock();
+		try {
+			header.force();
+			for (MappedByteBuffer seg : segments) {
+				seg.force();
+			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Writes any changes to the file. The file stays mapped until the archive
+	 * is garbage collected, as Java can't unmap it sooner.
+	 */
+	public void close() {
+		flush();
+	}
+
+}
@@ -0,0 +1,111 @@
+package engine;
+
+import checkersRules.BitBoard;
+import checkersRules.Board;
+import checkersRules.Game;
+import players.ComputerPlayer;
+import players.Weights;
+
+/**
+ * The {@code Evaluator} class scores a position for the alpha-beta search
+ * using the same weights as {@link ComputerPlayer}. A checker is worth the
+ * weight of a skip, a king is worth that times the king factor, and every
+ * checker adds the weight of being safe or unsafe.
+ * <p>
+ * The weights are those from {@link Weights#getDefault()}, unless others
+ * are given.
+ */
+
+public class Evaluator {
+
+	/** The weights used when none are given. */
+	private static final double[] DEFAULT = Weights.getDefault().toArray();
+
+	// Scores the board from the point of view of the player to move.
+	public static int evaluate(Board board, boolean isP1Turn) {
+
+		if (board == null) {
+			return 0;
+		}
+
+		return evaluate(board.getBlack(), board.getWhite(), board.getKings(),
+				isP1Turn);
+	}
+
+	/**
+	 * Scores the game from the point of view of the player to move, using
+	 * the counts the game keeps rather than looking at the board.
+	 */
+	public static int evaluate(Game game) {
+
+		if (game == null) {
+			return 0;
+		}
+
+		return evaluate(game, DEFAULT);
+	}
+
+	// Scores the game with the given weights, see evaluate(Game).
+	public static int evaluate(Game game, Weights weights) {
+		return (game == null)? 0 : evaluate(game, weights.toArray());
+	}
+
+	private static int evaluate(Game game, double[] w) {
+		int score = evaluate(game, true, w) - evaluate(game, false, w);
+		return game.isP1Turn()? score : -score;
+	}
+
+	// Scores the pieces of one colour from the counts the game keeps.
+	private static int evaluate(Game game, boolean isBlack, double[] w) {
+
+		int pieces = game.getPieceCount(isBlack);
+		int threatened = game.getThreatenedCount(isBlack);
+		int threatenedKings = game.getThreatenedKingCount(isBlack);
+		return (int) Math.round(score(w, pieces, game.getKingCount(isBlack),
+				pieces - threatened, threatened - threatenedKings,
+				threatenedKings));
+	}
+
+	/**
+	 * Scores a position given as masks of the black pieces, white pieces and
+	 * kings from the point of view of the player to move.
+	 */
+	public static int evaluate(int black, int white, int kings,
+			boolean isP1Turn) {
+
+		int empty = ~(black | white);
+		int score = evaluate(black, white, kings, empty, true)
+				- evaluate(white, black, kings, empty, false);
+		return isP1Turn? score : -score;
+	}
+
+	// Scores the pieces of one colour.
+	private static int evaluate(int own, int opp, int allKings, int empty,
+			boolean isBlack) {
+
+		int kings = own & allKings;
+		int threatened = BitBoard.getThreatened(own, opp, opp & allKings,
+				empty, isBlack);
+		return (int) Math.round(score(DEFAULT, Integer.bitCount(own),
+				Integer.bitCount(kings), Integer.bitCount(own & ~threatened),
+				Integer.bitCount(threatened & ~kings),
+				Integer.bitCount(threatened & kings)));
+	}
+
+	/**
+	 * Scores the pieces of one colour from how many there are of each kind,
+	 * with the weights given by their {@link Weights} index.
+	 */
+	public static double score(double[] w, int pieces, int kings, int safe,
+			int threatenedCheckers, int threatenedKings) {
+
+		return pieces * w[Weights.WEIGHT_SKIP]
+				+ kings * w[Weights.WEIGHT_SKIP]
+						* (w[Weights.KING_FACTOR] - 1)
+				+ safe * w[Weights.SAFE]
+				+ threatenedCheckers * w[Weights.UNSAFE]
+				+ threatenedKings * w[Weights.UNSAFE]
+						* w[Weights.KING_FACTOR];
+	}
+
+}
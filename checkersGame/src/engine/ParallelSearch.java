@@ -0,0 +1,242 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import checkersRules.Game;
+import checkersRules.PackedMove;
+
+/**
+ * The {@code ParallelSearch} class searches one position on several threads
+ * at once (a "Lazy SMP" search). Every thread runs its own {@link Search} on
+ * its own copy of the game, and they share one {@link TranspositionTable}.
+ * The helper threads don't return moves, they fill the table with results
+ * that the main search then finds instead of searching those positions
+ * itself. Half of the helpers start one ply deeper so that the threads
+ * don't all search the same positions in the same order.
+ * <p>
+ * The main search runs on the calling thread. Once it reaches its depth limit
+ * or time limit, the helpers are stopped and the move of whichever search
+ * completed the deepest iteration is returned.
+ */
+
+public class ParallelSearch {
+
+	/** The table shared by every thread. */
+	private final TranspositionTable table;
+
+	/** The search run on the calling thread. */
+	private final Search main;
+
+	/** The searches run by the helper threads. */
+	private final List<Search> helpers;
+
+	/** The threads that run the helper searches, or null if there are none. */
+	private ExecutorService executor;
+
+	/** The number of positions searched by every thread in the last search. */
+	private long nodes;
+
+	/** The number of nanoseconds the last search took. */
+	private long time;
+
+	public ParallelSearch(int maxDepth, int threads) {
+		this(maxDepth, threads, new TranspositionTable());
+	}
+
+	public ParallelSearch(int maxDepth, int threads,
+			TranspositionTable table) {
+		this.table = (table == null)? new TranspositionTable() : table;
+		this.main = new Search(maxDepth, this.table);
+		this.helpers = new ArrayList<>();
+		setThreads(threads);
+	}
+
+	/**
+	 * Searches the game on every thread and returns the best
+	 * {@link PackedMove}, or {@link PackedMove#NONE} if there are no moves.
+	 * The game is not changed. A search that was stopped returns at once
+	 * until {@link #reset()} is called.
+	 */
+	public int search(Game game) {
+
+		this.nodes = 0;
+		if (game == null) {
+			return PackedMove.NONE;
+		}
+
+		// Start the helpers on their own copies of the game
+		long start = System.nanoTime();
+		table.newSearch();
+		List<Future<?>> running = new ArrayList<>();
+		for (final Search helper : helpers) {
+			final Game copy = game.copy();
+			helper.reset();
+			helper.setMaxDepth(main.getMaxDepth());
+			running.add(executor.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					helper.iterate(copy);
+				}
+			}));
+		}
+
+		// Search on this thread, then stop the helpers
+		int best = main.iterate(game.copy());
+		Search deepest = main;
+		for (int i = 0; i < helpers.size(); i ++) {
+			helpers.get(i).stop();
+		}
+		for (int i = 0; i < running.size(); i ++) {
+			Search helper = helpers.get(i);
+			try {
+				running.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				continue;
+			}
+			int[] pv = helper.getPv();
+			if (helper.getDepth() > deepest.getDepth() && pv.length > 0) {
+				deepest = helper;
+				best = pv[0];
+			}
+		}
+
+		// Add up the work done by every thread
+		this.time = System.nanoTime() - start;
+		this.nodes = main.getNodes();
+		for (Search helper : helpers) {
+			this.nodes += helper.getNodes();
+		}
+
+		return best;
+	}
+
+	/** Stops the search from another thread. */
+	public void stop() {
+		main.stop();
+		for (int i = 0; i < helpers.size(); i ++) {
+			helpers.get(i).stop();
+		}
+	}
+
+	// Clears the stop flag, must be called before reusing a stopped search.
+	public void reset() {
+		main.reset();
+	}
+
+	// Sets the number of threads to search with, including the calling one.
+	public void setThreads(int threads) {
+
+		threads = Math.max(1, threads);
+		if (threads == getThreads()) {
+			return;
+		}
+		shutdown();
+		this.helpers.clear();
+		for (int i = 1; i < threads; i ++) {
+			Search helper = new Search(main.getMaxDepth(), table);
+			helper.setStartDepth(1 + i % 2);
+			helper.setTablebase(main.getTablebase());
+			helpers.add(helper);
+		}
+		if (threads > 1) {
+			this.executor = Executors.newFixedThreadPool(threads - 1,
+					new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "search-helper");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+	public int getThreads() {
+		return 1 + helpers.size();
+	}
+
+	// Stops the helper threads, they are started again by setThreads.
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
+	public Search getMain() {
+		return main;
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	public Tablebase getTablebase() {
+		return main.getTablebase();
+	}
+
+	// Sets the endgame tablebase used by every thread, or null for none.
+	public void setTablebase(Tablebase tablebase) {
+		main.setTablebase(tablebase);
+		for (Search helper : helpers) {
+			helper.setTablebase(tablebase);
+		}
+	}
+
+	public int getMaxDepth() {
+		return main.getMaxDepth();
+	}
+
+	public void setMaxDepth(int maxDepth) {
+		main.setMaxDepth(maxDepth);
+	}
+
+	public long getTimeLimit() {
+		return main.getTimeLimit();
+	}
+
+	// Sets the number of milliseconds each search may take, or 0 for none.
+	public void setTimeLimit(long timeLimit) {
+		main.setTimeLimit(timeLimit);
+	}
+
+	public long getSoftTimeLimit() {
+		return main.getSoftTimeLimit();
+	}
+
+	/**
+	 * Sets the number of milliseconds after which no iteration is started,
+	 * or 0 for none. The helpers are stopped when the main search is.
+	 */
+	public void setSoftTimeLimit(long softTimeLimit) {
+		main.setSoftTimeLimit(softTimeLimit);
+	}
+
+	// Gets the number of positions searched by all threads.
+	public long getNodes() {
+		return nodes;
+	}
+
+	// Gets the number of positions searched per second by all threads.
+	public long getNodesPerSecond() {
+		return time <= 0? 0 : nodes * 1000000000L / time;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[threads=" + getThreads()
+				+ ", nodes=" + nodes + ", nps=" + getNodesPerSecond()
+				+ ", main=" + main + "]";
+	}
+
+}
@@ -0,0 +1,445 @@
+package engine;
+
+import checkersRules.BitBoard;
+import checkersRules.Game;
+import checkersRules.MoveList;
+import checkersRules.PackedMove;
+
+/**
+ * The {@code Search} class finds the best move in a position with a negamax
+ * alpha-beta search. It deepens one ply at a time and tries the principal
+ * variation of the previous iteration first, which makes the cut-offs in the
+ * next iteration far more likely.
+ * <p>
+ * Every position searched is stored in a {@link TranspositionTable} keyed by
+ * {@link Game#getKey()}, which is used to skip positions reached again and
+ * to order the moves of positions that have to be searched again.
+ * <p>
+ * A multiple skip is made of several moves by the same player, so the score
+ * is only negated when the turn changes, and the remaining depth is only
+ * reduced once the turn is over. Positions where a skip is available are
+ * never scored, the skips are searched until the position is quiet.
+ * <p>
+ * A search can have a soft and a hard time limit (see {@link TimeManager}).
+ * No iteration is started after the soft limit, and the search stops at the
+ * hard limit. A search that is stopped returns the best move of the last
+ * iteration, or a better move at the root that the unfinished iteration had
+ * already searched fully.
+ */
+
+public class Search {
+
+	/** The score of a won position, less the number of plies to the win. */
+	public static final int WIN = 1000000;
+
+	/** Scores above this value are wins (and below the negative, losses). */
+	public static final int WIN_BOUND = WIN - 1000;
+
+	/**
+	 * The score of a position the {@link Tablebase} says is won, less the
+	 * number of turns to the win. It is below {@link #WIN_BOUND} since the
+	 * win is not a line the search has seen.
+	 */
+	public static final int TABLEBASE_WIN = WIN_BOUND - 1;
+
+	/** The deepest ply the search will reach, including skip extensions. */
+	public static final int MAX_PLY = 128;
+
+	/** The default maximum depth of the search. */
+	public static final int DEFAULT_DEPTH = 8;
+
+	/** The table of positions that have already been searched. */
+	private final TranspositionTable table;
+
+	/** The endgame tablebase to look positions up in, or null. */
+	private Tablebase tablebase;
+
+	/** The maximum depth to search to. */
+	private int maxDepth;
+
+	/** The number of positions visited by the last search. */
+	private long nodes;
+
+	/** The depth of the last completed iteration. */
+	private int depth;
+
+	/** The score of the best move, for the player to move. */
+	private int score;
+
+	/** The principal variation found at each ply. */
+	private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+
+	/** The length of the principal variation at each ply. */
+	private final int[] pvLength = new int[MAX_PLY];
+
+	/** The principal variation of the last completed iteration. */
+	private final int[] lastPv = new int[MAX_PLY];
+
+	/** The length of the last principal variation. */
+	private int lastPvLength;
+
+	/** Set while the search is still on the last principal variation. */
+	private boolean followPv;
+
+	/** The depth the iterative deepening starts at. */
+	private int startDepth = 1;
+
+	/** The number of milliseconds to search for, or 0 for no limit. */
+	private long timeLimit;
+
+	/** The {@link System#nanoTime()} to stop searching at, or 0. */
+	private long deadline;
+
+	/**
+	 * The number of milliseconds after which no iteration is started, or 0
+	 * for no limit.
+	 */
+	private long softTimeLimit;
+
+	/** The {@link System#nanoTime()} to start no more iterations at, or 0. */
+	private long softDeadline;
+
+	/** The best move at the root found so far in the current iteration. */
+	private int rootMove;
+
+	/** Set to abort the search, the current iteration is discarded. */
+	private volatile boolean stopped;
+
+	/**
+	 * Set once the hard time limit has passed. Unlike a stop, it only lasts
+	 * for one search.
+	 */
+	private boolean timeUp;
+
+	public Search() {
+		this(DEFAULT_DEPTH);
+	}
+
+	public Search(int maxDepth) {
+		this(maxDepth, new TranspositionTable());
+	}
+
+	public Search(int maxDepth, TranspositionTable table) {
+		this.table = (table == null)? new TranspositionTable() : table;
+		setMaxDepth(maxDepth);
+	}
+
+	/**
+	 * Searches the game and returns the best {@link PackedMove} for the
+	 * player to move, or {@link PackedMove#NONE} if there are no moves. The
+	 * game is not changed.
+	 */
+	public int search(Game game) {
+		table.newSearch();
+		return iterate(game);
+	}
+
+	/**
+	 * Runs the iterative deepening without starting a new table generation,
+	 * so that several searches can share the table during one search.
+	 */
+	int iterate(Game game) {
+
+		this.nodes = 0;
+		this.depth = 0;
+		this.score = 0;
+		this.lastPvLength = 0;
+		this.timeUp = false;
+		long start = System.nanoTime();
+		this.deadline = (timeLimit > 0)? start + timeLimit * 1000000L : 0;
+		this.softDeadline = (softTimeLimit > 0)?
+				start + softTimeLimit * 1000000L : 0;
+		if (game == null) {
+			return PackedMove.NONE;
+		}
+
+		// Moves are made and unmade on one copy of the game
+		game = game.copy();
+		int best = PackedMove.NONE;
+		for (int d = Math.min(startDepth, maxDepth); d <= maxDepth; d ++) {
+			this.followPv = true;
+			this.rootMove = PackedMove.NONE;
+			int s = negamax(game, d, 0, -WIN, WIN);
+			if (stopped || timeUp) {
+
+				// A move that beat the last best one was searched fully
+				if (rootMove != PackedMove.NONE) {
+					best = rootMove;
+				}
+				break;
+			}
+			this.score = s;
+			this.depth = d;
+			this.lastPvLength = pvLength[0];
+			System.arraycopy(pv[0], 0, lastPv, 0, lastPvLength);
+			if (lastPvLength > 0) {
+				best = lastPv[0];
+			}
+
+			// Nothing deeper will change a forced win or loss, and there
+			// isn't time for another iteration after the soft limit
+			if (Math.abs(s) > WIN_BOUND || (softDeadline != 0
+					&& System.nanoTime() >= softDeadline)) {
+				break;
+			}
+		}
+
+		return best;
+	}
+
+	private int negamax(Game game, int depth, int ply,
+			int alpha, int beta) {
+
+		this.nodes ++;
+		this.pvLength[ply] = 0;
+		if ((nodes & 1023) == 0) {
+			checkTime();
+		}
+		if (stopped || timeUp) {
+			return 0;
+		}
+		int black = game.getBlack(), white = game.getWhite();
+		int kings = game.getKings();
+		boolean isP1Turn = game.isP1Turn();
+		int own = isP1Turn? black : white, opp = isP1Turn? white : black;
+
+		// Use the result of an earlier search of this position
+		long key = game.getKey();
+		long entry = table.probe(key);
+		int ttMove = PackedMove.NONE;
+		if (entry != 0) {
+			ttMove = TranspositionTable.getMove(entry);
+			int s = fromTable(TranspositionTable.getScore(entry), ply);
+			int bound = TranspositionTable.getBound(entry);
+			if (ply > 0 && TranspositionTable.getDepth(entry) >= depth
+					&& (bound == TranspositionTable.EXACT
+					|| (bound == TranspositionTable.LOWER && s >= beta)
+					|| (bound == TranspositionTable.UPPER && s <= alpha))) {
+				return s;
+			}
+		}
+
+		// Use the exact result of an endgame
+		if (tablebase != null && ply > 0 && game.getSkipIndex() < 0) {
+			int result = tablebase.probe(black, white, kings, isP1Turn);
+			if (result != Tablebase.UNKNOWN) {
+				int d = Tablebase.getDistance(result);
+				return result == 0? 0 : result > 0? TABLEBASE_WIN - d
+						: -TABLEBASE_WIN + d;
+			}
+		}
+
+		// Only score the position once there are no skips to make
+		if ((depth <= 0 && BitBoard.getJumpers(own, opp, own & kings,
+				~(own | opp), isP1Turn) == 0) || ply >= MAX_PLY - 1) {
+			return Evaluator.evaluate(game);
+		}
+
+		MoveList moves = MoveList.get();
+		int base = moves.size();
+		int n = BitBoard.generate(black, white, kings, isP1Turn,
+				game.getSkipIndex(), moves);
+		if (n == 0) {
+			return -WIN + ply;
+		}
+		orderMoves(moves, base, n, ply, ttMove);
+
+		int startAlpha = alpha, best = PackedMove.NONE;
+		for (int i = 0; i < n; i ++) {
+			int m = moves.get(base + i);
+			int undo = game.makeMove(m);
+
+			// Keep the same score when the player is still making skips
+			int s;
+			if (game.isP1Turn() == isP1Turn) {
+				s = negamax(game, depth, ply + 1, alpha, beta);
+			} else {
+				s = -negamax(game, depth - 1, ply + 1, -beta, -alpha);
+			}
+			game.unmakeMove(undo);
+
+			if (stopped || timeUp) {
+				moves.setSize(base);
+				return 0;
+			}
+			if (s > alpha) {
+				alpha = s;
+				best = m;
+				updatePv(m, ply);
+				if (ply == 0) {
+					this.rootMove = m;
+				}
+			}
+			if (alpha >= beta) {
+				break;
+			}
+		}
+		moves.setSize(base);
+
+		int bound = (alpha >= beta)? TranspositionTable.LOWER
+				: (alpha > startAlpha)? TranspositionTable.EXACT
+				: TranspositionTable.UPPER;
+		table.store(key, best, toTable(alpha, ply), Math.max(0, depth), bound);
+
+		return alpha;
+	}
+
+	// Stops the search once the deadline has passed and a move is known.
+	private void checkTime() {
+		if (deadline != 0 && depth > 0 && System.nanoTime() >= deadline) {
+			this.timeUp = true;
+		}
+	}
+
+	/**
+	 * Stops the search from another thread. The search returns the best move
+	 * of the last completed iteration.
+	 */
+	public void stop() {
+		this.stopped = true;
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	// Clears the stop flag, must be called before reusing a stopped search.
+	public void reset() {
+		this.stopped = false;
+	}
+
+	// Stores wins relative to the position rather than the root.
+	private static int toTable(int score, int ply) {
+		return score > WIN_BOUND? score + ply
+				: score < -WIN_BOUND? score - ply : score;
+	}
+
+	// Converts a stored win back to be relative to the root.
+	private static int fromTable(int score, int ply) {
+		return score > WIN_BOUND? score - ply
+				: score < -WIN_BOUND? score + ply : score;
+	}
+
+	/**
+	 * Puts the principal variation move first (or the move from the table if
+	 * the search has left the principal variation), then promotions.
+	 */
+	private void orderMoves(MoveList moves, int base, int n, int ply,
+			int ttMove) {
+
+		int first = ttMove;
+		if (followPv) {
+			this.followPv = ply < lastPvLength;
+			first = followPv? lastPv[ply] : ttMove;
+		}
+		int next = base;
+		for (int i = base; i < base + n && first != PackedMove.NONE; i ++) {
+			if (moves.get(i) == first) {
+				moves.swap(next ++, i);
+				break;
+			}
+		}
+		if (followPv && next == base) {
+			this.followPv = false;
+		}
+		for (int i = next; i < base + n; i ++) {
+			if (PackedMove.isPromotion(moves.get(i))) {
+				moves.swap(next ++, i);
+			}
+		}
+	}
+
+	// Makes the move followed by the child's variation the best line.
+	private void updatePv(int move, int ply) {
+		int childLength = (ply + 1 < MAX_PLY)? pvLength[ply + 1] : 0;
+		this.pv[ply][0] = move;
+		if (childLength > 0) {
+			System.arraycopy(pv[ply + 1], 0, pv[ply], 1,
+					Math.min(childLength, MAX_PLY - 1));
+		}
+		this.pvLength[ply] = 1 + childLength;
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	public Tablebase getTablebase() {
+		return tablebase;
+	}
+
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_PLY / 2));
+	}
+
+	public int getStartDepth() {
+		return startDepth;
+	}
+
+	// Sets the depth to start deepening from (helper threads start deeper).
+	public void setStartDepth(int startDepth) {
+		this.startDepth = Math.max(1, startDepth);
+	}
+
+	public long getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * Sets the number of milliseconds each search may take, or 0 for no
+	 * limit. The first iteration is always completed.
+	 */
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = Math.max(0, timeLimit);
+	}
+
+	public long getSoftTimeLimit() {
+		return softTimeLimit;
+	}
+
+	/**
+	 * Sets the number of milliseconds after which each search starts no
+	 * more iterations, or 0 for no limit.
+	 */
+	public void setSoftTimeLimit(long softTimeLimit) {
+		this.softTimeLimit = Math.max(0, softTimeLimit);
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	// Gets the principal variation of the last completed iteration.
+	public int[] getPv() {
+		int[] line = new int[lastPvLength];
+		System.arraycopy(lastPv, 0, line, 0, lastPvLength);
+		return line;
+	}
+
+	@Override
+	public String toString() {
+		String line = "";
+		for (int i = 0; i < lastPvLength; i ++) {
+			line += (i == 0? "" : " ") + PackedMove.toString(lastPv[i]);
+		}
+		return getClass().getSimpleName() + "[depth=" + depth + ", nodes="
+				+ nodes + ", score=" + score + ", pv=" + line + "]";
+	}
+
+}
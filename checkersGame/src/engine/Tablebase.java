@@ -0,0 +1,209 @@
+package engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import checkersRules.Board;
+import checkersRules.Game;
+
+/**
+ * The {@code Tablebase} class looks up the result of endgame positions in the
+ * files written by {@link TablebaseGenerator}. The files are memory mapped
+ * rather than read onto the heap, and only the blocks that are used are
+ * decompressed, with the most recently used blocks kept in a small cache.
+ * <p>
+ * A result is a byte for the player to move: 0 is a draw, {@code d > 0} is a
+ * win in {@code d} turns, and {@code -(d + 1)} is a loss in {@code d} turns
+ * (-1 means the player can't move). Only positions at the start of a turn are
+ * stored, so a game in the middle of a multiple skip is never found.
+ */
+
+public class Tablebase {
+
+	/** The value returned when a position isn't in the tablebase. */
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	/** The default number of decompressed blocks to keep. */
+	public static final int DEFAULT_CACHE_BLOCKS = 64;
+
+	/** The mapped files, by material signature. */
+	private final Map<Integer, MappedByteBuffer> files = new HashMap<>();
+
+	/** The most recently used blocks, keyed by signature and block. */
+	private final Map<Long, byte[]> cache;
+
+	/** The most pieces of any table that was found. */
+	private int maxPieces;
+
+	/** The number of probes that were answered. */
+	private final AtomicLong hits = new AtomicLong();
+
+	public Tablebase(File dir) throws IOException {
+		this(dir, DEFAULT_CACHE_BLOCKS);
+	}
+
+	// Maps every table file in the directory.
+	public Tablebase(File dir, final int cacheBlocks) throws IOException {
+
+		this.cache = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, byte[]> e) {
+				return size() > cacheBlocks;
+			}
+		};
+
+		File[] list = (dir == null)? null : dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (!f.getName().endsWith(".ctb")) {
+				continue;
+			}
+			RandomAccessFile raf = new RandomAccessFile(f, "r");
+			try {
+				FileChannel ch = raf.getChannel();
+				MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY,
+						0, ch.size());
+				if (map.getInt(0) != TablebaseGenerator.MAGIC) {
+					continue;
+				}
+				int sig = map.getInt(4);
+				files.put(sig, map);
+				this.maxPieces = Math.max(maxPieces,
+						TablebaseIndex.getPieces(sig));
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+	/**
+	 * Gets the result of the game for the player to move, or
+	 * {@link #UNKNOWN} if it isn't in the tablebase.
+	 */
+	public int probe(Game game) {
+		if (game == null || Board.isValidIndex(game.getSkipIndex())) {
+			return UNKNOWN;
+		}
+		Board b = game.getBoard();
+		return probe(b.getBlack(), b.getWhite(), b.getKings(),
+				game.isP1Turn());
+	}
+
+	/**
+	 * Gets the result of a position at the start of a turn for the player to
+	 * move, or {@link #UNKNOWN} if it isn't in the tablebase.
+	 */
+	public int probe(int black, int white, int kings, boolean isP1Turn) {
+
+		if (Integer.bitCount(black | white) > maxPieces) {
+			return UNKNOWN;
+		} else if ((isP1Turn? black : white) == 0) {
+			return -1;
+		} else if ((isP1Turn? white : black) == 0) {
+			return UNKNOWN;
+		}
+		int sig = TablebaseIndex.signature(black, white, kings);
+		MappedByteBuffer map = files.get(sig);
+		long index = TablebaseIndex.index(black, white, kings, isP1Turn);
+		if (map == null || index < 0) {
+			return UNKNOWN;
+		}
+
+		int blockSize = map.getInt(12);
+		int block = (int) (index / blockSize);
+		byte[] data = getBlock(sig, map, block);
+		if (data == null) {
+			return UNKNOWN;
+		}
+		hits.incrementAndGet();
+		return data[(int) (index % blockSize)];
+	}
+
+	// Gets a decompressed block from the cache or the mapped file.
+	private byte[] getBlock(int sig, MappedByteBuffer map, int block) {
+
+		Long key = ((long) sig << 32) | block;
+		synchronized (cache) {
+			byte[] data = cache.get(key);
+			if (data != null) {
+				return data;
+			}
+		}
+
+		// Decompress outside the lock, another thread may do the same
+		ByteBuffer src = map.duplicate();
+		int blocks = src.getInt(16), blockSize = src.getInt(12);
+		if (block >= blocks) {
+			return null;
+		}
+		long start = src.getLong(20 + 8 * block);
+		long end = src.getLong(20 + 8 * (block + 1));
+		byte[] packed = new byte[(int) (end - start)];
+		src.position((int) start);
+		src.get(packed);
+		byte[] data = new byte[blockSize];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(packed);
+			inflater.inflate(data);
+		} catch (DataFormatException e) {
+			return null;
+		} finally {
+			inflater.end();
+		}
+
+		synchronized (cache) {
+			cache.put(key, data);
+		}
+		return data;
+	}
+
+	// Gets the most pieces a position can have to be in the tablebase.
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	// Gets the number of material signatures that have a table.
+	public int getTables() {
+		return files.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public static boolean isWin(int result) {
+		return result != UNKNOWN && result > 0;
+	}
+
+	public static boolean isLoss(int result) {
+		return result != UNKNOWN && result < 0;
+	}
+
+	// Gets the number of turns to the end of a won or lost game.
+	public static int getDistance(int result) {
+		return result > 0? result : -result - 1;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[tables=" + files.size()
+				+ ", maxPieces=" + maxPieces + ", hits=" + getHits() + "]";
+	}
+
+}
@@ -0,0 +1,468 @@
+package engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+
+import checkersRules.BitBoard;
+import checkersRules.MoveList;
+import checkersRules.PackedMove;
+
+/**
+ * The {@code TablebaseGenerator} class solves every position with up to a
+ * given number of pieces and writes the results as files that
+ * {@link Tablebase} can read.
+ * <p>
+ * The materials are solved from the fewest pieces up, and for the same number
+ * of pieces from the fewest checkers up, so every turn that captures a checker
+ * or crowns a king leads to a material that is already solved. Each material
+ * is then solved backwards from the end of the game, one turn at a time: on
+ * pass {@code d}, a position is won in {@code d} turns if a turn leads to a
+ * position the opponent loses in {@code d - 1}, and lost in {@code d} turns if
+ * every turn leads to a position the opponent wins in at most {@code d - 1}
+ * and one of them in exactly {@code d - 1}. Each pass is split between
+ * threads. Positions that are never solved are draws, since with no draw rule
+ * the game can only go on forever. So are the few that would take more than
+ * {@code MAX_PASSES - 1} turns, so that every result fits in a byte.
+ * <p>
+ * A turn includes every skip of a multiple skip, so positions are only stored
+ * at the start of a turn.
+ * <p>
+ * Usage: {@code java engine.TablebaseGenerator <pieces> <directory> [threads]}
+ */
+
+public class TablebaseGenerator {
+
+	/** The number of results in each compressed block of a file. */
+	public static final int BLOCK_SIZE = 1 << 16;
+
+	/** The first bytes of every table file. */
+	public static final int MAGIC = 0x43544231;
+
+	/** The value of a position that has not been solved yet. */
+	private static final byte UNKNOWN = Byte.MIN_VALUE;
+
+	/** The value of an index that isn't a position. */
+	private static final byte INVALID = Byte.MIN_VALUE + 1;
+
+	/**
+	 * The number of passes, so that the longest loss is stored as -126 and
+	 * can't be mistaken for {@link #INVALID}.
+	 */
+	private static final int MAX_PASSES = 126;
+
+	/** Told as each material is solved and written. */
+	public interface Listener {
+
+		// Called with the material's signature, its positions and the time.
+		void solved(int signature, int positions, long millis);
+
+	}
+
+	/** The solved tables, by signature. */
+	private final Map<Integer, byte[]> solved = new HashMap<>();
+
+	/** The threads that solve each pass. */
+	private final int threads;
+
+	public TablebaseGenerator(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 2) {
+			System.out.println("Usage: java engine.TablebaseGenerator"
+					+ " <pieces> <directory> [threads]");
+			return;
+		}
+		int pieces = Integer.parseInt(args[0]);
+		int threads = args.length > 2? Integer.parseInt(args[2])
+				: Runtime.getRuntime().availableProcessors();
+		new TablebaseGenerator(threads).generate(pieces, new File(args[1]),
+				new Listener() {
+
+			@Override
+			public void solved(int signature, int positions, long millis) {
+				System.out.println(TablebaseIndex.fileName(signature) + ": "
+						+ positions + " positions in " + millis + " ms");
+			}
+		});
+	}
+
+	// Solves and writes every material with up to the given pieces.
+	public void generate(int maxPieces, File dir) throws IOException {
+		generate(maxPieces, dir, null);
+	}
+
+	/**
+	 * Solves and writes every material with up to the given pieces, telling
+	 * the listener, if there is one, of each material as it is written.
+	 */
+	public void generate(int maxPieces, File dir, Listener listener)
+			throws IOException {
+
+		dir.mkdirs();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int sig : getSignatures(maxPieces)) {
+				long start = System.nanoTime();
+				byte[] table = solve(sig, executor);
+				solved.put(sig, table);
+				write(new File(dir, TablebaseIndex.fileName(sig)), sig, table);
+				if (listener != null) {
+					listener.solved(sig, table.length,
+							(System.nanoTime() - start) / 1000000);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Gets the signatures with both colours on the board and up to the
+	 * given pieces, in the order they have to be solved.
+	 */
+	public static List<Integer> getSignatures(int maxPieces) {
+
+		List<Integer> sigs = new ArrayList<>();
+		for (int n = 2; n <= maxPieces; n ++) {
+			for (int bc = 0; bc <= n; bc ++) {
+				for (int bk = 0; bc + bk <= n; bk ++) {
+					for (int wc = 0; bc + bk + wc <= n; wc ++) {
+						int wk = n - bc - bk - wc;
+						if (bc + bk > 0 && wc + wk > 0) {
+							sigs.add(TablebaseIndex.signature(bc, bk, wc, wk));
+						}
+					}
+				}
+			}
+		}
+		Collections.sort(sigs, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer a, Integer b) {
+				int pa = TablebaseIndex.getPieces(a);
+				int pb = TablebaseIndex.getPieces(b);
+				if (pa != pb) {
+					return pa - pb;
+				}
+				return checkers(a) - checkers(b);
+			}
+
+			private int checkers(int sig) {
+				return TablebaseIndex.getBlackCheckers(sig)
+						+ TablebaseIndex.getWhiteCheckers(sig);
+			}
+		});
+
+		return sigs;
+	}
+
+	// Solves one material, given the materials it leads to are solved.
+	private byte[] solve(final int sig, ExecutorService executor) {
+
+		final int size = (int) TablebaseIndex.size(sig);
+		final byte[] table = new byte[size];
+		Arrays.fill(table, UNKNOWN);
+		final byte[] next = new byte[size];
+
+		// Mark the indices that aren't positions
+		runPass(executor, size, new Pass() {
+
+			@Override
+			public boolean run(int from, int to, int d, MoveList moves,
+					int[] pos, Turns turns) {
+				for (int i = from; i < to; i ++) {
+					if (!TablebaseIndex.toPosition(sig, i, pos)) {
+						table[i] = INVALID;
+					}
+				}
+				return false;
+			}
+		}, 0);
+
+		// Solve one turn further from the end of the game on each pass
+		int maxDistance = getMaxDistance(sig);
+		for (int d = 0; d < MAX_PASSES; d ++) {
+			System.arraycopy(table, 0, next, 0, size);
+			boolean changed = runPass(executor, size, new Pass() {
+
+				@Override
+				public boolean run(int from, int to, int d, MoveList moves,
+						int[] pos, Turns turns) {
+					boolean changed = false;
+					for (int i = from; i < to; i ++) {
+						if (table[i] != UNKNOWN) {
+							continue;
+						}
+						TablebaseIndex.toPosition(sig, i, pos);
+						byte v = solve(table, sig, pos, d, moves, turns);
+						if (v != UNKNOWN) {
+							next[i] = v;
+							changed = true;
+						}
+					}
+					return changed;
+				}
+			}, d);
+			System.arraycopy(next, 0, table, 0, size);
+
+			// Stop once no position can change anymore
+			if (!changed && d > maxDistance) {
+				break;
+			}
+		}
+
+		// The rest are draws, and invalid indices are stored as draws
+		for (int i = 0; i < size; i ++) {
+			if (table[i] == UNKNOWN || table[i] == INVALID) {
+				table[i] = 0;
+			}
+		}
+
+		return table;
+	}
+
+	/**
+	 * Gets the result of a position on pass {@code d}, or {@link #UNKNOWN} if
+	 * it is not yet known to be won or lost in {@code d} turns. The results
+	 * are stored as in {@link Tablebase#probe(int, int, int, boolean)}.
+	 */
+	private byte solve(byte[] table, int sig, int[] pos, int d,
+			MoveList moves, Turns turns) {
+
+		int base = moves.size();
+		turns.clear();
+		addTurns(pos[0], pos[1], pos[2], pos[3] == 1, -1, moves, turns,
+				table, sig);
+		moves.setSize(base);
+
+		if (turns.count == 0) {
+			return d == 0? (byte) -1 : UNKNOWN;
+		} else if (turns.minLoss == d - 1) {
+			return (byte) d;
+		} else if (!turns.unknown && turns.maxWin == d - 1
+				&& turns.minLoss == Integer.MAX_VALUE
+				&& !turns.draw) {
+			return (byte) -(d + 1);
+		}
+
+		return UNKNOWN;
+	}
+
+	// Looks up every position reachable in one turn.
+	private void addTurns(int black, int white, int kings, boolean isP1Turn,
+			int skipIndex, MoveList moves, Turns turns, byte[] table,
+			int sig) {
+
+		int base = moves.size();
+		int n = BitBoard.generate(black, white, kings, isP1Turn, skipIndex,
+				moves);
+		for (int i = 0; i < n; i ++) {
+			int m = moves.get(base + i);
+			int from = 1 << PackedMove.getStartIndex(m);
+			int to = 1 << PackedMove.getEndIndex(m);
+			int cap = PackedMove.getCaptured(m);
+			int b = black, w = white, k = kings;
+			if (isP1Turn) {
+				b ^= from | to;
+				w &= ~cap;
+			} else {
+				w ^= from | to;
+				b &= ~cap;
+			}
+			if ((k & from) != 0) {
+				k ^= from | to;
+			}
+			k &= ~cap;
+			if (PackedMove.isPromotion(m)) {
+				k |= to;
+			}
+
+			// A multiple skip continues unless the checker was crowned
+			if (cap != 0 && !PackedMove.isPromotion(m)
+					&& BitBoard.getJumpers(isP1Turn? b & to : w & to,
+					isP1Turn? w : b, k & to, ~(b | w), isP1Turn) != 0) {
+				addTurns(b, w, k, isP1Turn, PackedMove.getEndIndex(m), moves,
+						turns, table, sig);
+				continue;
+			}
+
+			turns.count ++;
+			turns.add(lookup(b, w, k, !isP1Turn, table, sig));
+		}
+		moves.setSize(base);
+	}
+
+	/** Gets the stored result of a position, for the player to move. */
+	private byte lookup(int black, int white, int kings, boolean isP1Turn,
+			byte[] table, int sig) {
+
+		if ((isP1Turn? black : white) == 0) {
+			return -1;
+		}
+		int s = TablebaseIndex.signature(black, white, kings);
+		byte[] t = (s == sig)? table : solved.get(s);
+		long index = TablebaseIndex.index(black, white, kings, isP1Turn);
+		return (t == null || index < 0)? UNKNOWN : t[(int) index];
+	}
+
+	/** Gets the longest win or loss in the materials this one leads to. */
+	private int getMaxDistance(int sig) {
+		int max = 0;
+		for (Map.Entry<Integer, byte[]> e : solved.entrySet()) {
+			if (TablebaseIndex.getPieces(e.getKey())
+					<= TablebaseIndex.getPieces(sig)) {
+				for (byte v : e.getValue()) {
+					max = Math.max(max, Math.abs(v));
+				}
+			}
+		}
+		return max;
+	}
+
+	// Splits a pass between the threads, returns true if anything changed.
+	private boolean runPass(ExecutorService executor, final int size,
+			final Pass pass, final int d) {
+
+		final AtomicBoolean changed = new AtomicBoolean();
+		int chunks = threads * 4;
+		final int chunk = (size + chunks - 1) / chunks;
+		List<Future<?>> running = new ArrayList<>();
+		for (int c = 0; c < chunks; c ++) {
+			final int from = c * chunk, to = Math.min(size, from + chunk);
+			if (from >= to) {
+				break;
+			}
+			running.add(executor.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					if (pass.run(from, to, d, MoveList.get(), new int[4],
+							new Turns())) {
+						changed.set(true);
+					}
+				}
+			}));
+		}
+		for (Future<?> f : running) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		return changed.get();
+	}
+
+	/**
+	 * Writes a table as a header, the file offset of each block and the
+	 * blocks compressed with {@link Deflater}.
+	 */
+	private static void write(File file, int sig, byte[] table)
+			throws IOException {
+
+		int blocks = (table.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		List<byte[]> data = new ArrayList<>();
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		byte[] buffer = new byte[BLOCK_SIZE * 2];
+		for (int b = 0; b < blocks; b ++) {
+			deflater.reset();
+			int from = b * BLOCK_SIZE;
+			deflater.setInput(table, from,
+					Math.min(BLOCK_SIZE, table.length - from));
+			deflater.finish();
+			int n = deflater.deflate(buffer);
+			data.add(Arrays.copyOf(buffer, n));
+		}
+		deflater.end();
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(sig);
+			out.writeInt(table.length);
+			out.writeInt(BLOCK_SIZE);
+			out.writeInt(blocks);
+			long offset = 20 + 8L * (blocks + 1);
+			for (byte[] block : data) {
+				out.writeLong(offset);
+				offset += block.length;
+			}
+			out.writeLong(offset);
+			for (byte[] block : data) {
+				out.write(block);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/** A part of a pass that is run on one thread. */
+	private interface Pass {
+		boolean run(int from, int to, int d, MoveList moves, int[] pos,
+				Turns turns);
+	}
+
+	/** A summary of the results of every turn from a position. */
+	private static class Turns {
+
+		int count;
+
+		/** The fewest turns the opponent loses in, or MAX_VALUE. */
+		int minLoss = Integer.MAX_VALUE;
+
+		/** The most turns the opponent wins in. */
+		int maxWin = -1;
+
+		/** Set if the opponent has a position that isn't solved. */
+		boolean unknown;
+
+		/** Set if the opponent has a drawn position. */
+		boolean draw;
+
+		// Clears the summary for the next position.
+		void clear() {
+			this.count = 0;
+			this.minLoss = Integer.MAX_VALUE;
+			this.maxWin = -1;
+			this.unknown = false;
+			this.draw = false;
+		}
+
+		void add(byte v) {
+			if (v == UNKNOWN || v == INVALID) {
+				this.unknown = true;
+			} else if (v < 0) {
+				this.minLoss = Math.min(minLoss, -v - 1);
+			} else if (v > 0) {
+				this.maxWin = Math.max(maxWin, v);
+			} else {
+				this.draw = true;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,203 @@
+package engine;
+
+/**
+ * The {@code TablebaseIndex} class numbers every position with a given
+ * material (the number of black checkers, black kings, white checkers and
+ * white kings) from 0 to {@link #size(int)} - 1, so that an endgame table can
+ * be a plain array of results.
+ * <p>
+ * Black checkers can only be on the 28 tiles before the last row and white
+ * checkers on the 28 tiles after the first row, so each set of checkers is
+ * numbered as a combination of those 28 tiles. The kings are then numbered as
+ * a combination of the tiles that are left. The two sets of checkers are
+ * numbered separately, so a few indices place two checkers on the same tile;
+ * {@link #toPosition(int, long, int[])} rejects them. Every other position
+ * has exactly one index.
+ * <p>
+ * A material signature is packed into an {@code int} as
+ * {@code bc | bk << 4 | wc << 8 | wk << 12}.
+ */
+
+public class TablebaseIndex {
+
+	/** Binomial coefficients up to 32 choose 32. */
+	private static final long[][] CHOOSE = new long[33][33];
+
+	static {
+		for (int n = 0; n <= 32; n ++) {
+			CHOOSE[n][0] = 1;
+			for (int k = 1; k <= n; k ++) {
+				CHOOSE[n][k] = CHOOSE[n - 1][k - 1]
+						+ (k <= n - 1? CHOOSE[n - 1][k] : 0);
+			}
+		}
+	}
+
+	// Creates a signature from the piece counts.
+	public static int signature(int blackCheckers, int blackKings,
+			int whiteCheckers, int whiteKings) {
+		return (blackCheckers & 15) | (blackKings & 15) << 4
+				| (whiteCheckers & 15) << 8 | (whiteKings & 15) << 12;
+	}
+
+	// Gets the signature of a position.
+	public static int signature(int black, int white, int kings) {
+		return signature(Integer.bitCount(black & ~kings),
+				Integer.bitCount(black & kings),
+				Integer.bitCount(white & ~kings),
+				Integer.bitCount(white & kings));
+	}
+
+	public static int getBlackCheckers(int signature) {
+		return signature & 15;
+	}
+
+	public static int getBlackKings(int signature) {
+		return (signature >>> 4) & 15;
+	}
+
+	public static int getWhiteCheckers(int signature) {
+		return (signature >>> 8) & 15;
+	}
+
+	public static int getWhiteKings(int signature) {
+		return (signature >>> 12) & 15;
+	}
+
+	public static int getPieces(int signature) {
+		return getBlackCheckers(signature) + getBlackKings(signature)
+				+ getWhiteCheckers(signature) + getWhiteKings(signature);
+	}
+
+	// Gets the number of indices for the material, including both turns.
+	public static long size(int signature) {
+		int bc = getBlackCheckers(signature), wc = getWhiteCheckers(signature);
+		int bk = getBlackKings(signature), wk = getWhiteKings(signature);
+		if (bc > 28 || wc > 28 || bc + wc + bk + wk > 32) {
+			return 0;
+		}
+		return CHOOSE[28][bc] * CHOOSE[28][wc] * CHOOSE[32 - bc - wc][bk]
+				* CHOOSE[32 - bc - wc - bk][wk] * 2;
+	}
+
+	/**
+	 * Gets the index of a position within the table for its signature, or -1
+	 * if a checker is on its king row.
+	 */
+	public static long index(int black, int white, int kings,
+			boolean isP1Turn) {
+
+		int bc = black & ~kings, wc = white & ~kings;
+		int bk = black & kings, wk = white & kings;
+		if ((bc >>> 28) != 0 || (wc & 15) != 0) {
+			return -1;
+		}
+		int free = ~(bc | wc);
+		int sig = signature(black, white, kings);
+		int nbc = getBlackCheckers(sig), nwc = getWhiteCheckers(sig);
+		int nbk = getBlackKings(sig), nwk = getWhiteKings(sig);
+
+		long index = rank(bc);
+		index = index * CHOOSE[28][nwc] + rank(wc >>> 4);
+		index = index * CHOOSE[32 - nbc - nwc][nbk]
+				+ rank(compress(bk, free));
+		index = index * CHOOSE[32 - nbc - nwc - nbk][nwk]
+				+ rank(compress(wk, free & ~bk));
+
+		return index * 2 + (isP1Turn? 0 : 1);
+	}
+
+	/**
+	 * Gets the position for an index as the black pieces, white pieces,
+	 * kings and 1 if it is player 1's turn (0 otherwise).
+	 *
+	 * @return false if the index places two checkers on the same tile.
+	 */
+	public static boolean toPosition(int signature, long index, int[] out) {
+
+		int nbc = getBlackCheckers(signature), nwc = getWhiteCheckers(signature);
+		int nbk = getBlackKings(signature), nwk = getWhiteKings(signature);
+		boolean isP1Turn = (index & 1) == 0;
+		index >>>= 1;
+
+		long kingsBelow = CHOOSE[32 - nbc - nwc - nbk][nwk];
+		int wkRank = (int) (index % kingsBelow);
+		index /= kingsBelow;
+		long blackKings = CHOOSE[32 - nbc - nwc][nbk];
+		int bkRank = (int) (index % blackKings);
+		index /= blackKings;
+		long whiteCheckers = CHOOSE[28][nwc];
+		int wcRank = (int) (index % whiteCheckers);
+		int bcRank = (int) (index / whiteCheckers);
+
+		int bc = unrank(bcRank, nbc), wc = unrank(wcRank, nwc) << 4;
+		if ((bc & wc) != 0) {
+			return false;
+		}
+		int free = ~(bc | wc);
+		int bk = expand(unrank(bkRank, nbk), free);
+		int wk = expand(unrank(wkRank, nwk), free & ~bk);
+
+		out[0] = bc | bk;
+		out[1] = wc | wk;
+		out[2] = bk | wk;
+		out[3] = isP1Turn? 1 : 0;
+		return true;
+	}
+
+	/** Ranks a set of bits in the combinatorial number system. */
+	private static long rank(int bits) {
+		long rank = 0;
+		for (int i = 1; bits != 0; i ++) {
+			rank += CHOOSE[Integer.numberOfTrailingZeros(bits)][i];
+			bits &= bits - 1;
+		}
+		return rank;
+	}
+
+	/** Gets the set of {@code k} bits with the given rank. */
+	private static int unrank(long rank, int k) {
+		int bits = 0;
+		for (int i = k; i > 0; i --) {
+			int n = i - 1;
+			while (CHOOSE[n + 1][i] <= rank) {
+				n ++;
+			}
+			rank -= CHOOSE[n][i];
+			bits |= 1 << n;
+		}
+		return bits;
+	}
+
+	/** Numbers the bits by their position among the set bits of mask. */
+	private static int compress(int bits, int mask) {
+		int out = 0;
+		while (bits != 0) {
+			int bit = bits & -bits;
+			bits ^= bit;
+			out |= 1 << Integer.bitCount(mask & (bit - 1));
+		}
+		return out;
+	}
+
+	/** Reverses {@link #compress(int, int)}. */
+	private static int expand(int bits, int mask) {
+		int out = 0;
+		for (int i = 0; mask != 0; i ++) {
+			int bit = mask & -mask;
+			mask ^= bit;
+			if ((bits & (1 << i)) != 0) {
+				out |= bit;
+			}
+		}
+		return out;
+	}
+
+	/** Gets the name of the table file for a signature. */
+	public static String fileName(int signature) {
+		return "b" + getBlackCheckers(signature) + "k"
+				+ getBlackKings(signature) + "w" + getWhiteCheckers(signature)
+				+ "k" + getWhiteKings(signature) + ".ctb";
+	}
+
+}
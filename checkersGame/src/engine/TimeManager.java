@@ -0,0 +1,136 @@
+package engine;
+
+/**
+ * The {@code TimeManager} class decides how long a search may think about
+ * each move, from either a fixed budget per move or a game clock.
+ * <p>
+ * Each move gets a soft limit and a hard limit. The search doesn't start
+ * another iteration once the soft limit has passed, since the next iteration
+ * usually takes longer than all the ones before it, and it is stopped at the
+ * hard limit wherever it is, returning the best move found so far. With a
+ * clock, the soft limit is an even share of the time left over the moves
+ * expected to come, plus most of the increment, and the hard limit is a few
+ * times that but never more than a quarter of the time left.
+ */
+
+public class TimeManager {
+
+	/** The number of moves a clock is shared over. */
+	public static final int DEFAULT_MOVES_TO_GO = 30;
+
+	/** The milliseconds kept back to stop the search and make the move. */
+	public static final long OVERHEAD = 5;
+
+	/** The fewest milliseconds a move is given. */
+	public static final long MIN_TIME = 1;
+
+	/** The budget for each move, or 0 if a clock is used. */
+	private final long moveTime;
+
+	/** The milliseconds left on the clock. */
+	private long remaining;
+
+	/** The milliseconds added to the clock after each move. */
+	private final long increment;
+
+	/** The number of moves the clock is shared over. */
+	private int movesToGo = DEFAULT_MOVES_TO_GO;
+
+	private TimeManager(long moveTime, long remaining, long increment) {
+		this.moveTime = moveTime;
+		this.remaining = remaining;
+		this.increment = increment;
+	}
+
+	// Gives every move the same number of milliseconds.
+	public static TimeManager perMove(long millis) {
+		return new TimeManager(Math.max(MIN_TIME, millis), 0, 0);
+	}
+
+	/**
+	 * Shares a game clock with the given milliseconds left between the
+	 * moves, adding the increment after each move.
+	 */
+	public static TimeManager clock(long millis, long increment) {
+		return new TimeManager(0, Math.max(0, millis), Math.max(0, increment));
+	}
+
+	/**
+	 * Gets the milliseconds after which the search shouldn't start another
+	 * iteration.
+	 */
+	public synchronized long getSoftLimit() {
+		if (moveTime > 0) {
+			return Math.max(MIN_TIME, Math.min(moveTime / 2, getHardLimit()));
+		}
+		long share = remaining / movesToGo + increment * 3 / 4;
+		return Math.max(MIN_TIME, Math.min(share, getHardLimit()));
+	}
+
+	// Gets the milliseconds after which the search is stopped.
+	public synchronized long getHardLimit() {
+		if (moveTime > 0) {
+			return Math.max(MIN_TIME, moveTime - OVERHEAD);
+		}
+		long share = remaining / movesToGo + increment * 3 / 4;
+		return Math.max(MIN_TIME, Math.min(share * 4, remaining / 4) - OVERHEAD);
+	}
+
+	/** Sets the limits of a search for the next move. */
+	public void apply(ParallelSearch search) {
+		search.setTimeLimit(getHardLimit());
+		search.setSoftTimeLimit(getSoftLimit());
+	}
+
+	// Sets the limits of a search for the next move.
+	public void apply(Search search) {
+		search.setTimeLimit(getHardLimit());
+		search.setSoftTimeLimit(getSoftLimit());
+	}
+
+	/**
+	 * Takes the milliseconds a move took off the clock and adds the
+	 * increment. Nothing changes with a budget per move.
+	 */
+	public synchronized void moveMade(long millis) {
+		if (moveTime == 0) {
+			this.remaining = Math.max(0, remaining - millis) + increment;
+		}
+	}
+
+	// Determines if every move gets the same budget rather than a clock.
+	public boolean isPerMove() {
+		return moveTime > 0;
+	}
+
+	public long getMoveTime() {
+		return moveTime;
+	}
+
+	// Gets the milliseconds left on the clock.
+	public synchronized long getRemaining() {
+		return remaining;
+	}
+
+	// Sets the milliseconds left on the clock, such as from a server.
+	public synchronized void setRemaining(long millis) {
+		this.remaining = Math.max(0, millis);
+	}
+
+	public synchronized int getMovesToGo() {
+		return movesToGo;
+	}
+
+	public synchronized void setMovesToGo(int movesToGo) {
+		this.movesToGo = Math.max(1, movesToGo);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + (isPerMove()?
+				"[moveTime=" + moveTime : "[remaining=" + getRemaining()
+				+ ", increment=" + increment) + ", soft=" + getSoftLimit()
+				+ ", hard=" + getHardLimit() + "]";
+	}
+
+}
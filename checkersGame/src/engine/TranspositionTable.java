@@ -0,0 +1,149 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * The {@code TranspositionTable} class remembers the result of searching a
+ * position so that it doesn't have to be searched again when it is reached
+ * through a different order of moves.
+ * <p>
+ * Each entry is two {@code long}s in one array: the position key XOR the
+ * data, and the data. Threads read and write entries without locking. If two
+ * threads write the same entry at once, a reader may see the key of one and
+ * the data of the other, but then the key won't match after the XOR and the
+ * entry is treated as a miss, so a torn entry is never used.
+ * <pre>
+ * bits  0-16  packed move (all set if there is no move)
+ * bits 17-40  score (signed)
+ * bits 41-48  depth
+ * bits 49-50  bound type
+ * bits 51-58  search generation
+ * </pre>
+ */
+
+public class TranspositionTable {
+
+	/** The bound type of a score that is exact. */
+	public static final int EXACT = 1;
+
+	/** The bound type of a score that is at most the stored value. */
+	public static final int UPPER = 2;
+
+	/** The bound type of a score that is at least the stored value. */
+	public static final int LOWER = 3;
+
+	/** The default number of entries, 16 MB of memory. */
+	public static final int DEFAULT_ENTRIES = 1 << 20;
+
+	private static final int NO_MOVE = 0x1FFFF;
+
+	/** The entries, two longs each. */
+	private final long[] table;
+
+	/** The mask to get an entry index from a key. */
+	private final int mask;
+
+	/** The generation of the current search, used to replace old entries. */
+	private int generation;
+
+	public TranspositionTable() {
+		this(DEFAULT_ENTRIES);
+	}
+
+	// Creates a table with at least the given number of entries (max 2^28).
+	public TranspositionTable(int entries) {
+		int size = 1;
+		while (size < entries && size < (1 << 28)) {
+			size <<= 1;
+		}
+		this.table = new long[size * 2];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Gets the data stored for the key, or 0 if the position is not in the
+	 * table. Use the static getters to read the data.
+	 */
+	public long probe(long key) {
+		int i = ((int) key & mask) << 1;
+		long data = table[i + 1];
+		return ((table[i] ^ data) == key)? data : 0;
+	}
+
+	/**
+	 * Stores the result of a search. An entry for a different position is only
+	 * replaced if it is from an older search or was searched less deeply.
+	 */
+	public void store(long key, int move, int score, int depth, int bound) {
+
+		int i = ((int) key & mask) << 1;
+		long old = table[i + 1];
+		long oldKey = table[i] ^ old;
+		if (old != 0 && oldKey != key && getGeneration(old) == generation
+				&& getDepth(old) > depth) {
+			return;
+		}
+
+		// Keep the old move if this search didn't find one
+		if (move < 0 && oldKey == key && old != 0) {
+			move = getMove(old);
+		}
+
+		long data = (move < 0? NO_MOVE : move & NO_MOVE)
+				| (((long) score & 0xFFFFFF) << 17)
+				| ((long) (Math.max(0, Math.min(depth, 255))) << 41)
+				| ((long) (bound & 3) << 49)
+				| ((long) (generation & 0xFF) << 51);
+		this.table[i] = key ^ data;
+		this.table[i + 1] = data;
+	}
+
+	// Starts a new search so that entries from old searches are replaced.
+	public void newSearch() {
+		this.generation = (generation + 1) & 0xFF;
+	}
+
+	public void clear() {
+		Arrays.fill(table, 0);
+	}
+
+	// Gets the number of entries in the table.
+	public int getSize() {
+		return mask + 1;
+	}
+
+	// Gets how full the table is out of 1000, from a sample of entries.
+	public int getHashfull() {
+		int n = Math.min(1000, getSize()), used = 0;
+		for (int i = 0; i < n; i ++) {
+			long data = table[i * 2 + 1];
+			if (data != 0 && getGeneration(data) == generation) {
+				used ++;
+			}
+		}
+		return used * 1000 / n;
+	}
+
+	// Gets the packed move of an entry, or -1 if there is none.
+	public static int getMove(long data) {
+		int move = (int) (data & NO_MOVE);
+		return move == NO_MOVE? -1 : move;
+	}
+
+	public static int getScore(long data) {
+		return ((int) (data >>> 17) << 8) >> 8;
+	}
+
+	public static int getDepth(long data) {
+		return (int) (data >>> 41) & 0xFF;
+	}
+
+	public static int getBound(long data) {
+		return (int) (data >>> 49) & 3;
+	}
+
+	private static int getGeneration(long data) {
+		return (int) (data >>> 51) & 0xFF;
+	}
+
+}
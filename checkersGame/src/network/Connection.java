@@ -0,0 +1,292 @@
+package network;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The {@code Connection} class sends and receives short messages over one TCP
+ * connection with non-blocking channels. A single thread runs a selector
+ * loop that accepts the connection (when hosting) or finishes connecting,
+ * writes queued messages as soon as the socket takes them and passes each
+ * whole message it reads to a {@link Listener}.
+ * <p>
+ * Each message is sent after one byte with its length, so a message is at
+ * most {@value #MAX_MESSAGE} bytes. Messages can be sent before the
+ * connection is made, and they are written once it is. Nagle's algorithm is
+ * turned off, since the messages are small and each one is waited for.
+ */
+
+public class Connection implements Closeable {
+
+	/** The largest message that can be sent, in bytes. */
+	public static final int MAX_MESSAGE = 255;
+
+	/** Gets the messages read from a connection, on its thread. */
+	public interface Listener {
+
+		// Called with each message, which is only valid during the call.
+		void received(ByteBuffer message);
+
+		// Called once when the connection closes, with the cause or null.
+		void closed(IOException cause);
+
+	}
+
+	/** The selector that the loop waits on. */
+	private final Selector selector;
+
+	/** The channel accepting the connection, or null once it is accepted. */
+	private ServerSocketChannel server;
+
+	/** The connection, or null if it hasn't been accepted yet. */
+	private SocketChannel channel;
+
+	/** The key of the connection with the selector. */
+	private SelectionKey key;
+
+	private final Listener listener;
+
+	/** The bytes read that aren't a whole message yet. */
+	private final ByteBuffer in = ByteBuffer.allocate(4 * (MAX_MESSAGE + 1));
+
+	/** The messages waiting to be written, with their lengths. */
+	private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+
+	/** The thread running the selector loop. */
+	private final Thread thread;
+
+	/** The port the connection is hosted or made on. */
+	private final int localPort;
+
+	private volatile boolean connected;
+
+	private volatile boolean closed;
+
+	private Connection(Selector selector, ServerSocketChannel server,
+			SocketChannel channel, Listener listener) throws IOException {
+		this.selector = selector;
+		this.server = server;
+		this.channel = channel;
+		this.listener = listener;
+		if (server != null) {
+			server.register(selector, SelectionKey.OP_ACCEPT);
+			this.localPort = server.socket().getLocalPort();
+		} else {
+			this.key = channel.register(selector, SelectionKey.OP_CONNECT);
+			this.localPort = channel.socket().getLocalPort();
+		}
+		this.thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				loop();
+			}
+		}, "connection");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Waits for one connection on a port, 0 for any free port (see
+	 * {@link #getLocalPort()}). This doesn't wait for it to be made.
+	 *
+	 * @throws IOException if the port can't be listened on.
+	 */
+	public static Connection host(int port, Listener listener)
+			throws IOException {
+		Selector selector = Selector.open();
+		ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.configureBlocking(false);
+			server.bind(new InetSocketAddress(port));
+			return new Connection(selector, server, null, listener);
+		} catch (IOException e) {
+			server.close();
+			selector.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Connects to a host. This doesn't wait for the connection to be made.
+	 *
+	 * @throws IOException if the host can't be found or connected to.
+	 */
+	public static Connection connect(String host, int port, Listener listener)
+			throws IOException {
+		Selector selector = Selector.open();
+		SocketChannel channel = SocketChannel.open();
+		try {
+			configure(channel);
+			channel.connect(new InetSocketAddress(host, port));
+			return new Connection(selector, null, channel, listener);
+		} catch (IOException e) {
+			channel.close();
+			selector.close();
+			throw e;
+		}
+	}
+
+	// Makes a connected channel non-blocking and without delays.
+	private static void configure(SocketChannel channel) throws IOException {
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+	}
+
+	/**
+	 * Queues a message to be written, from its position to its limit. The
+	 * message isn't changed.
+	 *
+	 * @throws IllegalArgumentException if it is longer than MAX_MESSAGE.
+	 */
+	public void send(ByteBuffer message) {
+		int length = message.remaining();
+		if (length > MAX_MESSAGE) {
+			throw new IllegalArgumentException("Message too long: " + length);
+		}
+		ByteBuffer frame = ByteBuffer.allocate(length + 1);
+		frame.put((byte) length).put(message.duplicate());
+		frame.flip();
+		out.add(frame);
+		selector.wakeup();
+	}
+
+	// Runs the selector until the connection closes.
+	private void loop() {
+
+		IOException cause = null;
+		try {
+			while (!closed) {
+				if (channel != null && channel.isConnected()) {
+					write();
+				}
+				selector.select();
+				for (SelectionKey k : selector.selectedKeys()) {
+					if (!k.isValid()) {
+						continue;
+					}
+					if (k.isAcceptable()) {
+						accept();
+					} else if (k.isConnectable()) {
+						if (channel.finishConnect()) {
+							this.connected = true;
+							key.interestOps(SelectionKey.OP_READ);
+						}
+					} else {
+						if (k.isReadable()) {
+							read();
+						}
+						if (k.isWritable()) {
+							write();
+						}
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+		} catch (IOException e) {
+			cause = e;
+		} finally {
+			closeChannels();
+			listener.closed(cause);
+		}
+	}
+
+	// Accepts the connection and stops listening for others.
+	private void accept() throws IOException {
+		SocketChannel c = server.accept();
+		if (c == null) {
+			return;
+		}
+		configure(c);
+		this.channel = c;
+		this.key = c.register(selector, SelectionKey.OP_READ);
+		server.close();
+		this.server = null;
+		this.connected = true;
+	}
+
+	// Reads what is available and passes on every whole message.
+	private void read() throws IOException {
+
+		if (channel.read(in) < 0) {
+			throw new EOFException("Connection closed by peer");
+		}
+		in.flip();
+		while (in.remaining() > 0) {
+			int length = in.get(in.position()) & 0xff;
+			if (in.remaining() < length + 1) {
+				break;
+			}
+			int start = in.position() + 1;
+			ByteBuffer message = in.duplicate();
+			message.position(start).limit(start + length);
+			listener.received(message.slice());
+			in.position(start + length);
+		}
+		in.compact();
+	}
+
+	// Writes queued messages until they are all written or the socket is full.
+	private void write() throws IOException {
+		ByteBuffer frame;
+		while ((frame = out.peek()) != null) {
+			channel.write(frame);
+			if (frame.hasRemaining()) {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				return;
+			}
+			out.poll();
+		}
+		key.interestOps(SelectionKey.OP_READ);
+	}
+
+	// Closes the channels and the selector.
+	private void closeChannels() {
+		this.closed = true;
+		this.connected = false;
+		for (Closeable c : new Closeable[] {server, channel, selector}) {
+			try {
+				if (c != null) {
+					c.close();
+				}
+			} catch (IOException e) {
+				continue;
+			}
+		}
+	}
+
+	// Determines if the connection has been made and is still open.
+	public boolean isConnected() {
+		return connected;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	// Gets the port that is hosted on, or connected from.
+	public int getLocalPort() {
+		return localPort;
+	}
+
+	/**
+	 * Closes the connection. Messages that haven't been written yet are
+	 * dropped.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		selector.wakeup();
+	}
+
+}
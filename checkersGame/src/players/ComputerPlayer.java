@@ -1,14 +1,15 @@
 package players;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Random;
 
-import checkersRules.MoveGenerate;
-import checkersRules.Logic;
-import checkersRules.Board;
+import checkersRules.BitBoard;
 import checkersRules.Game;
 import checkersRules.Move;
+import checkersRules.MoveList;
+import checkersRules.PackedMove;
+import checkersRules.Tiles;
+import checkersRules.Undo;
 
 /**
  * The {@code ComputerPlayer} class represents a computer player and updates
@@ -18,32 +19,75 @@ import checkersRules.Move;
 public class ComputerPlayer extends Player {
 	
 	//The weight to be able to skip
-    private static final double WEIGHT_SKIP = 25;
+    public static final double WEIGHT_SKIP = 25;
 	
     //The weight of being able to skip on next turn.
-	private static final double SKIP_ON_NEXT = 20;
+	public static final double SKIP_ON_NEXT = 20;
 	
 	//The weight associated with being safe then safe before and after.
-	private static final double SAFE_SAFE = 5;
+	public static final double SAFE_SAFE = 5;
 
 	//The weight associated with being safe then unsafe before and after.
-	private static final double SAFE_UNSAFE = -40;
+	public static final double SAFE_UNSAFE = -40;
 
 	// The weight associated with being unsafe then safe before and after.
-	private static final double UNSAFE_SAFE = 40;
+	public static final double UNSAFE_SAFE = 40;
 
 	// The weight associated with being unsafe then unsafe before and after.
-	private static final double UNSAFE_UNSAFE = -40;
+	public static final double UNSAFE_UNSAFE = -40;
 	
 	// The weight of a checker being safe.
-	private static final double SAFE = 3;
+	public static final double SAFE = 3;
 	
 	//The weight of a checker being unsafe.
-	private static final double UNSAFE = -5;
+	public static final double UNSAFE = -5;
 	
 	/** The factor used to multiply some weights when the checker being
 	 * observed is a king. */
-	private static final double KING_FACTOR = 2;
+	public static final double KING_FACTOR = 2;
+	
+	/** The weights of the moves being compared, reused between turns. */
+	private double[] weights = new double[64];
+
+	/** The moves made while weighing a move, to be taken back after. */
+	private int[] undos = new int[16];
+
+	/** The number of moves in {@link #undos}. */
+	private int undoCount;
+
+	/** Picks between moves with the same weight. */
+	private final Random random;
+
+	/** The weights used by this player, see {@link Weights}. */
+	private final double weightSkip, skipOnNext, safeSafe, safeUnsafe,
+			unsafeSafe, unsafeUnsafe, safe, unsafe, kingFactor;
+
+	public ComputerPlayer() {
+		this(new Random());
+	}
+
+	// Creates a player that breaks ties with the given random source.
+	public ComputerPlayer(Random random) {
+		this(random, Weights.getDefault());
+	}
+
+	/**
+	 * Creates a player that breaks ties with the given random source and
+	 * weighs moves with the given weights.
+	 */
+	public ComputerPlayer(Random random, Weights weights) {
+		this.random = (random == null)? new Random() : random;
+		Weights w = (weights == null)? new Weights() : weights;
+		this.weightSkip = w.get(Weights.WEIGHT_SKIP);
+		this.skipOnNext = w.get(Weights.SKIP_ON_NEXT);
+		this.safeSafe = w.get(Weights.SAFE_SAFE);
+		this.safeUnsafe = w.get(Weights.SAFE_UNSAFE);
+		this.unsafeSafe = w.get(Weights.UNSAFE_SAFE);
+		this.unsafeUnsafe = w.get(Weights.UNSAFE_UNSAFE);
+		this.safe = w.get(Weights.SAFE);
+		this.unsafe = w.get(Weights.UNSAFE);
+		this.kingFactor = w.get(Weights.KING_FACTOR);
+	}
 
 	@Override
 	public boolean isHuman() {
@@ -53,93 +97,65 @@ public class ComputerPlayer extends Player {
 	@Override
 	public void updateGame(Game game) {
 		
+		int m = choose(game);
+		if (m != PackedMove.NONE) {
+			game.move(PackedMove.getStartIndex(m), PackedMove.getEndIndex(m));
+		}
+	}
+
+	@Override
+	public Move getMove(Game game) {
+		int m = choose(game);
+		return (m == PackedMove.NONE)? null : new Move(
+				PackedMove.getStartIndex(m), PackedMove.getEndIndex(m));
+	}
+
+	// Chooses the packed move to make, or PackedMove.NONE if there is none.
+	private int choose(Game game) {
+		
 		if (game == null || game.isGameOver()) {
-			return;
+			return PackedMove.NONE;
 		}
 			
 		// Get the available moves
-		Game copy = game.copy();
-		List<Move> moves = getMoves(copy);
+		MoveList moves = MoveList.get();
+		int base = moves.size();
+		int n = BitBoard.generate(game.getBlack(), game.getWhite(),
+				game.getKings(), game.isP1Turn(), game.getSkipIndex(), moves);
+		if (weights.length < n) {
+			this.weights = new double[n * 2];
+		}
 		
 		// Determine which one is the best
-		int n = moves.size(), count = 1;
+		int count = 1;
 		double bestWeight = Move.WEIGHT_INVALID;
 		for (int i = 0; i < n; i ++) {
-			Move m = moves.get(i);
-			getMoveWeight(copy.copy(), m);
-			if (m.getWeight() > bestWeight) {
+			int m = moves.get(base + i);
+			weights[i] = getMoveWeight(game, m);
+			if (weights[i] > bestWeight) {
 				count = 1;
-				bestWeight = m.getWeight();
-			} else if (m.getWeight() == bestWeight) {
+				bestWeight = weights[i];
+			} else if (weights[i] == bestWeight) {
 				count ++;
 			}
 		}
 
 		// Randomly select a move
-		int move = ((int) (Math.random() * count)) % count;
+		int move = random.nextInt(count), chosen = PackedMove.NONE;
 		for (int i = 0; i < n; i ++) {
-			Move m = moves.get(i);
-			if (bestWeight == m.getWeight()) {
+			int m = moves.get(base + i);
+			if (bestWeight == weights[i]) {
 				if (move == 0) {
-					game.move(m.getStartIndex(), m.getEndIndex());
+					chosen = m;
+					break;
 				} else {
 					move --;
 				}
 			}
 		}
-	}
-	
-	// Gets all the available moves and skips for the current player.
-	
-	private List<Move> getMoves(Game game) {
-	
-		// The next move needs to be a skip
-		if (game.getSkipIndex() >= 0) {
-			
-			List<Move> moves = new ArrayList<>();
-			List<Point> skips = MoveGenerate.getSkips(game.getBoard(),
-					game.getSkipIndex());
-			for (Point end : skips) {
-				moves.add(new Move(game.getSkipIndex(), Board.toIndex(end)));
-			}
-			
-			return moves;
-		}
-		
-		List<Point> checkers = new ArrayList<>();
-		Board b = game.getBoard();
-		if (game.isP1Turn()) {
-			checkers.addAll(b.find(Board.BLACK_CHECKER));
-			checkers.addAll(b.find(Board.BLACK_KING));
-		} else {
-			checkers.addAll(b.find(Board.WHITE_CHECKER));
-			checkers.addAll(b.find(Board.WHITE_KING));
-		}
-		
-		// Determine if there are any skips
-		List<Move> moves = new ArrayList<>();
-		for (Point checker : checkers) {
-			int index = Board.toIndex(checker);
-			List<Point> skips = MoveGenerate.getSkips(b, index);
-			for (Point end : skips) {
-				Move m = new Move(index, Board.toIndex(end));
-				m.changeWeight(WEIGHT_SKIP);
-				moves.add(m);
-			}
-		}
-		
-		// If there are no skips, add the regular moves
-		if (moves.isEmpty()) {
-			for (Point checker : checkers) {
-				int index = Board.toIndex(checker);
-				List<Point> movesEnds = MoveGenerate.getMoves(b, index);
-				for (Point end : movesEnds) {
-					moves.add(new Move(index, Board.toIndex(end)));
-				}
-			}
-		}
+		moves.setSize(base);
 		
-		return moves;
+		return chosen;
 	}
 	
 	/**
@@ -152,101 +168,124 @@ public class ComputerPlayer extends Player {
 			return 0;
 		}
 		
-		List<Point> skips = MoveGenerate.getSkips(game.getBoard(), startIndex);
+		int skips = BitBoard.getSkipTargets(game.getBlack(),
+				game.getWhite(), game.getKings(), startIndex);
 		int depth = 0;
-		for (Point end : skips) {
-			int endIndex = Board.toIndex(end);
-			game.move(startIndex, endIndex);
+		for (int dir = 0; dir < 4 && skips != 0; dir ++) {
+			int endIndex = Tiles.jump(startIndex, dir);
+			if (endIndex < 0 || (skips & (1 << endIndex)) == 0) {
+				continue;
+			}
+			makeMove(game, startIndex, endIndex);
 			int testDepth = getSkipDepth(game, endIndex, isP1Turn);
 			if (testDepth > depth) {
 				depth = testDepth;
 			}
 		}
 		
-		return depth + (skips.isEmpty()? 0 : 1);
+		return depth + (skips == 0? 0 : 1);
+	}
+	
+	/**
+	 * Weighs a move by making it on the game, and then takes back every move
+	 * that was made so the game is left as it was.
+	 */
+	private double getMoveWeight(Game game, int m) {
+		
+		int mark = undoCount;
+		double weight = weighMove(game, m);
+		while (undoCount > mark) {
+			game.unmakeMove(undos[-- undoCount]);
+		}
+		
+		return weight;
 	}
 	
-	private void getMoveWeight(Game game, Move m) {
+	private double weighMove(Game game, int m) {
 		
-		Point start = m.getStart(), end = m.getEnd();
-		int startIndex = Board.toIndex(start), endIndex = Board.toIndex(end);
-		Board b = game.getBoard();
+		int startIndex = PackedMove.getStartIndex(m);
+		int endIndex = PackedMove.getEndIndex(m);
+		double weight = PackedMove.isSkip(m)? weightSkip : 0;
 		boolean changed = game.isP1Turn();
-		boolean safeBefore = Logic.isSafe(b, start);
-		int id = b.get(startIndex);
-		boolean isKing = (id == Board.BLACK_KING || id == Board.WHITE_KING);
+		boolean isBlack = (game.getBlack() & (1 << startIndex)) != 0;
+		boolean safeBefore = isSafe(game, startIndex, isBlack);
+		boolean isKing = (game.getKings() & (1 << startIndex)) != 0;
 		
 		// Set the initial weight
-		m.changeWeight(getSafetyWeight(b, game.isP1Turn()));
+		weight += getSafetyWeight(game, game.isP1Turn());
 		
 		// Make the move
-		if (!game.move(m.getStartIndex(), m.getEndIndex())) {
-			m.setWeight(Move.WEIGHT_INVALID);
-			return;
+		if (!makeMove(game, startIndex, endIndex)) {
+			return Move.WEIGHT_INVALID;
 		}
-		b = game.getBoard();
 		changed = (changed != game.isP1Turn());
-		id = b.get(endIndex);
-		isKing = (id == Board.BLACK_KING || id == Board.WHITE_KING);
+		isKing = (game.getKings() & (1 << endIndex)) != 0;
 		boolean safeAfter = true;
+		double blackAfter = getSafetyWeight(game, true);
+		double whiteAfter = getSafetyWeight(game, false);
 		
 		// Determine if a skip could be made on next move
 		if (changed) {
-			safeAfter = Logic.isSafe(b, end);
+			safeAfter = isSafe(game, endIndex, isBlack);
 			int depth = getSkipDepth(game, endIndex, !game.isP1Turn());
 			if (safeAfter) {
-				m.changeWeight(SKIP_ON_NEXT * depth * depth);
+				weight += skipOnNext * depth * depth;
 			} else {
-				m.changeWeight(SKIP_ON_NEXT);
+				weight += skipOnNext;
 			}
 		}
 		
 		else {
 			int depth = getSkipDepth(game, startIndex, game.isP1Turn());
-			m.changeWeight(WEIGHT_SKIP * depth * depth);
+			weight += weightSkip * depth * depth;
 		}
 		
 		// Add the weight appropriate to how safe the checker is
 		if (safeBefore && safeAfter) {
-			m.changeWeight(SAFE_SAFE);
+			weight += safeSafe;
 		} else if (!safeBefore && safeAfter) {
-			m.changeWeight(UNSAFE_SAFE);
+			weight += unsafeSafe;
 		} else if (safeBefore && !safeAfter) {
-			m.changeWeight(SAFE_UNSAFE * (isKing? KING_FACTOR : 1));
+			weight += safeUnsafe * (isKing? kingFactor : 1);
 		} else {
-			m.changeWeight(UNSAFE_UNSAFE);
+			weight += unsafeUnsafe;
 		}
-		m.changeWeight(getSafetyWeight(b,
-				changed? !game.isP1Turn() : game.isP1Turn()));
+		weight += (changed? !game.isP1Turn() : game.isP1Turn())?
+				blackAfter : whiteAfter;
+		
+		return weight;
 	}
 	
-	private double getSafetyWeight(Board b, boolean isBlack) {
-		
-		// Get the checkers
-		double weight = 0;
-		List<Point> checkers = new ArrayList<>();
-		if (isBlack) {
-			checkers.addAll(b.find(Board.BLACK_CHECKER));
-			checkers.addAll(b.find(Board.BLACK_KING));
-		} else {
-			checkers.addAll(b.find(Board.WHITE_CHECKER));
-			checkers.addAll(b.find(Board.WHITE_KING));
-		}
+	// Determines if the piece on the index can't be skipped.
+	private static boolean isSafe(Game game, int index, boolean isBlack) {
+		return (game.getThreatened(isBlack) & (1 << index)) == 0;
+	}
+	
+	// Makes a move and remembers how to take it back.
+	private boolean makeMove(Game game, int startIndex, int endIndex) {
 		
-		// Determine conditions for each checker
-		for (Point checker : checkers) {
-			int index = Board.toIndex(checker);
-			int id = b.get(index);
-			boolean isKing = (id == Board.BLACK_KING || id == Board.WHITE_KING);
-			if (Logic.isSafe(b, checker)) {
-				weight += SAFE;
-			} else {
-				weight += UNSAFE * (isKing? KING_FACTOR : 1);
-			}
+		int undo = game.makeMove(startIndex, endIndex);
+		if (undo == Undo.NONE) {
+			return false;
+		}
+		if (undoCount == undos.length) {
+			this.undos = Arrays.copyOf(undos, undos.length * 2);
 		}
+		this.undos[undoCount ++] = undo;
+		return true;
+	}
+	
+	/**
+	 * Gets the weight of how safe the pieces of one colour are, from the
+	 * counts the game keeps.
+	 */
+	private double getSafetyWeight(Game game, boolean isBlack) {
 		
-		return weight;
+		int threatened = game.getThreatenedCount(isBlack);
+		int threatenedKings = game.getThreatenedKingCount(isBlack);
+		return (game.getPieceCount(isBlack) - threatened) * safe
+				+ (threatened - threatenedKings) * unsafe
+				+ threatenedKings * unsafe * kingFactor;
 	}
 
-
 }
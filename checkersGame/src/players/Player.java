@@ -1,6 +1,7 @@
 package players;
 
 import checkersRules.Game;
+import checkersRules.Move;
 
 /**
  * The {@code Player} class is an abstract class that represents a player in a
@@ -13,6 +14,60 @@ public abstract boolean isHuman();
 
     //updates the game	
 	public abstract void updateGame(Game game);
+
+	/**
+	 * Gets the move this player would make next, or null if it makes none,
+	 * without changing the game. By default the player updates a copy of the
+	 * game and the move is found by comparing the positions.
+	 */
+	public Move getMove(Game game) {
+
+		if (game == null) {
+			return null;
+		}
+		Game copy = game.copy();
+		updateGame(copy);
+		long key = copy.getKey();
+		if (key == game.getKey()) {
+			return null;
+		}
+
+		// Find the legal move that leads to the same position
+		Game test = game.copy();
+		for (int starts = test.getLegalStarts(); starts != 0;
+				starts &= starts - 1) {
+			int s = Integer.numberOfTrailingZeros(starts);
+			for (int ends = test.getLegalTargets(s); ends != 0;
+					ends &= ends - 1) {
+				int e = Integer.numberOfTrailingZeros(ends);
+				int undo = test.makeMove(s, e);
+				boolean found = (test.getKey() == key);
+				test.unmakeMove(undo);
+				if (found) {
+					return new Move(s, e);
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Stops the player finding a move on another thread, if it can. The
+	 * move it then finds may not be its best.
+	 */
+	public void stop() {
+
+	}
+
+	/**
+	 * Clears a {@link #stop()}, so that the next move is found in full. A
+	 * stop is kept until then, even if it comes before the player starts
+	 * looking for a move.
+	 */
+	public void reset() {
+
+	}
 	
 	@Override
 	public String toString() {
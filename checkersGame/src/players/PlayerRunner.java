@@ -0,0 +1,124 @@
+package players;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import checkersRules.Game;
+import checkersRules.Move;
+
+/**
+ * The {@code PlayerRunner} class finds the moves of computer players on a
+ * thread of its own, so that a long search doesn't hold up the thread that
+ * asks for the move, such as the Swing event thread. Each move is found on a
+ * copy of the game taken when it is asked for, so the game can still be
+ * drawn and changed while the player thinks. Whoever asked for the move
+ * decides whether it still applies when it arrives.
+ * <p>
+ * A move that is no longer wanted can be cancelled. Its future completes
+ * straight away, and the player is told to stop so that the thread is free
+ * for the next move. The player's stop is only cleared when a move that
+ * hasn't been cancelled starts, so a move cancelled before the player
+ * starts looking for it is never looked for in full.
+ */
+
+public class PlayerRunner {
+
+	/** The thread that the players think on. */
+	private final ExecutorService executor;
+
+	/** The move being found, or null if there is none. */
+	private CompletableFuture<Move> pending;
+
+	/** The player finding the pending move. */
+	private Player pendingPlayer;
+
+	public PlayerRunner() {
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "computer-player");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Finds the move the player would make in a copy of the game. The
+	 * future completes with null if the player makes no move, and is
+	 * cancelled if {@link #cancel()} is called first. Any move still being
+	 * found is cancelled.
+	 */
+	public synchronized CompletableFuture<Move> getMove(final Player player,
+			Game game) {
+
+		cancel();
+		final Game snapshot = (game == null)? null : game.snapshot();
+		final CompletableFuture<Move> future = new CompletableFuture<>();
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				if (!start(future, player)) {
+					return;
+				}
+				try {
+					future.complete(player.getMove(snapshot));
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			}
+		});
+		this.pending = future;
+		this.pendingPlayer = player;
+
+		return future;
+	}
+
+	/**
+	 * Clears the stop of a player about to look for a move, or completes the
+	 * move with null if there is no player. Returns false if the move was
+	 * cancelled or has no player, and then it isn't looked for.
+	 */
+	private synchronized boolean start(CompletableFuture<Move> future,
+			Player player) {
+		if (future.isDone()) {
+			return false;
+		} else if (player == null) {
+			future.complete(null);
+			return false;
+		}
+		player.reset();
+		return true;
+	}
+
+	/**
+	 * Cancels the move being found, if there is one, and stops the player
+	 * finding it.
+	 */
+	public synchronized void cancel() {
+		if (pending == null) {
+			return;
+		}
+		if (pending.cancel(true) && pendingPlayer != null) {
+			pendingPlayer.stop();
+		}
+		this.pending = null;
+		this.pendingPlayer = null;
+	}
+
+	// Determines if a move is being found.
+	public synchronized boolean isRunning() {
+		return pending != null && !pending.isDone();
+	}
+
+	// Cancels the move being found and stops the thread.
+	public synchronized void shutdown() {
+		cancel();
+		executor.shutdownNow();
+	}
+
+}
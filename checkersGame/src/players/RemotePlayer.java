@@ -0,0 +1,300 @@
+package players;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import checkersRules.Game;
+import checkersRules.Move;
+import network.Connection;
+
+/**
+ * The {@code RemotePlayer} class represents a player in another copy of the
+ * game, connected over the network. One side hosts and the other connects,
+ * and each side makes the other the remote player. Both games start from the
+ * starting position.
+ * <p>
+ * When the remote player is asked for a move, it first sends the moves made
+ * locally since the last time, and then waits for the other side's move.
+ * Each move is sent as one message with the key of the position after it,
+ * so a game that gets out of step is found on the next move instead of
+ * being played on from different positions. The messages are:
+ * <pre>
+ * HELLO  type 0, magic (4 bytes), protocol version (1 byte)
+ * MOVE   type 1, start index, end index, key after the move (8 bytes)
+ * </pre>
+ */
+
+public class RemotePlayer extends Player implements Connection.Listener {
+
+	/** The first bytes of the greeting, "CHKR". */
+	public static final int MAGIC = 0x43484B52;
+
+	/** The version of the messages. */
+	public static final int PROTOCOL = 1;
+
+	// The message types.
+	private static final byte HELLO = 0;
+	private static final byte MOVE = 1;
+
+	/** The connection to the other side. */
+	private Connection connection;
+
+	/** The game as both sides know it. */
+	private Game synced = new Game();
+
+	/** The moves received and not yet made, each a start, end and key. */
+	private final ArrayDeque<long[]> received = new ArrayDeque<>();
+
+	/** Why the game can't go on, or null if it can. */
+	private String error;
+
+	/** Set to stop waiting for a move. */
+	private boolean stopped;
+
+	/** Whether the other side's greeting was received. */
+	private boolean greeted;
+
+	private RemotePlayer() {
+
+	}
+
+	/**
+	 * Waits for the other side to connect on a port, 0 for any free port.
+	 * This doesn't wait for the connection to be made.
+	 *
+	 * @throws IOException if the port can't be listened on.
+	 */
+	public static RemotePlayer host(int port) throws IOException {
+		RemotePlayer player = new RemotePlayer();
+		player.start(Connection.host(port, player));
+		return player;
+	}
+
+	/**
+	 * Connects to the other side. This doesn't wait for the connection to be
+	 * made.
+	 *
+	 * @throws IOException if the host can't be found or connected to.
+	 */
+	public static RemotePlayer connect(String host, int port)
+			throws IOException {
+		RemotePlayer player = new RemotePlayer();
+		player.start(Connection.connect(host, port, player));
+		return player;
+	}
+
+	// Sends the greeting, which is written once the connection is made.
+	private synchronized void start(Connection connection) {
+		this.connection = connection;
+		ByteBuffer hello = ByteBuffer.allocate(6);
+		hello.put(HELLO).putInt(MAGIC).put((byte) PROTOCOL);
+		hello.flip();
+		connection.send(hello);
+	}
+
+	@Override
+	public boolean isHuman() {
+		return false;
+	}
+
+	@Override
+	public void updateGame(Game game) {
+		Move move = getMove(game);
+		if (move != null) {
+			game.move(move.getStartIndex(), move.getEndIndex());
+		}
+	}
+
+	/**
+	 * Sends the moves made in the game since the last move, and waits for
+	 * the other side's next move. Returns null if the game is over or
+	 * {@link #stop()} was called since the last {@link #reset()}.
+	 *
+	 * @throws IllegalStateException if the games are out of step or the
+	 * connection closed.
+	 */
+	@Override
+	public synchronized Move getMove(Game game) {
+
+		if (game == null) {
+			return null;
+		}
+		send(game);
+		if (game.isGameOver()) {
+			return null;
+		}
+
+		// Wait for the other side to move
+		while (received.isEmpty() && error == null && !stopped) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+		if (received.isEmpty()) {
+			check();
+			return null;
+		}
+
+		// Make sure both sides reach the same position
+		long[] m = received.poll();
+		int start = (int) m[0], end = (int) m[1];
+		if (!synced.move(start, end) || synced.getKey() != m[2]) {
+			fail("Game out of sync after move " + start + "-" + end);
+		}
+
+		return new Move(start, end);
+	}
+
+	/**
+	 * Sends the moves made in the game since the last move without waiting
+	 * for a reply, such as the move that ended the game.
+	 *
+	 * @throws IllegalStateException if the games are out of step or the
+	 * connection closed.
+	 */
+	public synchronized void send(Game game) {
+
+		check();
+		long key = game.getKey();
+		if (key == synced.getKey()) {
+			return;
+		}
+
+		// Find the moves that lead from the known position to the game
+		int[] path = new int[32];
+		int n = findPath(synced.copy(), key, path, 0);
+		if (n < 0) {
+			fail("Game out of sync");
+		}
+		for (int i = 0; i < n; i += 2) {
+			synced.move(path[i], path[i + 1]);
+			ByteBuffer msg = ByteBuffer.allocate(11);
+			msg.put(MOVE).put((byte) path[i]).put((byte) path[i + 1])
+					.putLong(synced.getKey());
+			msg.flip();
+			connection.send(msg);
+		}
+	}
+
+	/**
+	 * Finds the moves one player makes in a turn to get from a game to the
+	 * position with a key, and returns the number of indices stored, or -1
+	 * if there are none.
+	 */
+	private static int findPath(Game game, long key, int[] path, int n) {
+
+		if (n + 2 > path.length) {
+			return -1;
+		}
+		boolean isP1Turn = game.isP1Turn();
+		for (int starts = game.getLegalStarts(); starts != 0;
+				starts &= starts - 1) {
+			int s = Integer.numberOfTrailingZeros(starts);
+			for (int ends = game.getLegalTargets(s); ends != 0;
+					ends &= ends - 1) {
+				int e = Integer.numberOfTrailingZeros(ends);
+				int undo = game.makeMove(s, e);
+				int found = (game.getKey() == key)? n + 2
+						: (game.isP1Turn() == isP1Turn)?
+								findPath(game, key, path, n + 2) : -1;
+				game.unmakeMove(undo);
+				if (found >= 0) {
+					path[n] = s;
+					path[n + 1] = e;
+					return found;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	// Stops waiting for the other side's move.
+	@Override
+	public synchronized void stop() {
+		this.stopped = true;
+		notifyAll();
+	}
+
+	@Override
+	public synchronized void reset() {
+		this.stopped = false;
+	}
+
+	@Override
+	public void received(ByteBuffer message) {
+
+		synchronized (this) {
+			byte type = message.get();
+			if (type == HELLO && message.remaining() >= 5) {
+				if (message.getInt() != MAGIC
+						|| message.get() != PROTOCOL) {
+					this.error = "Unknown protocol";
+				}
+				this.greeted = true;
+			} else if (type == MOVE && message.remaining() >= 10
+					&& greeted) {
+				received.add(new long[] {message.get(), message.get(),
+						message.getLong()});
+			} else {
+				this.error = "Invalid message";
+			}
+			notifyAll();
+		}
+	}
+
+	@Override
+	public synchronized void closed(IOException cause) {
+		if (error == null) {
+			this.error = "Connection closed"
+					+ ((cause == null)? "" : ": " + cause.getMessage());
+		}
+		notifyAll();
+	}
+
+	// Throws the reason the game can't go on, if there is one.
+	private void check() {
+		if (error != null) {
+			throw new IllegalStateException(error);
+		}
+	}
+
+	// Stops the game for a reason and tells the caller.
+	private void fail(String reason) {
+		this.error = reason;
+		connection.close();
+		throw new IllegalStateException(reason);
+	}
+
+	// Determines if the other side has connected.
+	public boolean isConnected() {
+		return connection.isConnected();
+	}
+
+	// Gets the port that is hosted on, or connected from.
+	public int getLocalPort() {
+		return connection.getLocalPort();
+	}
+
+	// Gets why the game can't go on, or null if it can.
+	public synchronized String getError() {
+		return error;
+	}
+
+	// Closes the connection, the other side's game can't go on.
+	public void close() {
+		connection.close();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[isHuman=" + isHuman()
+				+ ", connected=" + isConnected() + ", error=" + getError()
+				+ "]";
+	}
+
+}
@@ -0,0 +1,299 @@
+package players;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import checkersRules.Game;
+import checkersRules.Move;
+import checkersRules.PackedMove;
+import engine.ParallelSearch;
+import engine.Search;
+import engine.TimeManager;
+
+/**
+ * The {@code SearchPlayer} class represents a computer player that looks
+ * ahead with an alpha-beta {@link Search}. A deeper search plays stronger
+ * moves but takes longer, and searching on more threads makes up some of
+ * that time. With a {@link TimeManager}, each search is also limited by a
+ * budget per move or a game clock.
+ * <p>
+ * When pondering, the player keeps searching after its move while the
+ * opponent thinks. It plays the reply its search predicted and searches the
+ * position after it on a background thread, sharing the transposition table.
+ * If the opponent makes that reply, the next search finds the results
+ * already in the table, or uses the move outright if the background search
+ * finished. Otherwise the background search is stopped and its results are
+ * simply not found.
+ */
+
+public class SearchPlayer extends Player {
+
+	/** The search used to pick each move. */
+	private final ParallelSearch search;
+
+	/** The time each move may take, or null to search to the full depth. */
+	private TimeManager timeManager;
+
+	/** The thread that ponders, or null if not pondering. */
+	private ExecutorService ponderer;
+
+	/** The search run while pondering, sharing the table with the main one. */
+	private Search ponder;
+
+	/** The running ponder search, or null if there is none. */
+	private Future<Integer> pondering;
+
+	/** The key of the position being pondered. */
+	private long ponderKey;
+
+	/** The reply predicted for the opponent. */
+	private int ponderMove = PackedMove.NONE;
+
+	/** The number of times the opponent made the predicted reply. */
+	private int ponderHits;
+
+	public SearchPlayer() {
+		this(Search.DEFAULT_DEPTH);
+	}
+
+	public SearchPlayer(int depth) {
+		this(depth, 1);
+	}
+
+	public SearchPlayer(int depth, int threads) {
+		this(new ParallelSearch(depth, threads));
+	}
+
+	// Creates a player that uses an existing search, such as one with a
+	// smaller transposition table.
+	public SearchPlayer(ParallelSearch search) {
+		this.search = (search == null)? new ParallelSearch(
+				Search.DEFAULT_DEPTH, 1) : search;
+	}
+
+	@Override
+	public boolean isHuman() {
+		return false;
+	}
+
+	@Override
+	public void updateGame(Game game) {
+		Move move = getMove(game);
+		if (move != null) {
+			game.move(move.getStartIndex(), move.getEndIndex());
+		}
+	}
+
+	@Override
+	public Move getMove(Game game) {
+
+		if (game == null || game.isGameOver()) {
+			return null;
+		}
+
+		TimeManager tm = timeManager;
+		long start = System.nanoTime();
+		int move = stopPondering(game);
+		if (move == PackedMove.NONE) {
+			if (tm != null) {
+				tm.apply(search);
+			}
+			move = search.search(game);
+		}
+		if (tm != null) {
+			tm.moveMade((System.nanoTime() - start) / 1000000L);
+		}
+		if (move == PackedMove.NONE) {
+			return null;
+		}
+
+		// Ponder the reply once the turn passes to the opponent
+		int s = PackedMove.getStartIndex(move), e = PackedMove.getEndIndex(move);
+		if (isPondering()) {
+			Game next = game.copy();
+			if (next.move(s, e) && next.isP1Turn() != game.isP1Turn()
+					&& !next.isGameOver()) {
+				startPondering(next, move);
+			}
+		}
+
+		return new Move(s, e);
+	}
+
+	// Stops the search for a move, which then returns the best move so far.
+	@Override
+	public void stop() {
+		search.stop();
+	}
+
+	@Override
+	public void reset() {
+		search.reset();
+	}
+
+	/**
+	 * Starts searching the position after the opponent's predicted reply,
+	 * the rest of the principal variation after the move just made.
+	 */
+	private synchronized void startPondering(Game game, int move) {
+
+		int[] pv = search.getMain().getPv();
+		if (ponderer == null || pv.length < 2 || pv[0] != move) {
+			return;
+		}
+		final Game copy = game.copy();
+		boolean isP1Turn = copy.isP1Turn();
+		for (int i = 1; i < pv.length && copy.isP1Turn() == isP1Turn; i ++) {
+			if (!copy.move(PackedMove.getStartIndex(pv[i]),
+					PackedMove.getEndIndex(pv[i]))) {
+				return;
+			}
+		}
+		if (copy.isP1Turn() == isP1Turn || copy.isGameOver()) {
+			return;
+		}
+
+		this.ponderKey = copy.getKey();
+		this.ponderMove = pv[1];
+		ponder.reset();
+		ponder.setMaxDepth(search.getMaxDepth());
+		ponder.setTablebase(search.getTablebase());
+		this.pondering = ponderer.submit(new Callable<Integer>() {
+
+			@Override
+			public Integer call() {
+				return ponder.search(copy);
+			}
+		});
+	}
+
+	/**
+	 * Stops pondering and returns the move the ponder search found if the
+	 * game is in the position pondered and that search finished, otherwise
+	 * {@link PackedMove#NONE}.
+	 */
+	private synchronized int stopPondering(Game game) {
+
+		Future<Integer> running = pondering;
+		if (running == null) {
+			return PackedMove.NONE;
+		}
+		this.pondering = null;
+		this.ponderMove = PackedMove.NONE;
+		boolean hit = (game != null && game.getKey() == ponderKey);
+		if (hit) {
+			this.ponderHits ++;
+		}
+
+		// Only a search that reached its depth limit can be used as it is
+		boolean finished = running.isDone();
+		ponder.stop();
+		int move = PackedMove.NONE;
+		try {
+			move = running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			return PackedMove.NONE;
+		}
+		return (hit && finished)? move : PackedMove.NONE;
+	}
+
+	/** Stops pondering, such as when the game is restarted. */
+	public void stopPondering() {
+		stopPondering(null);
+	}
+
+	public synchronized boolean isPondering() {
+		return ponderer != null;
+	}
+
+	/**
+	 * Sets whether to search on the opponent's time, which uses one more
+	 * thread.
+	 */
+	public synchronized void setPondering(boolean pondering) {
+		if (pondering == isPondering()) {
+			return;
+		}
+		if (!pondering) {
+			stopPondering();
+			ponderer.shutdownNow();
+			this.ponderer = null;
+			return;
+		}
+		this.ponder = new Search(search.getMaxDepth(), search.getTable());
+		this.ponderer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "search-ponder");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	// Gets the reply being pondered, or PackedMove.NONE if there is none.
+	public synchronized int getPonderMove() {
+		return ponderMove;
+	}
+
+	// Gets the number of times the opponent made the predicted reply.
+	public synchronized int getPonderHits() {
+		return ponderHits;
+	}
+
+	public ParallelSearch getSearch() {
+		return search;
+	}
+
+	public TimeManager getTimeManager() {
+		return timeManager;
+	}
+
+	/**
+	 * Sets the time each move may take, or null to always search to the
+	 * maximum depth.
+	 */
+	public void setTimeManager(TimeManager timeManager) {
+		this.timeManager = timeManager;
+		if (timeManager == null) {
+			search.setTimeLimit(0);
+			search.setSoftTimeLimit(0);
+		}
+	}
+
+	public int getThreads() {
+		return search.getThreads();
+	}
+
+	// Sets the number of threads to search with.
+	public void setThreads(int threads) {
+		search.setThreads(threads);
+	}
+
+	// Gets the number of positions visited to find the last move.
+	public long getNodes() {
+		return search.getNodes();
+	}
+
+	// Gets the depth reached when finding the last move.
+	public int getDepth() {
+		return search.getMain().getDepth();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[isHuman=" + isHuman()
+				+ ", maxDepth=" + search.getMaxDepth()
+				+ ", threads=" + search.getThreads()
+				+ ", timeManager=" + timeManager
+				+ ", pondering=" + isPondering() + "]";
+	}
+
+}
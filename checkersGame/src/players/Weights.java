@@ -0,0 +1,186 @@
+package players;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * The {@code Weights} class holds the weights {@link ComputerPlayer} uses to
+ * choose a move, so they can be changed without recompiling. The defaults
+ * are the constants in {@code ComputerPlayer}.
+ * <p>
+ * A weight file has a line {@code NAME = value} for each weight, where the
+ * names are those of the constants. Lines starting with {@code #} are
+ * comments, and weights that aren't in the file keep their defaults. The
+ * default weights are read from the file named by the system property
+ * {@code checkers.weights} if it is set.
+ */
+
+public class Weights {
+
+	/** The name of the system property with the default weight file. */
+	public static final String PROPERTY = "checkers.weights";
+
+	// The index of each weight.
+	public static final int WEIGHT_SKIP = 0;
+	public static final int SKIP_ON_NEXT = 1;
+	public static final int SAFE_SAFE = 2;
+	public static final int SAFE_UNSAFE = 3;
+	public static final int UNSAFE_SAFE = 4;
+	public static final int UNSAFE_UNSAFE = 5;
+	public static final int SAFE = 6;
+	public static final int UNSAFE = 7;
+	public static final int KING_FACTOR = 8;
+
+	/** The names of the weights, by index. */
+	public static final String[] NAMES = {"WEIGHT_SKIP", "SKIP_ON_NEXT",
+			"SAFE_SAFE", "SAFE_UNSAFE", "UNSAFE_SAFE", "UNSAFE_UNSAFE",
+			"SAFE", "UNSAFE", "KING_FACTOR"};
+
+	/** The weights read at startup, see getDefault(). */
+	private static Weights defaults;
+
+	/** The value of each weight. */
+	private final double[] values;
+
+	// Creates the weights from the constants in ComputerPlayer.
+	public Weights() {
+		this.values = new double[] {ComputerPlayer.WEIGHT_SKIP,
+				ComputerPlayer.SKIP_ON_NEXT, ComputerPlayer.SAFE_SAFE,
+				ComputerPlayer.SAFE_UNSAFE, ComputerPlayer.UNSAFE_SAFE,
+				ComputerPlayer.UNSAFE_UNSAFE, ComputerPlayer.SAFE,
+				ComputerPlayer.UNSAFE, ComputerPlayer.KING_FACTOR};
+	}
+
+	public Weights(double[] values) {
+		this();
+		if (values != null) {
+			System.arraycopy(values, 0, this.values, 0,
+					Math.min(values.length, this.values.length));
+		}
+	}
+
+	/**
+	 * Gets the weights read from the file named by {@link #PROPERTY}, or the
+	 * constants if it isn't set or can't be read. The file is only read the
+	 * first time.
+	 */
+	public static synchronized Weights getDefault() {
+		if (defaults == null) {
+			String file = System.getProperty(PROPERTY);
+			defaults = new Weights();
+			if (file != null) {
+				try {
+					defaults = load(new File(file));
+				} catch (IOException e) {
+					System.err.println("Could not read weights: "
+							+ e.getMessage());
+				}
+			}
+		}
+		return defaults.copy();
+	}
+
+	/**
+	 * Reads weights from a file.
+	 *
+	 * @throws IOException if it can't be read or has an unknown weight.
+	 */
+	public static Weights load(File file) throws IOException {
+
+		Weights w = new Weights();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				int eq = line.indexOf('=');
+				int i = (eq < 0)? -1 : indexOf(line.substring(0, eq).trim());
+				if (i < 0) {
+					throw new IOException("Unknown weight: " + line);
+				}
+				try {
+					w.values[i] = Double.parseDouble(line.substring(eq + 1).trim());
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid weight: " + line);
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		return w;
+	}
+
+	// Writes the weights to a file that load(File) can read.
+	public void save(File file) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			out.println("# ComputerPlayer weights");
+			for (int i = 0; i < values.length; i ++) {
+				out.println(NAMES[i] + " = " + values[i]);
+			}
+			if (out.checkError()) {
+				throw new IOException("Could not write " + file);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	// Gets the index of a weight by name, or -1 if there is none.
+	public static int indexOf(String name) {
+		for (int i = 0; i < NAMES.length; i ++) {
+			if (NAMES[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public double get(int i) {
+		return values[i];
+	}
+
+	public void set(int i, double value) {
+		this.values[i] = value;
+	}
+
+	// Gets a copy of every weight, by index.
+	public double[] toArray() {
+		return values.clone();
+	}
+
+	public Weights copy() {
+		return new Weights(values);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return (o instanceof Weights)
+				&& Arrays.equals(values, ((Weights) o).values);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(values);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < values.length; i ++) {
+			sb.append(i == 0? "" : ", ").append(NAMES[i]).append('=')
+					.append(values[i]);
+		}
+		return sb.toString();
+	}
+
+}
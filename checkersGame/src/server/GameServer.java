@@ -0,0 +1,349 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import checkersRules.PositionCodec;
+import network.Connection;
+import players.ComputerPlayer;
+
+/**
+ * The {@code GameServer} class lets clients play the games of a
+ * {@link SessionManager} over TCP. All the connections are served by one
+ * thread with a selector, so idle clients and sessions cost no threads, and
+ * moves are checked and made on that thread as they arrive. Computer moves
+ * are made on the manager's threads and sent to the client that created the
+ * session as they are made.
+ * <p>
+ * Messages use the framing of {@link Connection}, a length byte and then
+ * the message. A client sends:
+ * <pre>
+ * CREATE  type 1, computer sides (1 for player 1, 2 for player 2)
+ * MOVE    type 2, session ID (8 bytes), start index, end index
+ * GET     type 3, session ID (8 bytes)
+ * CLOSE   type 4, session ID (8 bytes)
+ * </pre>
+ * and the server replies with one of:
+ * <pre>
+ * STATE   type 16, session ID (8 bytes), version (4 bytes), position
+ *         (PositionCodec.SIZE bytes)
+ * ERROR   type 17, session ID (8 bytes), code
+ * </pre>
+ * A STATE is also sent after each computer move. A client can only use the
+ * sessions it created, any other session ID gets an UNKNOWN_SESSION error.
+ * Sessions are closed when the client that created them disconnects.
+ * <p>
+ * Usage: {@code java server.GameServer [port]}
+ */
+
+public class GameServer implements Closeable {
+
+	/** The default port to listen on. */
+	public static final int DEFAULT_PORT = 8765;
+
+	// The message types.
+	public static final byte CREATE = 1;
+	public static final byte MOVE = 2;
+	public static final byte GET = 3;
+	public static final byte CLOSE = 4;
+	public static final byte STATE = 16;
+	public static final byte ERROR = 17;
+
+	// The error codes.
+	public static final byte UNKNOWN_SESSION = 1;
+	public static final byte INVALID_MOVE = 2;
+	public static final byte INVALID_MESSAGE = 3;
+
+	/** The length of a STATE message. */
+	public static final int STATE_LENGTH = 13 + PositionCodec.SIZE;
+
+	private final SessionManager manager;
+
+	private final Selector selector;
+
+	private final ServerSocketChannel server;
+
+	/** The clients with messages waiting to be written. */
+	private final Queue<Client> pending = new ConcurrentLinkedQueue<>();
+
+	private final Thread thread;
+
+	private volatile boolean closed;
+
+	/**
+	 * The {@code Client} class is one connection, with the messages waiting
+	 * to be written to it and the sessions it created.
+	 */
+	private class Client implements Session.Listener {
+
+		private final SocketChannel channel;
+
+		private SelectionKey key;
+
+		private final ByteBuffer in =
+				ByteBuffer.allocate(4 * (Connection.MAX_MESSAGE + 1));
+
+		private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+
+		/** The sessions this client created, closed when it disconnects. */
+		private final List<Long> sessions = new ArrayList<>();
+
+		Client(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		// Queues a STATE message, from any thread.
+		@Override
+		public void changed(Session session) {
+			ByteBuffer msg = ByteBuffer.allocate(1 + STATE_LENGTH);
+			msg.put((byte) STATE_LENGTH).put(STATE).putLong(session.getId());
+			session.write(msg);
+			msg.flip();
+			send(msg);
+		}
+
+		// Queues an ERROR message.
+		void error(long id, byte code) {
+			ByteBuffer msg = ByteBuffer.allocate(11);
+			msg.put((byte) 10).put(ERROR).putLong(id).put(code);
+			msg.flip();
+			send(msg);
+		}
+
+		// Queues a framed message and has the selector thread write it.
+		void send(ByteBuffer frame) {
+			out.add(frame);
+			pending.add(this);
+			if (Thread.currentThread() != thread) {
+				selector.wakeup();
+			}
+		}
+
+	}
+
+	/**
+	 * Listens for clients on a port, 0 for any free port.
+	 *
+	 * @throws IOException if the port can't be listened on.
+	 */
+	public GameServer(SessionManager manager, int port) throws IOException {
+		this.manager = manager;
+		this.selector = Selector.open();
+		this.server = ServerSocketChannel.open();
+		try {
+			server.configureBlocking(false);
+			server.bind(new InetSocketAddress(port), 1024);
+			server.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			server.close();
+			selector.close();
+			throw e;
+		}
+		this.thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				loop();
+			}
+		}, "game-server");
+		this.thread.start();
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0)? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		GameServer server = new GameServer(new SessionManager(), port);
+		System.out.println("Listening on port " + server.getPort());
+	}
+
+	// Serves the clients until the server is closed.
+	private void loop() {
+
+		try {
+			while (!closed) {
+				Client c;
+				while ((c = pending.poll()) != null) {
+					try {
+						if (c.key.isValid()) {
+							write(c);
+						}
+					} catch (IOException e) {
+						disconnect(c);
+					}
+				}
+				selector.select();
+				for (SelectionKey k : selector.selectedKeys()) {
+					if (k.isValid() && k.isAcceptable()) {
+						accept();
+					} else if (k.isValid()) {
+						Client client = (Client) k.attachment();
+						try {
+							if (k.isReadable()) {
+								read(client);
+							}
+							if (k.isValid() && k.isWritable()) {
+								write(client);
+							}
+						} catch (IOException e) {
+							disconnect(client);
+						}
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+		} catch (IOException e) {
+			System.err.println("Game server stopped: " + e.getMessage());
+		} finally {
+			for (SelectionKey k : selector.keys()) {
+				if (k.attachment() instanceof Client) {
+					disconnect((Client) k.attachment());
+				}
+			}
+			try {
+				server.close();
+				selector.close();
+			} catch (IOException e) {
+				System.err.println("Could not close the server: "
+						+ e.getMessage());
+			}
+		}
+	}
+
+	// Accepts every waiting client.
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			Client client = new Client(channel);
+			client.key = channel.register(selector, SelectionKey.OP_READ,
+					client);
+		}
+	}
+
+	// Reads what is available and handles every whole message.
+	private void read(Client client) throws IOException {
+
+		ByteBuffer in = client.in;
+		if (client.channel.read(in) < 0) {
+			disconnect(client);
+			return;
+		}
+		in.flip();
+		while (in.remaining() > 0) {
+			int length = in.get(in.position()) & 0xff;
+			if (in.remaining() < length + 1) {
+				break;
+			}
+			int end = in.position() + 1 + length;
+			in.get();
+			ByteBuffer msg = in.slice();
+			msg.limit(length);
+			handle(client, msg);
+			in.position(end);
+		}
+		in.compact();
+	}
+
+	// Handles one message from a client.
+	private void handle(Client client, ByteBuffer msg) {
+
+		byte type = (msg.remaining() > 0)? msg.get() : 0;
+		if (type == CREATE && msg.remaining() >= 1) {
+			byte sides = msg.get();
+			if ((sides & 3) == 3) {
+				client.error(0, INVALID_MESSAGE);
+				return;
+			}
+			Session session = manager.create(
+					((sides & 1) != 0)? new ComputerPlayer() : null,
+					((sides & 2) != 0)? new ComputerPlayer() : null, client);
+			client.sessions.add(session.getId());
+			return;
+		}
+		if (msg.remaining() < 8) {
+			client.error(0, INVALID_MESSAGE);
+			return;
+		}
+		long id = msg.getLong();
+		Session session = client.sessions.contains(id)? manager.get(id) : null;
+		if (session == null) {
+			client.error(id, UNKNOWN_SESSION);
+		} else if (type == MOVE && msg.remaining() >= 2) {
+			int start = msg.get(), end = msg.get();
+			if (!manager.move(id, start, end)) {
+				client.error(id, INVALID_MOVE);
+			} else if (session.getListener() != client) {
+				client.changed(session);
+			}
+		} else if (type == GET) {
+			client.changed(session);
+		} else if (type == CLOSE) {
+			manager.close(id);
+			client.sessions.remove(id);
+		} else {
+			client.error(id, INVALID_MESSAGE);
+		}
+	}
+
+	// Writes queued messages until they are written or the socket is full.
+	private void write(Client client) throws IOException {
+		ByteBuffer frame;
+		while ((frame = client.out.peek()) != null) {
+			client.channel.write(frame);
+			if (frame.hasRemaining()) {
+				client.key.interestOps(
+						SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				return;
+			}
+			client.out.poll();
+		}
+		client.key.interestOps(SelectionKey.OP_READ);
+	}
+
+	// Closes a client's connection and the sessions it created.
+	private void disconnect(Client client) {
+		client.key.cancel();
+		try {
+			client.channel.close();
+		} catch (IOException e) {
+			System.err.println("Could not close a client: " + e.getMessage());
+		}
+		for (long id : client.sessions) {
+			manager.close(id);
+		}
+		client.sessions.clear();
+	}
+
+	public SessionManager getManager() {
+		return manager;
+	}
+
+	// Gets the port the server listens on.
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	// Stops the server and disconnects every client.
+	@Override
+	public void close() {
+		this.closed = true;
+		selector.wakeup();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
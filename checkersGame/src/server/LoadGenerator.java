@@ -0,0 +1,300 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import checkersRules.Game;
+import checkersRules.PositionCodec;
+import network.Connection;
+
+/**
+ * The {@code LoadGenerator} class measures how many sessions and moves a
+ * {@link GameServer} can handle. It starts a server on a free port, opens a
+ * number of idle sessions to see what each one costs, and then connects
+ * clients that each play games against the server's computer player, making
+ * random moves as fast as the replies come back. It reports the moves made
+ * per second and the time from sending a move to getting its reply.
+ * <p>
+ * Usage: {@code java server.LoadGenerator [-idle n] [-clients n]
+ * [-games n] [-threads n]}
+ */
+
+public class LoadGenerator {
+
+	/** The most moves a client makes in one game before starting another. */
+	public static final int MAX_MOVES = 200;
+
+	private final int idle, clients, games, threads;
+
+	/** The number of games finished, moves made and errors, by every client. */
+	private final AtomicLong gamesPlayed = new AtomicLong(),
+			clientMoves = new AtomicLong(), errors = new AtomicLong();
+
+	/** The nanoseconds each move took to be answered, for the percentiles. */
+	private long[] latencies = new long[1024];
+
+	private int latencyCount;
+
+	private long idleBytes;
+
+	private long time;
+
+	private long serverMoves;
+
+	public LoadGenerator(int idle, int clients, int games, int threads) {
+		this.idle = Math.max(0, idle);
+		this.clients = Math.max(1, clients);
+		this.games = Math.max(1, games);
+		this.threads = Math.max(1, threads);
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		int idle = 20000, clients = 50, games = 20;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			int value = Integer.parseInt(args[i + 1]);
+			if (args[i].equals("-idle")) {
+				idle = value;
+			} else if (args[i].equals("-clients")) {
+				clients = value;
+			} else if (args[i].equals("-games")) {
+				games = value;
+			} else if (args[i].equals("-threads")) {
+				threads = value;
+			}
+		}
+		LoadGenerator load = new LoadGenerator(idle, clients, games, threads);
+		load.run();
+		System.out.println(load);
+	}
+
+	/**
+	 * Runs the test and waits for every client to finish its games.
+	 *
+	 * @throws IOException if the server can't be started or connected to.
+	 */
+	public void run() throws IOException, InterruptedException {
+
+		SessionManager manager = new SessionManager(threads);
+		GameServer server = new GameServer(manager, 0);
+		try {
+
+			// Measure the memory used by idle sessions
+			Runtime rt = Runtime.getRuntime();
+			System.gc();
+			long before = rt.totalMemory() - rt.freeMemory();
+			for (int i = 0; i < idle; i ++) {
+				manager.create(null, null);
+			}
+			System.gc();
+			long after = rt.totalMemory() - rt.freeMemory();
+			this.idleBytes = (idle == 0)? 0 : Math.max(0, after - before) / idle;
+
+			// Play the games over the network
+			CountDownLatch done = new CountDownLatch(clients);
+			Bot[] bots = new Bot[clients];
+			long start = System.nanoTime();
+			long movesBefore = manager.getMoves();
+			for (int i = 0; i < clients; i ++) {
+				bots[i] = new Bot(i, done);
+				bots[i].connection = Connection.connect("localhost",
+						server.getPort(), bots[i]);
+				bots[i].create();
+			}
+			if (!done.await(10, TimeUnit.MINUTES)) {
+				errors.incrementAndGet();
+			}
+			this.time = System.nanoTime() - start;
+			this.serverMoves = manager.getMoves() - movesBefore;
+			for (Bot bot : bots) {
+				bot.connection.close();
+			}
+		} finally {
+			server.close();
+			manager.shutdown();
+		}
+	}
+
+	/**
+	 * The {@code Bot} class is one client, which plays player 1 against the
+	 * server's computer, one game at a time.
+	 */
+	private class Bot implements Connection.Listener {
+
+		private final Random random;
+
+		private final CountDownLatch done;
+
+		private Connection connection;
+
+		private final Game game = new Game();
+
+		/** The ID of the last session finished, later ones are current. */
+		private long finished;
+
+		/** The highest version seen of the current session. */
+		private int version = -1;
+
+		/** The moves made in the current game. */
+		private int moves;
+
+		private int played;
+
+		/** When the last move was sent, or 0 if it was answered. */
+		private long sent;
+
+		Bot(int seed, CountDownLatch done) {
+			this.random = new Random(seed);
+			this.done = done;
+		}
+
+		// Starts a new game with the computer playing player 2.
+		void create() {
+			this.version = -1;
+			this.moves = 0;
+			ByteBuffer msg = ByteBuffer.allocate(2);
+			msg.put(GameServer.CREATE).put((byte) 2);
+			msg.flip();
+			connection.send(msg);
+		}
+
+		@Override
+		public void received(ByteBuffer msg) {
+
+			byte type = msg.get();
+			long id = msg.getLong();
+			if (id <= finished && id != 0) {
+				return;
+			}
+			if (type != GameServer.STATE) {
+				errors.incrementAndGet();
+				finish(id);
+				return;
+			}
+			int v = msg.getInt();
+			if (v <= version) {
+				return;
+			}
+			this.version = v;
+			PositionCodec.read(msg, game);
+			if (sent != 0) {
+				addLatency(System.nanoTime() - sent);
+				this.sent = 0;
+			}
+
+			// Make a random move when it is this client's turn
+			if (game.isGameOver() || moves >= MAX_MOVES) {
+				finish(id);
+			} else if (game.isP1Turn()) {
+				int starts = game.getLegalStarts();
+				int s = nth(starts, random.nextInt(Integer.bitCount(starts)));
+				int ends = game.getLegalTargets(s);
+				int e = nth(ends, random.nextInt(Integer.bitCount(ends)));
+				ByteBuffer m = ByteBuffer.allocate(11);
+				m.put(GameServer.MOVE).putLong(id).put((byte) s).put((byte) e);
+				m.flip();
+				this.sent = System.nanoTime();
+				this.moves ++;
+				clientMoves.incrementAndGet();
+				connection.send(m);
+			}
+		}
+
+		// Closes the session and starts the next game, if there is one.
+		private void finish(long id) {
+			this.finished = Math.max(finished, id);
+			ByteBuffer msg = ByteBuffer.allocate(9);
+			msg.put(GameServer.CLOSE).putLong(id);
+			msg.flip();
+			connection.send(msg);
+			gamesPlayed.incrementAndGet();
+			if (++ played < games) {
+				create();
+			} else {
+				done.countDown();
+			}
+		}
+
+		@Override
+		public void closed(IOException cause) {
+			if (played < games) {
+				errors.incrementAndGet();
+				done.countDown();
+			}
+		}
+
+	}
+
+	// Gets the index of the nth set bit.
+	private static int nth(int bits, int n) {
+		for (int i = 0; i < n; i ++) {
+			bits &= bits - 1;
+		}
+		return Integer.numberOfTrailingZeros(bits);
+	}
+
+	private synchronized void addLatency(long nanos) {
+		if (latencyCount == latencies.length) {
+			this.latencies = Arrays.copyOf(latencies, latencyCount * 2);
+		}
+		this.latencies[latencyCount ++] = nanos;
+	}
+
+	/**
+	 * Gets the microseconds within which the fraction of moves were
+	 * answered, such as 0.99 for the 99th percentile.
+	 */
+	public synchronized long getLatency(double fraction) {
+		if (latencyCount == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(latencies, latencyCount);
+		Arrays.sort(sorted);
+		int i = (int) Math.min(latencyCount - 1, fraction * latencyCount);
+		return sorted[i] / 1000;
+	}
+
+	// Gets the number of moves made by clients and the server's computers.
+	public long getMoves() {
+		return serverMoves;
+	}
+
+	public long getClientMoves() {
+		return clientMoves.get();
+	}
+
+	public long getGamesPlayed() {
+		return gamesPlayed.get();
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	// Gets the bytes of memory each idle session took.
+	public long getIdleBytes() {
+		return idleBytes;
+	}
+
+	// Gets the number of moves made per second.
+	public long getMovesPerSecond() {
+		return time <= 0? 0 : serverMoves * 1000000000L / time;
+	}
+
+	@Override
+	public String toString() {
+		return idle + " idle sessions, " + idleBytes + " bytes each\n"
+				+ clients + " clients played " + getGamesPlayed() + " games, "
+				+ serverMoves + " moves in " + (time / 1000000) + " ms = "
+				+ getMovesPerSecond() + " moves/s\n"
+				+ "reply time p50 = " + getLatency(0.5) + " us, p99 = "
+				+ getLatency(0.99) + " us, errors = " + getErrors();
+	}
+
+}
@@ -0,0 +1,198 @@
+package server;
+
+import java.nio.ByteBuffer;
+
+import checkersRules.Game;
+import checkersRules.Logic;
+import checkersRules.Move;
+import checkersRules.PositionCodec;
+import players.Player;
+
+/**
+ * The {@code Session} class is one game hosted by a {@link SessionManager}.
+ * Each side is either played by a client, which sends its moves, or by a
+ * computer {@link Player} that the manager runs when it is that side's turn.
+ * <p>
+ * The session's version counts the moves made, from the game's own version
+ * (see {@link Game#getVersion()}). Moves are made with
+ * {@link Game#compareAndMove(long, int, int)}, so a move found for an older
+ * position is not made, and the game is read through snapshots, so reading
+ * a session never waits for a move being made.
+ */
+
+public class Session {
+
+	/** Told when a session's game changes. */
+	public interface Listener {
+
+		// Called after each move, on the thread that made it, and when a
+		// session is created with the listener.
+		void changed(Session session);
+
+	}
+
+	private final long id;
+
+	/** The manager that runs the computer players. */
+	private final SessionManager manager;
+
+	private final Game game = new Game();
+
+	/** The computer player of each side, or null for a client. */
+	private final Player player1, player2;
+
+	/** The version of the game when the session started. */
+	private final long baseVersion = game.getVersion();
+
+	/** Told after each move, or null. */
+	private volatile Listener listener;
+
+	/** Whether a computer is finding a move for this session. */
+	private boolean computerRunning;
+
+	private volatile boolean closed;
+
+	Session(SessionManager manager, long id, Player player1, Player player2) {
+		this.manager = manager;
+		this.id = id;
+		this.player1 = player1;
+		this.player2 = player2;
+	}
+
+	/**
+	 * Makes a client's move if it is valid, it is a client's turn and the
+	 * session is open, and returns true if it was made.
+	 */
+	public boolean move(int startIndex, int endIndex) {
+		Game current = game.snapshot();
+		if (closed || getComputer(current) != null
+				|| !Logic.isValidMove(current, startIndex, endIndex)
+				|| !game.compareAndMove(current.getVersion(),
+						startIndex, endIndex)) {
+			return false;
+		}
+		changed();
+		return true;
+	}
+
+	/**
+	 * Makes a move if the game is still at the given version, and returns
+	 * true if it was made.
+	 */
+	boolean move(Move move, int expected) {
+		if (closed || move == null || !game.compareAndMove(
+				baseVersion + expected, move.getStartIndex(),
+				move.getEndIndex())) {
+			return false;
+		}
+		changed();
+		return true;
+	}
+
+	// Tells the listener and then the manager that the game changed, so the
+	// listener hears of the moves in order.
+	private void changed() {
+		Listener l = listener;
+		if (l != null) {
+			l.changed(this);
+		}
+		manager.changed(this);
+	}
+
+	/**
+	 * Gets the computer player whose turn it is, or null if it is a client's
+	 * turn or the game is over.
+	 */
+	Player getComputer() {
+		return getComputer(game.snapshot());
+	}
+
+	private Player getComputer(Game current) {
+		return current.isGameOver()? null
+				: current.isP1Turn()? player1 : player2;
+	}
+
+	/**
+	 * Marks that a computer is finding a move, and returns false if one
+	 * already was.
+	 */
+	synchronized boolean startComputer() {
+		if (computerRunning) {
+			return false;
+		}
+		this.computerRunning = true;
+		return true;
+	}
+
+	synchronized void stopComputer() {
+		this.computerRunning = false;
+	}
+
+	// Gets a copy of the game, to find a move on.
+	public Game copy() {
+		return game.snapshot();
+	}
+
+	/**
+	 * Writes the version and then the position of the game (see
+	 * {@link PositionCodec}), {@code 4 + PositionCodec.SIZE} bytes.
+	 */
+	public void write(ByteBuffer buffer) {
+		Game current = game.snapshot();
+		buffer.putInt(getVersion(current));
+		PositionCodec.write(current, buffer);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public int getVersion() {
+		return (int) (game.getVersion() - baseVersion);
+	}
+
+	// Gets the session's version of a snapshot of the game.
+	private int getVersion(Game current) {
+		return (int) (current.getVersion() - baseVersion);
+	}
+
+	public String getGameState() {
+		return game.snapshot().getGameState();
+	}
+
+	public boolean isGameOver() {
+		return game.snapshot().isGameOver();
+	}
+
+	public Player getPlayer1() {
+		return player1;
+	}
+
+	public Player getPlayer2() {
+		return player2;
+	}
+
+	public Listener getListener() {
+		return listener;
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	// Stops the session taking any more moves.
+	void close() {
+		this.closed = true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[id=" + id + ", version="
+				+ getVersion() + ", closed=" + closed + "]";
+	}
+
+}
@@ -0,0 +1,205 @@
+package server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import checkersRules.Game;
+import checkersRules.Move;
+import players.Player;
+
+/**
+ * The {@code SessionManager} class hosts many games at once without a user
+ * interface, each a {@link Session} with its own ID. Clients make moves by
+ * session ID, and the moves are checked with {@code Logic} before they are
+ * made. When it is a computer player's turn, its move is found on a shared
+ * pool of threads, on a copy of the game so that the session can still be
+ * read meanwhile.
+ * <p>
+ * An idle session is only its game and players, it has no thread of its own,
+ * so a manager can hold a great many of them. Every method can be called
+ * from any thread.
+ */
+
+public class SessionManager {
+
+	/** The sessions by ID. */
+	private final ConcurrentHashMap<Long, Session> sessions =
+			new ConcurrentHashMap<>();
+
+	/** The next session ID. */
+	private final AtomicLong nextId = new AtomicLong(1);
+
+	/** The threads that computer players think on. */
+	private final ExecutorService computers;
+
+	/** The number of moves made by clients and by computers. */
+	private final AtomicLong moves = new AtomicLong(),
+			computerMoves = new AtomicLong();
+
+	/** The number of client moves that weren't made. */
+	private final AtomicLong rejected = new AtomicLong();
+
+	public SessionManager() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	// Creates a manager that runs computer players on a number of threads.
+	public SessionManager(int threads) {
+		this.computers = Executors.newFixedThreadPool(Math.max(1, threads),
+				new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "session-computer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Starts a new game. Each side is played by the given computer player,
+	 * or by a client if it is null.
+	 *
+	 * @throws IllegalArgumentException if both sides are computers, as the
+	 * game might never end.
+	 */
+	public Session create(Player player1, Player player2) {
+		return create(player1, player2, null);
+	}
+
+	/**
+	 * Starts a new game with a listener, which is told of the new session
+	 * before any computer moves.
+	 *
+	 * @throws IllegalArgumentException if both sides are computers.
+	 */
+	public Session create(Player player1, Player player2,
+			Session.Listener listener) {
+		if (player1 != null && player2 != null) {
+			throw new IllegalArgumentException("A client must play one side");
+		}
+		Session session = new Session(this, nextId.getAndIncrement(),
+				player1, player2);
+		sessions.put(session.getId(), session);
+		if (listener != null) {
+			session.setListener(listener);
+			listener.changed(session);
+		}
+		runComputer(session);
+		return session;
+	}
+
+	// Gets a session, or null if there is none with the ID.
+	public Session get(long id) {
+		return sessions.get(id);
+	}
+
+	/**
+	 * Makes a client's move in a session, and returns true if the move was
+	 * made. Computer moves that follow are made afterwards.
+	 */
+	public boolean move(long id, int startIndex, int endIndex) {
+		Session session = sessions.get(id);
+		if (session == null || !session.move(startIndex, endIndex)) {
+			rejected.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Ends a session, and returns false if there was none with the ID. A
+	 * computer move being found for it is not made.
+	 */
+	public boolean close(long id) {
+		Session session = sessions.remove(id);
+		if (session == null) {
+			return false;
+		}
+		session.close();
+		return true;
+	}
+
+	// Counts a move made in a session and runs a computer player if needed.
+	void changed(Session session) {
+		moves.incrementAndGet();
+		runComputer(session);
+	}
+
+	// Finds the computer player's moves if it is its turn.
+	private void runComputer(final Session session) {
+
+		if (session.getComputer() == null || !session.startComputer()) {
+			return;
+		}
+		computers.execute(new Runnable() {
+
+			@Override
+			public void run() {
+
+				// Make moves until it is a client's turn
+				boolean clientsTurn = false;
+				try {
+					while (!session.isClosed()) {
+						Player player = session.getComputer();
+						if (player == null) {
+							clientsTurn = true;
+							break;
+						}
+						int version = session.getVersion();
+						Game game = session.copy();
+						Move move = player.getMove(game);
+						if (!session.move(move, version)) {
+							break;
+						}
+						computerMoves.incrementAndGet();
+					}
+				} finally {
+					session.stopComputer();
+				}
+
+				// A move made as this finished may need another turn
+				if (clientsTurn) {
+					runComputer(session);
+				}
+			}
+		});
+	}
+
+	// Gets the number of open sessions.
+	public int size() {
+		return sessions.size();
+	}
+
+	// Gets the number of moves made in every session.
+	public long getMoves() {
+		return moves.get();
+	}
+
+	// Gets the number of moves made by computer players.
+	public long getComputerMoves() {
+		return computerMoves.get();
+	}
+
+	// Gets the number of client moves that weren't made.
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	// Stops the computer players' threads.
+	public void shutdown() {
+		computers.shutdownNow();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[sessions=" + size()
+				+ ", moves=" + getMoves() + ", computerMoves="
+				+ getComputerMoves() + ", rejected=" + getRejected() + "]";
+	}
+
+}
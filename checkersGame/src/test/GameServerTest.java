@@ -0,0 +1,144 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import checkersRules.Game;
+import network.Connection;
+import players.ComputerPlayer;
+import server.GameServer;
+import server.LoadGenerator;
+import server.Session;
+import server.SessionManager;
+
+public class GameServerTest {
+
+	@Test
+	public void testSessions() throws Exception {
+
+		SessionManager manager = new SessionManager(2);
+		try {
+			Session a = manager.create(null, new ComputerPlayer());
+			Session b = manager.create(null, null);
+			assertEquals(2, manager.size());
+			assertNotEquals(a.getId(), b.getId());
+			assertSame(a, manager.get(a.getId()));
+
+			// Invalid moves and moves out of turn aren't made
+			assertFalse(manager.move(a.getId(), 9, 15));
+			assertFalse(manager.move(-1, 9, 13));
+			assertEquals(2, manager.getRejected());
+
+			// The computer replies to a client's move
+			assertTrue(manager.move(a.getId(), 9, 13));
+			long end = System.currentTimeMillis() + 5000;
+			while (a.getVersion() < 2 && System.currentTimeMillis() < end) {
+				Thread.sleep(1);
+			}
+			assertEquals(2, a.getVersion());
+			Game game = a.copy();
+			assertTrue(game.isP1Turn());
+			assertFalse(manager.move(a.getId(), 9, 13));
+
+			// Sessions are independent and can be closed
+			assertEquals(new Game().getGameState(), b.getGameState());
+			assertTrue(manager.close(b.getId()));
+			assertFalse(manager.close(b.getId()));
+			assertNull(manager.get(b.getId()));
+			assertThrows(IllegalArgumentException.class, () -> manager.create(
+					new ComputerPlayer(), new ComputerPlayer()));
+		} finally {
+			manager.shutdown();
+		}
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		LoadGenerator load = new LoadGenerator(100, 4, 3, 1);
+		load.run();
+		assertEquals(0, load.getErrors());
+		assertEquals(12, load.getGamesPlayed());
+		assertTrue(load.getMoves() > load.getClientMoves());
+	}
+
+	@Test
+	public void testOwnSessionsOnly() throws Exception {
+
+		SessionManager manager = new SessionManager(1);
+		GameServer server = new GameServer(manager, 0);
+		BlockingQueue<ByteBuffer> owner = new LinkedBlockingQueue<>();
+		BlockingQueue<ByteBuffer> other = new LinkedBlockingQueue<>();
+		Connection a = Connection.connect("localhost", server.getPort(),
+				collect(owner));
+		Connection b = Connection.connect("localhost", server.getPort(),
+				collect(other));
+		try {
+			a.send(message(GameServer.CREATE, 0, 0, 0));
+			ByteBuffer state = owner.poll(5, TimeUnit.SECONDS);
+			assertEquals(GameServer.STATE, state.get());
+			long id = state.getLong();
+
+			// Another client can't move in, read or close the session
+			for (byte type : new byte[] {GameServer.MOVE, GameServer.GET,
+					GameServer.CLOSE}) {
+				b.send(message(type, id, 9, 13));
+				ByteBuffer reply = other.poll(5, TimeUnit.SECONDS);
+				assertEquals(GameServer.ERROR, reply.get());
+				assertEquals(id, reply.getLong());
+				assertEquals(GameServer.UNKNOWN_SESSION, reply.get());
+			}
+			assertEquals(0, manager.get(id).getVersion());
+
+			// The client that created it still can
+			a.send(message(GameServer.MOVE, id, 9, 13));
+			state = owner.poll(5, TimeUnit.SECONDS);
+			assertEquals(GameServer.STATE, state.get());
+			assertEquals(id, state.getLong());
+			assertEquals(1, state.getInt());
+		} finally {
+			a.close();
+			b.close();
+			server.close();
+			manager.shutdown();
+		}
+	}
+
+	// Builds a message with a type, session ID and two indices.
+	private static ByteBuffer message(byte type, long id, int start, int end) {
+		ByteBuffer msg = ByteBuffer.allocate(11);
+		msg.put(type);
+		if (type == GameServer.CREATE) {
+			msg.put((byte) start);
+		} else {
+			msg.putLong(id).put((byte) start).put((byte) end);
+		}
+		msg.flip();
+		return msg;
+	}
+
+	// Gets a listener that keeps a copy of every message received.
+	private static Connection.Listener collect(
+			final BlockingQueue<ByteBuffer> messages) {
+		return new Connection.Listener() {
+
+			@Override
+			public void received(ByteBuffer message) {
+				ByteBuffer copy = ByteBuffer.allocate(message.remaining());
+				copy.put(message).flip();
+				messages.add(copy);
+			}
+
+			@Override
+			public void closed(IOException cause) {
+			}
+		};
+	}
+
+}
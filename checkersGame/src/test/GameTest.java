@@ -0,0 +1,287 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import checkersRules.BitBoard;
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.Logic;
+import checkersRules.MoveList;
+import checkersRules.PackedMove;
+import checkersRules.PositionCodec;
+import checkersRules.Undo;
+
+public class GameTest {
+
+	@Test
+	public void testKey() {
+
+		// The key is updated with each move and matches a fresh game
+		Game game = new Game();
+		long start = game.getKey();
+		assertTrue(game.move(9, 13));
+		assertNotEquals(start, game.getKey());
+		assertEquals(new Game(game.getGameState()).getKey(), game.getKey());
+
+		// Whose turn it is and the skip index are part of the key
+		Game other = game.copy();
+		other.setP1Turn(!other.isP1Turn());
+		assertNotEquals(game.getKey(), other.getKey());
+		assertNotEquals(game.getKey(), new Game(game.getGameState()
+				.substring(0, 33) + "13").getKey());
+	}
+
+	@Test
+	public void testMakeUnmake() {
+
+		// Making then taking back every move leaves the game as it was, and
+		// making a move gives the same game as move()
+		Random random = new Random(1);
+		MoveList moves = new MoveList();
+		for (int g = 0; g < 20; g ++) {
+			Game game = new Game();
+			for (int ply = 0; ply < 200 && !game.isGameOver(); ply ++) {
+				String state = game.getGameState();
+				long key = game.getKey();
+				moves.clear();
+				int n = BitBoard.generate(game.getBoard(), game.isP1Turn(),
+						game.getSkipIndex(), moves);
+				for (int i = 0; i < n; i ++) {
+					int m = moves.get(i);
+					int undo = game.makeMove(m);
+					assertEquals(PackedMove.isPromotion(m),
+							Undo.isPromotion(undo));
+					Game other = new Game(state);
+					assertTrue(other.move(PackedMove.getStartIndex(m),
+							PackedMove.getEndIndex(m)));
+					assertEquals(other.getGameState(), game.getGameState());
+					game.unmakeMove(undo);
+					assertEquals(state, game.getGameState());
+					assertEquals(key, game.getKey());
+				}
+				int m = moves.get(random.nextInt(n));
+				assertNotEquals(Undo.NONE, game.makeMove(
+						PackedMove.getStartIndex(m), PackedMove.getEndIndex(m)));
+			}
+		}
+
+		// An invalid move isn't made
+		Game game = new Game();
+		assertEquals(Undo.NONE, game.makeMove(9, 17));
+		assertEquals(new Game().getGameState(), game.getGameState());
+	}
+
+	@Test
+	public void testCounts() {
+
+		// With debug on, every move checks the counts against the board
+		boolean debug = Game.isDebug();
+		Game.setDebug(true);
+		try {
+			Random random = new Random(2);
+			MoveList moves = new MoveList();
+			for (int g = 0; g < 20; g ++) {
+				Game game = new Game();
+				for (int ply = 0; ply < 200 && !game.isGameOver(); ply ++) {
+					moves.clear();
+					int n = BitBoard.generate(game.getBoard(), game.isP1Turn(),
+							game.getSkipIndex(), moves);
+					int undo = game.makeMove(moves.get(random.nextInt(n)));
+					if (random.nextInt(4) == 0) {
+						game.unmakeMove(undo);
+					}
+				}
+			}
+		} finally {
+			Game.setDebug(debug);
+		}
+
+		Game game = new Game("00000000000000000000000000000075" + "1-1");
+		assertEquals(1, game.getPieceCount(true));
+		assertEquals(1, game.getKingCount(true));
+		assertEquals(1, game.getPieceCount(false));
+		assertEquals(1, game.getKingCount(false));
+		assertEquals(0, game.getThreatenedCount(false));
+	}
+
+	@Test
+	public void testLegalMoves() {
+
+		// The cached moves agree with the rules as the game changes
+		Random random = new Random(3);
+		Game game = new Game();
+		for (int ply = 0; ply < 200 && !game.isGameOver(); ply ++) {
+			Board b = game.getBoard();
+			int moves = 0;
+			for (int start = 0; start < 32; start ++) {
+				for (int end = 0; end < 32; end ++) {
+					boolean valid = Logic.isValidMove(b, game.isP1Turn(),
+							start, end, game.getSkipIndex());
+					assertEquals(valid, game.isLegalMove(start, end));
+					moves += valid? 1 : 0;
+				}
+			}
+			int starts = game.getLegalStarts();
+			int start = 0;
+			for (int i = random.nextInt(Integer.bitCount(starts)); i >= 0; i --) {
+				start = Integer.numberOfTrailingZeros(starts);
+				starts &= starts - 1;
+			}
+			int targets = game.getLegalTargets(start);
+			assertTrue(moves > 0 && targets != 0);
+			assertTrue(game.move(start, Integer.numberOfTrailingZeros(targets)));
+		}
+
+		// The cache is cleared when the game is set
+		game.restart();
+		assertTrue(game.isLegalMove(9, 13));
+		game.setP1Turn(false);
+		assertFalse(game.isLegalMove(9, 13));
+		assertTrue(game.isLegalMove(22, 18));
+		game.setGameState("00000000060000400000000000000000" + "1-1");
+		assertTrue(game.isForcedCapture());
+		assertFalse(game.isLegalMove(9, 13));
+	}
+
+	@Test
+	public void testPositionCodec() {
+
+		// Positions from random games survive a round trip through the
+		// binary form and the string form
+		Random random = new Random(4);
+		Game[] games = new Game[50];
+		Game game = new Game();
+		for (int i = 0; i < games.length; i ++) {
+			if (game.isGameOver()) {
+				game.restart();
+			}
+			int starts = game.getLegalStarts();
+			for (int j = random.nextInt(Integer.bitCount(starts)); j > 0; j --) {
+				starts &= starts - 1;
+			}
+			int start = Integer.numberOfTrailingZeros(starts);
+			assertTrue(game.move(start, Integer.numberOfTrailingZeros(
+					game.getLegalTargets(start))));
+			games[i] = game.copy();
+		}
+		byte[] data = PositionCodec.encode(games);
+		assertEquals(games.length * PositionCodec.SIZE, data.length);
+		Game[] decoded = PositionCodec.decode(data);
+		for (int i = 0; i < games.length; i ++) {
+			String state = games[i].getGameState();
+			assertEquals(state, decoded[i].getGameState());
+			assertEquals(games[i].getKey(), decoded[i].getKey());
+			assertEquals(games[i].getPieceCount(true),
+					decoded[i].getPieceCount(true));
+			assertEquals(state, PositionCodec.toGameState(data,
+					i * PositionCodec.SIZE));
+			byte[] single = new byte[PositionCodec.SIZE];
+			PositionCodec.fromGameState(state, single, 0);
+			assertEquals(state, PositionCodec.read(ByteBuffer.wrap(single))
+					.getGameState());
+		}
+
+		// The skip index is kept, and a bad one is read as none
+		game = new Game(new Game().getGameState().substring(0, 33) + "13");
+		ByteBuffer buffer = ByteBuffer.allocate(PositionCodec.SIZE);
+		PositionCodec.write(game, buffer);
+		assertEquals(PositionCodec.SIZE, buffer.position());
+		buffer.flip();
+		assertEquals(13, PositionCodec.read(buffer).getSkipIndex());
+		buffer.put(13, (byte) 40);
+		buffer.rewind();
+		assertEquals(-1, PositionCodec.read(buffer).getSkipIndex());
+	}
+
+	@Test
+	public void testVersion() throws Exception {
+
+		// Every change adds to the version, and stale moves aren't made
+		Game game = new Game();
+		long v = game.getVersion();
+		assertTrue(game.move(9, 13));
+		assertEquals(v + 1, game.getVersion());
+		assertFalse(game.compareAndMove(v, 10, 14));
+		assertTrue(game.compareAndMove(v + 1, 22, 17));
+		int s = Integer.numberOfTrailingZeros(game.getLegalStarts());
+		int undo = game.makeMove(s,
+				Integer.numberOfTrailingZeros(game.getLegalTargets(s)));
+		game.unmakeMove(undo);
+		assertEquals(v + 4, game.getVersion());
+		assertFalse(game.compareAndSetState(v, ""));
+		assertTrue(game.compareAndSetState(v + 4, ""));
+		assertEquals(new Game().getGameState(), game.getGameState());
+		Game copy = game.snapshot();
+		assertEquals(game.getVersion(), copy.getVersion());
+		int[] position = new int[4];
+		assertEquals(game.getVersion(), game.readPosition(position));
+		assertEquals(game.getPlane(1), position[1]);
+		assertEquals(1, position[3]);
+
+		// Only one of the threads racing to move from a version wins
+		final Game shared = new Game();
+		final long start = shared.getVersion();
+		final AtomicInteger wins = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i ++) {
+			final int from = 8 + i;
+			threads[i] = new Thread(() -> {
+				int e = Integer.numberOfTrailingZeros(
+						shared.snapshot().getLegalTargets(from));
+				if (shared.compareAndMove(start, from, e)) {
+					wins.incrementAndGet();
+				}
+			});
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(1, wins.get());
+		assertEquals(start + 1, shared.getVersion());
+
+		// Snapshots taken while another thread plays are consistent
+		final AtomicInteger failed = new AtomicInteger();
+		Thread writer = new Thread(() -> {
+			Random random = new Random(7);
+			for (int i = 0; i < 20000; i ++) {
+				Game g = shared.snapshot();
+				int starts = g.getLegalStarts();
+				if (starts == 0) {
+					shared.restart();
+					continue;
+				}
+				int from = Integer.numberOfTrailingZeros(starts);
+				int ends = g.getLegalTargets(from);
+				for (int j = random.nextInt(Integer.bitCount(ends)); j > 0; j --) {
+					ends &= ends - 1;
+				}
+				if (!shared.compareAndMove(g.getVersion(), from,
+						Integer.numberOfTrailingZeros(ends))) {
+					failed.incrementAndGet();
+				}
+			}
+		});
+		writer.start();
+		while (writer.isAlive()) {
+			Game g = shared.snapshot();
+			assertEquals(new Game(g.getGameState()).getKey(), g.getKey());
+			assertEquals(Integer.bitCount(g.getBlack()), g.getPieceCount(true));
+			assertEquals(Integer.bitCount(g.getWhite()),
+					g.getPieceCount(false));
+			shared.readPosition(position);
+			assertEquals(0, position[1] & ~position[0]);
+		}
+		writer.join();
+		assertEquals(0, failed.get());
+	}
+
+}
@@ -0,0 +1,126 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import checkersRules.BitBoard;
+import checkersRules.Board;
+import checkersRules.MoveGenerate;
+import checkersRules.MoveList;
+import checkersRules.PackedMove;
+import checkersRules.Tiles;
+
+public class MoveGenerateTest {
+
+	@Test
+	public void testStartMovers() {
+
+		// Only the front row of each side can move at the start
+		Board b = new Board();
+		assertEquals(0x00000F00, BitBoard.getMovers(b, true));
+		assertEquals(0x00F00000, BitBoard.getMovers(b, false));
+		assertEquals(0, BitBoard.getJumpers(b, true));
+		assertEquals(0, BitBoard.getJumpers(b, false));
+
+		int count = 0;
+		for (int i = 0; i < 32; i ++) {
+			if (b.get(i) == Board.BLACK_CHECKER) {
+				count += MoveGenerate.getMoves(b, i).size();
+			}
+		}
+		assertEquals(7, count);
+	}
+
+	@Test
+	public void testSkips() {
+
+		// A black checker on (1, 2) and a white checker on (2, 3)
+		Board b = new Board();
+		for (int i = 0; i < 32; i ++) {
+			b.set(i, Board.EMPTY);
+		}
+		b.set(1, 2, Board.BLACK_CHECKER);
+		b.set(2, 3, Board.WHITE_CHECKER);
+
+		List<Point> skips = MoveGenerate.getSkips(b, new Point(1, 2));
+		assertEquals(1, skips.size());
+		assertEquals(new Point(3, 4), skips.get(0));
+		assertEquals(1 << Board.toIndex(1, 2), BitBoard.getJumpers(b, true));
+
+		assertEquals(1 << Board.toIndex(2, 3), BitBoard.getJumpers(b, false));
+
+		// A white checker can't skip backwards, but a white king can
+		b.set(2, 3, Board.EMPTY);
+		b.set(2, 1, Board.WHITE_CHECKER);
+		assertEquals(0, BitBoard.getJumpers(b, false));
+		assertEquals(0, BitBoard.getJumpers(b, true));
+		b.set(2, 1, Board.WHITE_KING);
+		assertEquals(1 << Board.toIndex(2, 1), BitBoard.getJumpers(b, false));
+		assertEquals(new Point(0, 3), MoveGenerate.getSkips(b,
+				new Point(2, 1)).get(0));
+		int king = Board.toIndex(2, 1);
+		assertEquals(1 << Board.toIndex(0, 3), BitBoard.getSkipTargets(
+				b.getBlack(), b.getWhite(), b.getKings(), king));
+		assertEquals(BitBoard.getSkipTargets(b, king), BitBoard.getSkipTargets(
+				b.getBlack(), b.getWhite(), b.getKings(), king));
+	}
+
+	@Test
+	public void testGenerate() {
+
+		// The start position has 7 regular moves for each side
+		MoveList moves = new MoveList();
+		assertEquals(7, BitBoard.generate(new Board(), true, -1, moves));
+		assertEquals(7, BitBoard.generate(new Board(), false, -1, moves));
+		assertEquals(14, moves.size());
+		for (int i = 0; i < moves.size(); i ++) {
+			assertFalse(PackedMove.isSkip(moves.get(i)));
+		}
+
+		// A skip must be taken and a checker is kinged on the far row
+		Board b = new Board();
+		for (int i = 0; i < 32; i ++) {
+			b.set(i, Board.EMPTY);
+		}
+		b.set(2, 5, Board.BLACK_CHECKER);
+		b.set(3, 6, Board.WHITE_CHECKER);
+		b.set(6, 1, Board.BLACK_CHECKER);
+		moves.clear();
+		assertEquals(1, BitBoard.generate(b, true, -1, moves));
+		int m = moves.get(0);
+		assertEquals(Board.toIndex(2, 5), PackedMove.getStartIndex(m));
+		assertEquals(Board.toIndex(4, 7), PackedMove.getEndIndex(m));
+		assertEquals(1 << Board.toIndex(3, 6), PackedMove.getCaptured(m));
+		assertTrue(PackedMove.isPromotion(m));
+	}
+
+	@Test
+	public void testTiles() {
+
+		// The tables agree with the coordinates of each tile
+		for (int i = 0; i < 32; i ++) {
+			Point p = Board.toPoint(i);
+			assertEquals(Board.toIndex(p.x + 1, p.y + 1),
+					Tiles.neighbor(i, BitBoard.DOWN_RIGHT));
+			assertEquals(Board.toIndex(p.x - 1, p.y - 1),
+					Tiles.neighbor(i, BitBoard.UP_LEFT));
+			for (int dir = 0; dir < 4; dir ++) {
+				int jump = Tiles.jump(i, dir);
+				if (jump >= 0) {
+					assertEquals(Tiles.neighbor(i, dir), Tiles.middle(i, jump));
+					assertEquals(Board.middle(p, Board.toPoint(jump)),
+							Board.toPoint(Tiles.middle(i, jump)));
+					assertEquals(dir, Tiles.direction(i, jump));
+				}
+			}
+		}
+		assertEquals(-1, Tiles.middle(0, 1));
+		assertEquals(-1, Tiles.direction(0, 31));
+		assertEquals(-1, Tiles.middle(-1, 9));
+	}
+
+}
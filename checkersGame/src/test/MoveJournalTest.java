@@ -0,0 +1,122 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import checkersRules.Game;
+import database.MoveJournal;
+
+public class MoveJournalTest {
+
+	@Test
+	public void testRestore() throws IOException {
+
+		File file = File.createTempFile("journal", ".cmj");
+		file.delete();
+		file.deleteOnExit();
+		MoveJournal journal = MoveJournal.open(file, MoveJournal.SYNC_ALWAYS);
+		assertNull(journal.getRestored());
+		assertEquals(0, journal.getRecords());
+
+		// Each move is a record after the checkpoint of the attached game
+		journal.setCheckpointInterval(4);
+		Game game = new Game();
+		journal.attach(game);
+		Random random = new Random(3);
+		for (int i = 0; i < 10; i ++) {
+			play(game, random);
+		}
+		assertEquals(1 + 10 + 2, journal.getRecords());
+		String state = game.getGameState();
+		journal.close();
+		assertNull(game.getListener());
+
+		// The game is restored, and a restart starts from a checkpoint
+		journal = MoveJournal.open(file);
+		assertEquals(state, journal.getRestored().getGameState());
+		assertEquals(game.getKey(), journal.getRestored().getKey());
+		game = journal.getRestored();
+		journal.attach(game);
+		play(game, random);
+		game.restart();
+		assertTrue(game.move(9, 13));
+		journal.close();
+		journal = MoveJournal.open(file);
+		assertEquals(game.getGameState(), journal.getRestored().getGameState());
+		long records = journal.getRecords();
+		journal.close();
+
+		// A record that was only partly written is left out
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		long last = MoveJournal.HEADER_SIZE
+				+ (records - 1) * MoveJournal.RECORD_SIZE;
+		raf.seek(last + 8);
+		raf.writeLong(0);
+		raf.close();
+		journal = MoveJournal.open(file);
+		assertEquals(new Game().getGameState(),
+				journal.getRestored().getGameState());
+		assertEquals(records - 1, journal.getRecords());
+		journal.close();
+
+		// Other files aren't read as journals
+		raf = new RandomAccessFile(file, "rw");
+		raf.writeInt(0);
+		raf.close();
+		assertThrows(IOException.class, () -> MoveJournal.open(file));
+	}
+
+	@Test
+	public void testSegments() throws IOException {
+
+		File file = File.createTempFile("journal", ".cmj");
+		file.delete();
+		file.deleteOnExit();
+		MoveJournal journal = MoveJournal.open(file, MoveJournal.SYNC_NEVER);
+		Game game = new Game();
+		journal.attach(game);
+
+		// Play games until the records fill more than one segment
+		Random random = new Random(5);
+		while (journal.getRecords() <= MoveJournal.SEGMENT_RECORDS) {
+			for (int i = 0; i < 1000; i ++) {
+				if (game.isGameOver()) {
+					game.restart();
+				} else {
+					play(game, random);
+				}
+			}
+		}
+		String state = game.getGameState();
+		long records = journal.getRecords();
+		journal.close();
+		assertTrue(file.length() > MoveJournal.HEADER_SIZE
+				+ (long) MoveJournal.SEGMENT_RECORDS * MoveJournal.RECORD_SIZE);
+
+		journal = MoveJournal.open(file);
+		assertEquals(records, journal.getRecords());
+		assertEquals(state, journal.getRestored().getGameState());
+		journal.close();
+	}
+
+	// Makes a random legal move.
+	private static void play(Game game, Random random) {
+		int starts = game.getLegalStarts();
+		for (int j = random.nextInt(Integer.bitCount(starts)); j > 0; j --) {
+			starts &= starts - 1;
+		}
+		int start = Integer.numberOfTrailingZeros(starts);
+		int ends = game.getLegalTargets(start);
+		for (int j = random.nextInt(Integer.bitCount(ends)); j > 0; j --) {
+			ends &= ends - 1;
+		}
+		assertTrue(game.move(start, Integer.numberOfTrailingZeros(ends)));
+	}
+
+}
@@ -0,0 +1,163 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.PackedMove;
+import checkersRules.Undo;
+import database.PdnGame;
+import database.PdnImporter;
+import database.PdnReader;
+import database.PdnWriter;
+
+public class PdnTest {
+
+	@Test
+	public void testSquares() {
+		assertEquals(0, PdnGame.toIndex(1));
+		assertEquals(31, PdnGame.toIndex(32));
+		assertEquals(-1, PdnGame.toIndex(0));
+		assertEquals(-1, PdnGame.toIndex(33));
+		assertEquals(12, PdnGame.toSquare(11));
+		assertEquals(-1, PdnGame.toSquare(32));
+
+		// Black starts on squares 1 to 12 and moves first
+		Game game = new Game();
+		assertEquals(Board.BLACK_CHECKER, game.getBoard().get(PdnGame.toIndex(12)));
+		assertEquals(Board.WHITE_CHECKER, game.getBoard().get(PdnGame.toIndex(21)));
+		assertEquals(game.getGameState(), PdnGame.parseFen("B:W21-32:B1-12"));
+	}
+
+	@Test
+	public void testParse() {
+
+		PdnGame pdn = PdnGame.parse("[Event \"Test \\\"game\\\"\"]\n"
+				+ "[Result \"0-1\"]\n"
+				+ "[FEN \"B:W6,15,32:B1\"]\n\n"
+				+ "1. 1x19 {a double skip, shortened} 32-27 (1... 32-28)"
+				+ " 2. 19-23 $1 27x18 0-1\n");
+		assertEquals("Test \"game\"", pdn.getTag("Event"));
+		assertEquals(PdnGame.WHITE_WIN, pdn.getResult());
+		assertEquals(5, pdn.getMoveCount());
+		assertTrue(PackedMove.isSkip(pdn.getMove(0)));
+		assertEquals(PdnGame.toIndex(10), PackedMove.getEndIndex(pdn.getMove(0)));
+		assertEquals(PdnGame.toIndex(19), PackedMove.getEndIndex(pdn.getMove(1)));
+		Game game = pdn.replay();
+		assertEquals(Board.WHITE_CHECKER, game.getBoard().get(PdnGame.toIndex(18)));
+		assertTrue(game.isGameOver());
+		assertEquals("1. 1x10x19 32-27 2. 19-23 27x18 0-1", pdn.getMoveText());
+
+		// Invalid and unfinished moves are errors
+		assertThrows(IllegalArgumentException.class,
+				() -> PdnGame.parse("1. 9-15 *"));
+		assertThrows(IllegalArgumentException.class,
+				() -> PdnGame.parse("[FEN \"B:W6,15,32:B1\"]\n1. 1x10 *"));
+		assertThrows(IllegalArgumentException.class,
+				() -> PdnGame.parse("[FEN \"X:W6:B1\"]\n*"));
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+
+		// Random games are written and read back the same
+		List<PdnGame> games = getGames(20, 5);
+		StringWriter sw = new StringWriter();
+		try (PdnWriter writer = new PdnWriter(sw)) {
+			for (PdnGame pdn : games) {
+				writer.write(pdn);
+			}
+		}
+		try (PdnReader reader = new PdnReader(new StringReader(sw.toString()))) {
+			for (PdnGame pdn : games) {
+				PdnGame read = reader.next();
+				assertEquals(pdn.getTags(), read.getTags());
+				assertEquals(pdn.getResult(), read.getResult());
+				assertEquals(pdn.getMoveCount(), read.getMoveCount());
+				for (int i = 0; i < pdn.getMoveCount(); i ++) {
+					assertEquals(pdn.getMove(i), read.getMove(i));
+				}
+				assertEquals(pdn.replay().getGameState(),
+						read.replay().getGameState());
+			}
+			assertNull(reader.next());
+			assertEquals(games.size(), reader.getGames());
+		}
+	}
+
+	@Test
+	public void testImport() throws IOException {
+
+		// Every game reaches the handler, and a bad one is counted
+		List<PdnGame> games = getGames(200, 6);
+		StringWriter sw = new StringWriter();
+		PdnWriter writer = new PdnWriter(sw);
+		for (PdnGame pdn : games) {
+			writer.write(pdn);
+		}
+		writer.flush();
+		String text = sw.toString() + "[Event \"Bad\"]\n\n1. 9-18 *\n";
+		byte[] data = text.getBytes(StandardCharsets.UTF_8);
+
+		final List<String> events = Collections.synchronizedList(
+				new ArrayList<String>());
+		PdnImporter.Stats stats = new PdnImporter.Stats("test");
+		new PdnImporter(4).importStream(new ByteArrayInputStream(data),
+				new PdnImporter.Handler() {
+					@Override
+					public void handle(PdnGame game) {
+						events.add(game.getTag("Event"));
+					}
+				}, stats);
+		assertEquals(games.size(), events.size());
+		assertEquals(games.size(), stats.getGames());
+		assertEquals(1, stats.getErrors());
+		assertEquals(data.length, stats.getBytes());
+		long moves = 0;
+		for (PdnGame pdn : games) {
+			moves += pdn.getMoveCount();
+		}
+		assertEquals(moves, stats.getMoves());
+		assertFalse(events.contains("Bad"));
+	}
+
+	// Plays random games and records them.
+	private static List<PdnGame> getGames(int count, long seed) {
+
+		Random random = new Random(seed);
+		List<PdnGame> games = new ArrayList<>();
+		for (int g = 0; g < count; g ++) {
+			PdnGame pdn = new PdnGame();
+			pdn.setTag("Event", "Game " + g);
+			Game game = new Game();
+			for (int ply = 0; (ply < 150 || Board.isValidIndex(
+					game.getSkipIndex())) && !game.isGameOver(); ply ++) {
+				int starts = game.getLegalStarts();
+				for (int i = random.nextInt(Integer.bitCount(starts)); i > 0; i --) {
+					starts &= starts - 1;
+				}
+				int start = Integer.numberOfTrailingZeros(starts);
+				int end = Integer.numberOfTrailingZeros(
+						game.getLegalTargets(start));
+				pdn.addMove(Undo.getMove(game.makeMove(start, end)));
+			}
+			pdn.setResult(game.isGameOver()? (game.isP1Turn()?
+					PdnGame.WHITE_WIN : PdnGame.BLACK_WIN) : PdnGame.DRAW);
+			games.add(pdn);
+		}
+		return games;
+	}
+
+}
@@ -0,0 +1,36 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import checkersRules.Game;
+import tools.Perft;
+
+public class PerftTest {
+
+	@Test
+	public void testStartPosition() {
+
+		// No multiple skips are possible this early, so the counts match the
+		// published perft results for checkers
+		final long[] expected = {1, 7, 49, 302, 1469, 7361, 36768};
+		Perft perft = new Perft(Perft.FAST);
+		for (int depth = 0; depth < expected.length; depth ++) {
+			assertEquals(expected[depth], perft.run(new Game(), depth));
+		}
+	}
+
+	@Test
+	public void testVerify() {
+
+		// Black has to skip first, and white has a king
+		Perft perft = new Perft(Perft.VERIFY);
+		perft.run(new Game(), 7);
+		assertNull(perft.getMismatch());
+		perft.run(new Game("00000000660004000404000044400005" + "1-1"), 5);
+		assertNull(perft.getMismatch());
+		assertTrue(perft.getCaptures() > 0);
+	}
+
+}
@@ -0,0 +1,137 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import checkersRules.Game;
+import checkersRules.PackedMove;
+import checkersRules.Undo;
+import database.PdnGame;
+import database.PositionArchive;
+
+public class PositionArchiveTest {
+
+	@Test
+	public void testAddAndReopen() throws IOException {
+
+		File file = File.createTempFile("archive", ".cpa");
+		file.deleteOnExit();
+		PositionArchive archive = PositionArchive.create(file, 1000);
+		assertTrue(archive.getCapacity() * 3 / 4 >= 1000);
+
+		// Results and the best move are kept for each key
+		int move = PackedMove.move(9, 13, false);
+		archive.add(42, PositionArchive.WIN, move, 1);
+		archive.add(42, PositionArchive.DRAW, PackedMove.move(9, 14, false), 0);
+		archive.add(42, PositionArchive.LOSS, PackedMove.NONE, 5);
+		archive.add(0, PositionArchive.DRAW, PackedMove.NONE, 0);
+		PositionArchive.Entry e = archive.get(42);
+		assertEquals(3, e.getGames());
+		assertEquals(1, e.getWins());
+		assertEquals(1, e.getDraws());
+		assertEquals(1, e.getLosses());
+		assertEquals(move, e.getBestMove());
+		assertEquals(1, archive.get(0).getGames());
+		assertNull(archive.get(43));
+
+		// Keys with the same slot are all kept, in batches too
+		PositionArchive.Batch batch = archive.newBatch();
+		long step = archive.getCapacity();
+		for (int i = 1; i <= 500; i ++) {
+			batch.add(42 + i * step, PositionArchive.WIN, PackedMove.NONE, 0);
+		}
+		assertEquals(500, batch.size());
+		batch.flush();
+		assertEquals(502, archive.getSize());
+		archive.close();
+
+		archive = PositionArchive.open(file);
+		assertEquals(502, archive.getSize());
+		assertEquals(3, archive.get(42).getGames());
+		for (int i = 1; i <= 500; i ++) {
+			assertEquals(1, archive.get(42 + i * step).getWins());
+		}
+
+		// The archive won't be filled past three quarters
+		for (long k = 1; archive.getSize() < archive.getCapacity() * 3 / 4; k ++) {
+			archive.add(k * 7919, PositionArchive.DRAW, PackedMove.NONE, 0);
+		}
+		final PositionArchive full = archive;
+		assertThrows(IllegalStateException.class, () -> full.add(-1,
+				PositionArchive.DRAW, PackedMove.NONE, 0));
+		archive.close();
+		file.delete();
+	}
+
+	@Test
+	public void testGamesAndReaders() throws Exception {
+
+		File file = File.createTempFile("archive", ".cpa");
+		file.deleteOnExit();
+		final PositionArchive archive = PositionArchive.create(file, 100000);
+
+		// Readers always see whole entries while games are added
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicInteger bad = new AtomicInteger();
+		final long startKey = new Game().getKey();
+		Thread[] readers = new Thread[3];
+		for (int t = 0; t < readers.length; t ++) {
+			readers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (!done.get()) {
+						PositionArchive.Entry e = archive.get(startKey);
+						if (e != null && (e.getKey() != startKey
+								|| e.getWins() + e.getDraws() > e.getGames())) {
+							bad.incrementAndGet();
+						}
+					}
+				}
+			});
+			readers[t].start();
+		}
+
+		Random random = new Random(7);
+		PositionArchive.Batch batch = archive.newBatch();
+		int games = 200, blackWins = 0;
+		for (int g = 0; g < games; g ++) {
+			PdnGame pdn = new PdnGame();
+			Game game = new Game();
+			for (int ply = 0; ply < 60 && !game.isGameOver(); ply ++) {
+				int starts = game.getLegalStarts();
+				for (int i = random.nextInt(Integer.bitCount(starts)); i > 0; i --) {
+					starts &= starts - 1;
+				}
+				int start = Integer.numberOfTrailingZeros(starts);
+				pdn.addMove(Undo.getMove(game.makeMove(start,
+						Integer.numberOfTrailingZeros(game.getLegalTargets(start)))));
+			}
+			int result = random.nextInt(3) - 1;
+			blackWins += (result == PdnGame.BLACK_WIN)? 1 : 0;
+			pdn.setResult(result);
+			assertTrue(batch.add(pdn));
+		}
+		batch.flush();
+		done.set(true);
+		for (Thread t : readers) {
+			t.join();
+		}
+		assertEquals(0, bad.get());
+
+		PositionArchive.Entry e = archive.get(new Game());
+		assertEquals(games, e.getGames());
+		assertEquals(blackWins, e.getWins());
+		assertTrue(archive.getSize() > games);
+		assertFalse(batch.add(new PdnGame()));
+		archive.close();
+		file.delete();
+	}
+
+}
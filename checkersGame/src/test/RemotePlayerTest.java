@@ -0,0 +1,104 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import checkersRules.Game;
+import checkersRules.Move;
+import players.ComputerPlayer;
+import players.Player;
+import players.RemotePlayer;
+
+public class RemotePlayerTest {
+
+	/** The number of turns played over the connection. */
+	private static final int TURNS = 40;
+
+	@Test
+	public void testLoopback() throws Exception {
+
+		RemotePlayer client = RemotePlayer.host(0);
+		RemotePlayer host = RemotePlayer.connect("localhost",
+				client.getLocalPort());
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+
+			// Each side plays its own game, with the other as a remote player
+			final Game hostGame = new Game(), clientGame = new Game();
+			Future<?> a = executor.submit(() -> play(hostGame,
+					new ComputerPlayer(new Random(1)), client, true));
+			Future<?> b = executor.submit(() -> play(clientGame,
+					new ComputerPlayer(new Random(2)), host, false));
+			a.get();
+			b.get();
+			assertEquals(hostGame.getGameState(), clientGame.getGameState());
+			assertTrue(client.isConnected());
+			assertNull(client.getError());
+		} finally {
+			executor.shutdownNow();
+			client.close();
+			host.close();
+		}
+	}
+
+	@Test
+	public void testOutOfSync() throws Exception {
+
+		RemotePlayer client = RemotePlayer.host(0);
+		RemotePlayer host = RemotePlayer.connect("localhost",
+				client.getLocalPort());
+		try {
+
+			// The host moves, but the client's game has a different move
+			Game hostGame = new Game();
+			hostGame.move(9, 13);
+			client.send(hostGame);
+			Game clientGame = new Game();
+			clientGame.move(9, 14);
+			assertThrows(IllegalStateException.class,
+					() -> host.getMove(clientGame));
+			assertNotNull(host.getError());
+
+			// A stopped player stops waiting
+			RemotePlayer other = RemotePlayer.host(0);
+			new Thread(() -> {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					return;
+				}
+				other.stop();
+			}).start();
+			assertNull(other.getMove(new Game()));
+			other.close();
+		} finally {
+			client.close();
+			host.close();
+		}
+	}
+
+	// Plays a number of turns, sending the last move made locally.
+	private static void play(Game game, Player local, RemotePlayer remote,
+			boolean isP1) {
+		int turns = 0;
+		while (turns < TURNS && !game.isGameOver()) {
+			boolean isP1Turn = game.isP1Turn();
+			if (isP1Turn == isP1) {
+				local.updateGame(game);
+			} else {
+				Move m = remote.getMove(game);
+				assertNotNull(m);
+				assertTrue(game.move(m.getStartIndex(), m.getEndIndex()));
+			}
+			turns += (game.isP1Turn() != isP1Turn)? 1 : 0;
+		}
+		remote.send(game);
+	}
+
+}
@@ -0,0 +1,271 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.Move;
+import checkersRules.PackedMove;
+import engine.ParallelSearch;
+import engine.Search;
+import engine.TimeManager;
+import players.HumanPlayer;
+import players.Player;
+import players.PlayerRunner;
+import players.SearchPlayer;
+import engine.TranspositionTable;
+
+public class SearchTest {
+
+	@Test
+	public void testFindsWin() {
+
+		// Black can skip the last white checker
+		Board b = new Board();
+		for (int i = 0; i < 32; i ++) {
+			b.set(i, Board.EMPTY);
+		}
+		b.set(1, 2, Board.BLACK_CHECKER);
+		b.set(7, 0, Board.BLACK_CHECKER);
+		b.set(2, 3, Board.WHITE_CHECKER);
+		Game game = new Game(b, true, -1);
+
+		Search search = new Search(4);
+		int move = search.search(game);
+		assertEquals(Board.toIndex(1, 2), PackedMove.getStartIndex(move));
+		assertEquals(Board.toIndex(3, 4), PackedMove.getEndIndex(move));
+		assertTrue(search.getScore() > Search.WIN_BOUND);
+		assertTrue(search.getNodes() > 0);
+	}
+
+	@Test
+	public void testStartPosition() {
+
+		Game game = new Game();
+		String state = game.getGameState();
+		Search search = new Search(5);
+		int move = search.search(game);
+		assertNotEquals(PackedMove.NONE, move);
+		assertEquals(5, search.getDepth());
+		assertEquals(state, game.getGameState());
+		assertTrue(game.copy().move(PackedMove.getStartIndex(move),
+				PackedMove.getEndIndex(move)));
+	}
+
+	@Test
+	public void testTable() {
+
+		TranspositionTable table = new TranspositionTable(1000);
+		assertEquals(1024, table.getSize());
+		long key = new Game().getKey();
+		assertEquals(0, table.probe(key));
+
+		int move = PackedMove.move(9, 13, false);
+		table.store(key, move, -1234, 6, TranspositionTable.LOWER);
+		long entry = table.probe(key);
+		assertEquals(move, TranspositionTable.getMove(entry));
+		assertEquals(-1234, TranspositionTable.getScore(entry));
+		assertEquals(6, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.LOWER,
+				TranspositionTable.getBound(entry));
+
+		// A different position in the same entry is a miss
+		assertEquals(0, table.probe(key ^ (1L << 40)));
+	}
+
+	@Test
+	public void testTimeLimits() {
+
+		// The hard limit stops a search that would take far longer
+		Game game = new Game();
+		Search search = new Search(Search.MAX_PLY / 2);
+		search.setTimeLimit(50);
+		long start = System.nanoTime();
+		int move = search.search(game);
+		long time = (System.nanoTime() - start) / 1000000L;
+		assertTrue(time < 1000, "took " + time + " ms");
+		assertTrue(search.getDepth() > 0);
+		assertTrue(game.copy().move(PackedMove.getStartIndex(move),
+				PackedMove.getEndIndex(move)));
+
+		// No iteration is started after the soft limit
+		search.reset();
+		search.setTimeLimit(0);
+		search.setSoftTimeLimit(1);
+		move = search.search(game);
+		assertNotEquals(PackedMove.NONE, move);
+		assertTrue(search.getDepth() < Search.MAX_PLY / 2);
+
+		// A clock gives each move a share of the time left
+		TimeManager tm = TimeManager.clock(60000, 1000);
+		assertTrue(tm.getSoftLimit() <= tm.getHardLimit());
+		assertTrue(tm.getHardLimit() <= 60000 / 4);
+		tm.moveMade(3000);
+		assertEquals(58000, tm.getRemaining());
+		tm = TimeManager.perMove(200);
+		assertEquals(100, tm.getSoftLimit());
+		assertEquals(200 - TimeManager.OVERHEAD, tm.getHardLimit());
+		tm.apply(search);
+		assertEquals(100, search.getSoftTimeLimit());
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+
+		// Every thread's positions are counted and the move is legal
+		final Game game = new Game();
+		SearchPlayer player = new SearchPlayer(8, 3);
+		assertEquals(3, player.getThreads());
+		Move move = player.getMove(game);
+		assertNotNull(move);
+		assertTrue(game.isLegalMove(move.getStartIndex(), move.getEndIndex()));
+		ParallelSearch search = player.getSearch();
+		assertTrue(search.getNodes() > search.getMain().getNodes());
+		player.setThreads(2);
+		assertEquals(2, player.getThreads());
+		move = player.getMove(game);
+		assertTrue(game.isLegalMove(move.getStartIndex(), move.getEndIndex()));
+		search.shutdown();
+
+		// A stop ends a deep search on every thread
+		final ParallelSearch deep = new ParallelSearch(Search.MAX_PLY / 2, 4);
+		final int[] best = new int[1];
+		Thread t = new Thread(() -> best[0] = deep.search(game));
+		t.start();
+		Thread.sleep(100);
+		long start = System.nanoTime();
+		deep.stop();
+		t.join(5000);
+		long time = (System.nanoTime() - start) / 1000000L;
+		assertFalse(t.isAlive());
+		assertTrue(time < 1000, "took " + time + " ms");
+		assertTrue(game.isLegalMove(PackedMove.getStartIndex(best[0]),
+				PackedMove.getEndIndex(best[0])));
+		deep.shutdown();
+	}
+
+	@Test
+	public void testPondering() {
+
+		SearchPlayer player = new SearchPlayer(6);
+		player.setPondering(true);
+		Game game = new Game();
+		player.updateGame(game);
+		int reply = player.getPonderMove();
+		assertNotEquals(PackedMove.NONE, reply);
+
+		// The predicted reply is a hit and the next move is still legal
+		assertTrue(game.move(PackedMove.getStartIndex(reply),
+				PackedMove.getEndIndex(reply)));
+		String state = game.getGameState();
+		player.updateGame(game);
+		assertEquals(1, player.getPonderHits());
+		assertNotEquals(state, game.getGameState());
+
+		// Any other reply is a miss
+		int predicted = player.getPonderMove();
+		reply = predicted;
+		for (int i = 0; i < 32 && reply == predicted; i ++) {
+			for (int j = 0; j < 32; j ++) {
+				if (game.isLegalMove(i, j) && (i != PackedMove.getStartIndex(
+						predicted) || j != PackedMove.getEndIndex(predicted))) {
+					reply = PackedMove.move(i, j, false);
+				}
+			}
+		}
+		assertNotEquals(predicted, reply);
+		assertTrue(game.move(PackedMove.getStartIndex(reply),
+				PackedMove.getEndIndex(reply)));
+		state = game.getGameState();
+		player.updateGame(game);
+		assertEquals(1, player.getPonderHits());
+		assertNotEquals(state, game.getGameState());
+		player.setPondering(false);
+		assertFalse(player.isPondering());
+	}
+
+	@Test
+	public void testPlayerRunner() throws Exception {
+
+		// Moves are found on a copy of the game
+		PlayerRunner runner = new PlayerRunner();
+		Game game = new Game();
+		String state = game.getGameState();
+		Move move = runner.getMove(new SearchPlayer(4), game).get();
+		assertTrue(game.isLegalMove(move.getStartIndex(), move.getEndIndex()));
+		assertEquals(state, game.getGameState());
+		assertNull(runner.getMove(new HumanPlayer(), game).get());
+
+		// Players that only update the game have their move found for them
+		Player first = new Player() {
+
+			@Override
+			public boolean isHuman() {
+				return false;
+			}
+
+			@Override
+			public void updateGame(Game game) {
+				int s = Integer.numberOfTrailingZeros(game.getLegalStarts());
+				game.move(s, Integer.numberOfTrailingZeros(
+						game.getLegalTargets(s)));
+			}
+		};
+		move = runner.getMove(first, game).get();
+		Game copy = game.copy();
+		first.updateGame(copy);
+		assertTrue(game.move(move.getStartIndex(), move.getEndIndex()));
+		assertEquals(copy.getGameState(), game.getGameState());
+
+		// A cancelled search stops, freeing the thread for the next move,
+		// even when it is cancelled before the search starts
+		SearchPlayer deepPlayer = new SearchPlayer(Search.MAX_PLY / 2);
+		for (int i = 0; i < 20; i ++) {
+			CompletableFuture<Move> deep = runner.getMove(deepPlayer, game);
+			runner.cancel();
+			assertTrue(deep.isCancelled());
+		}
+		assertNotNull(runner.getMove(new SearchPlayer(2), game)
+				.get(10, TimeUnit.SECONDS));
+		assertFalse(runner.isRunning());
+
+		// Or after the player has started but before it searches
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		SearchPlayer slow = new SearchPlayer(Search.MAX_PLY / 2) {
+
+			@Override
+			public Move getMove(Game game) {
+				started.countDown();
+				try {
+					cancelled.await();
+				} catch (InterruptedException e) {
+					return null;
+				}
+				return super.getMove(game);
+			}
+		};
+		CompletableFuture<Move> deep = runner.getMove(slow, game);
+		started.await();
+		runner.cancel();
+		cancelled.countDown();
+		assertTrue(deep.isCancelled());
+		assertNotNull(runner.getMove(new SearchPlayer(2), game)
+				.get(10, TimeUnit.SECONDS));
+
+		// A player stopped before its move is asked for still finds it
+		SearchPlayer player = new SearchPlayer(4);
+		player.stop();
+		move = runner.getMove(player, game).get();
+		assertNotNull(move);
+		assertEquals(4, player.getDepth());
+		runner.shutdown();
+	}
+
+}
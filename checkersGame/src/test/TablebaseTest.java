@@ -0,0 +1,70 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import checkersRules.Board;
+import checkersRules.Game;
+import engine.Tablebase;
+import engine.TablebaseGenerator;
+import engine.TablebaseIndex;
+
+public class TablebaseTest {
+
+	@Test
+	public void testIndex() {
+
+		// Every index is either rejected or maps back to itself
+		int sig = TablebaseIndex.signature(1, 1, 1, 0);
+		int[] pos = new int[4];
+		int valid = 0;
+		for (long i = 0; i < TablebaseIndex.size(sig); i ++) {
+			if (TablebaseIndex.toPosition(sig, i, pos)) {
+				assertEquals(i, TablebaseIndex.index(pos[0], pos[1], pos[2],
+						pos[3] == 1));
+				valid ++;
+			}
+		}
+		assertTrue(valid > 0);
+	}
+
+	@Test
+	public void testProbe() throws IOException {
+
+		File dir = Files.createTempDirectory("tablebase").toFile();
+		final List<Integer> written = new ArrayList<>();
+		new TablebaseGenerator(2).generate(2, dir,
+				(signature, positions, millis) -> written.add(signature));
+		assertEquals(TablebaseGenerator.getSignatures(2), written);
+		Tablebase tb = new Tablebase(dir);
+		assertEquals(2, tb.getMaxPieces());
+
+		// Black skips the last white checker and wins in one turn
+		Board b = new Board();
+		for (int i = 0; i < 32; i ++) {
+			b.set(i, Board.EMPTY);
+		}
+		b.set(1, 2, Board.BLACK_CHECKER);
+		b.set(2, 3, Board.WHITE_CHECKER);
+		assertEquals(1, tb.probe(new Game(b.copy(), true, -1)));
+
+		// Two kings can play forever
+		b.set(1, 2, Board.BLACK_KING);
+		b.set(2, 3, Board.EMPTY);
+		b.set(6, 7, Board.WHITE_KING);
+		assertEquals(0, tb.probe(new Game(b, true, -1)));
+
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+}
@@ -0,0 +1,87 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import tools.Tournament;
+
+public class TournamentTest {
+
+	@Test
+	public void testElo() {
+		assertEquals(0, Tournament.toElo(0.5), 1e-9);
+		assertEquals(0.75, Tournament.toScore(Tournament.toElo(0.75)), 1e-9);
+		assertTrue(Tournament.toElo(0.6) > 0);
+		assertTrue(Tournament.toElo(0.4) < 0);
+	}
+
+	@Test
+	public void testSeeded() {
+
+		// The same seed gives the same results on any number of threads
+		Tournament one = create(1), two = create(4);
+		one.run();
+		two.run();
+		assertEquals(20, one.getGamesPlayed());
+		assertEquals(one.getWins(), two.getWins());
+		assertEquals(one.getDraws(), two.getDraws());
+		assertEquals(one.getLosses(), two.getLosses());
+	}
+
+	@Test
+	public void testSprt() {
+
+		// A search player is much stronger than the computer player
+		Tournament t = new Tournament(Tournament.parse("search:2"),
+				Tournament.parse("computer"));
+		t.setGames(400);
+		t.setThreads(2);
+		t.setSprt(0, 20);
+		t.run();
+		assertTrue(t.isStopped());
+		assertEquals(1, t.getSprtResult());
+		assertTrue(t.getGamesPlayed() < 400);
+
+		// Running again starts from no games
+		int played = t.getGamesPlayed(), wins = t.getWins();
+		t.run();
+		assertTrue(t.isStopped());
+		assertEquals(played, t.getGamesPlayed());
+		assertEquals(wins, t.getWins());
+	}
+
+	@Test
+	public void testSprtSeeded() {
+
+		// The SPRT stops after the same games on any number of threads
+		Tournament one = createSprt(1), two = createSprt(4);
+		one.run();
+		two.run();
+		assertTrue(one.isStopped());
+		assertEquals(one.getGamesPlayed(), two.getGamesPlayed());
+		assertEquals(one.getWins(), two.getWins());
+		assertEquals(one.getDraws(), two.getDraws());
+		assertEquals(one.getLosses(), two.getLosses());
+	}
+
+	private static Tournament create(int threads) {
+		Tournament t = new Tournament(Tournament.parse("computer"),
+				Tournament.parse("computer"));
+		t.setGames(20);
+		t.setSeed(7);
+		t.setThreads(threads);
+		return t;
+	}
+
+	private static Tournament createSprt(int threads) {
+		Tournament t = new Tournament(Tournament.parse("search:2"),
+				Tournament.parse("computer"));
+		t.setGames(400);
+		t.setSeed(7);
+		t.setThreads(threads);
+		t.setSprt(0, 20);
+		return t;
+	}
+
+}
@@ -0,0 +1,97 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import checkersRules.Game;
+import checkersRules.Undo;
+import database.PdnGame;
+import engine.Evaluator;
+import players.ComputerPlayer;
+import players.Weights;
+import tools.Tuner;
+
+public class TunerTest {
+
+	@Test
+	public void testWeights() throws IOException {
+
+		// The defaults are the constants, and a file round trip keeps them
+		Weights w = new Weights();
+		assertEquals(ComputerPlayer.WEIGHT_SKIP, w.get(Weights.WEIGHT_SKIP), 0);
+		assertEquals(ComputerPlayer.KING_FACTOR, w.get(Weights.KING_FACTOR), 0);
+		w.set(Weights.SAFE, 4.5);
+		File file = File.createTempFile("weights", ".txt");
+		file.deleteOnExit();
+		w.save(file);
+		assertEquals(w, Weights.load(file));
+
+		// Missing weights keep their defaults, unknown ones are an error
+		FileWriter out = new FileWriter(file);
+		out.write("# only one\nUNSAFE = -7\n");
+		out.close();
+		Weights read = Weights.load(file);
+		assertEquals(-7, read.get(Weights.UNSAFE), 0);
+		assertEquals(ComputerPlayer.SAFE, read.get(Weights.SAFE), 0);
+		out = new FileWriter(file);
+		out.write("NOT_A_WEIGHT = 1\n");
+		out.close();
+		assertThrows(IOException.class, () -> Weights.load(file));
+		file.delete();
+
+		// The evaluation follows the weights it is given
+		Game game = new Game("00000000000000000000000000000075" + "1-1");
+		assertEquals(0, Evaluator.evaluate(game));
+		Game more = new Game("66000000000000000000000000000075" + "1-1");
+		Weights heavy = new Weights();
+		heavy.set(Weights.WEIGHT_SKIP, 100);
+		assertTrue(Evaluator.evaluate(more, heavy) > Evaluator.evaluate(more));
+	}
+
+	@Test
+	public void testTune() {
+
+		// Games won by whoever has more pieces at the end teach the tuner
+		// that pieces are worth more than nothing
+		Random random = new Random(11);
+		Weights start = new Weights();
+		start.set(Weights.WEIGHT_SKIP, 1);
+		Tuner tuner = new Tuner(start, 2);
+		for (int g = 0; g < 300; g ++) {
+			PdnGame pdn = new PdnGame();
+			Game game = new Game();
+			for (int ply = 0; ply < 60 && !game.isGameOver(); ply ++) {
+				int starts = game.getLegalStarts();
+				for (int i = random.nextInt(Integer.bitCount(starts)); i > 0; i --) {
+					starts &= starts - 1;
+				}
+				int s = Integer.numberOfTrailingZeros(starts);
+				pdn.addMove(Undo.getMove(game.makeMove(s,
+						Integer.numberOfTrailingZeros(game.getLegalTargets(s)))));
+			}
+			int diff = game.getPieceCount(true) - game.getPieceCount(false);
+			pdn.setResult(diff > 0? PdnGame.BLACK_WIN
+					: diff < 0? PdnGame.WHITE_WIN : PdnGame.DRAW);
+			tuner.add(pdn);
+		}
+		assertTrue(tuner.size() > 1000);
+
+		tuner.fitScale();
+		double before = tuner.getError();
+		for (int i = 0; i < 100; i ++) {
+			tuner.step(0.05);
+		}
+		assertTrue(tuner.getError() < before);
+		assertTrue(tuner.getWeights().get(Weights.WEIGHT_SKIP) > 1);
+		assertEquals(start.get(Weights.SKIP_ON_NEXT),
+				tuner.getWeights().get(Weights.SKIP_ON_NEXT), 0);
+		tuner.shutdown();
+	}
+
+}
@@ -0,0 +1,258 @@
+package tools;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+import checkersRules.BitBoard;
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.Logic;
+import checkersRules.MoveGenerate;
+import checkersRules.MoveList;
+import checkersRules.PackedMove;
+
+/**
+ * The {@code Perft} class counts every line of play from a position to a
+ * fixed depth, to check that move generation is correct and to measure how
+ * fast it is. Each ply is one call to {@link Game#makeMove(int)}, so a
+ * multiple skip counts one ply per skip and continues from
+ * {@link Game#getSkipIndex()}, and a checker that is crowned ends the turn.
+ * <p>
+ * Moves come from {@link BitBoard#generate(Board, boolean, int, MoveList)},
+ * or in reference mode from {@link MoveGenerate} filtered by
+ * {@link Logic#isValidMove(Board, boolean, int, int, int)}. Verify mode generates both at
+ * every node and stops at the first position where they differ.
+ * <p>
+ * Usage: {@code java tools.Perft [-divide] [-reference] [-verify] <depth>
+ * [state]}
+ */
+
+public class Perft {
+
+	/** Generate moves with {@link BitBoard}. */
+	public static final int FAST = 0;
+
+	/** Generate moves with {@link MoveGenerate} and {@link Logic}. */
+	public static final int REFERENCE = 1;
+
+	/** Generate moves both ways and compare them. */
+	public static final int VERIFY = 2;
+
+	/** How moves are generated. */
+	private final int mode;
+
+	/** The number of positions at the final depth. */
+	private long leaves;
+
+	/** The number of skips made on the final ply. */
+	private long captures;
+
+	/** The number of checkers crowned on the final ply. */
+	private long promotions;
+
+	/** The number of positions visited, including the root. */
+	private long nodes;
+
+	/** The state of the first position where the generators differ. */
+	private String mismatch;
+
+	public Perft(int mode) {
+		this.mode = mode;
+	}
+
+	public static void main(String[] args) {
+
+		boolean divide = false;
+		int mode = FAST, depth = -1;
+		String state = null;
+		for (String arg : args) {
+			if (arg.equals("-divide")) {
+				divide = true;
+			} else if (arg.equals("-reference")) {
+				mode = REFERENCE;
+			} else if (arg.equals("-verify")) {
+				mode = VERIFY;
+			} else if (depth < 0) {
+				depth = Integer.parseInt(arg);
+			} else {
+				state = arg;
+			}
+		}
+		if (depth < 0) {
+			System.out.println("Usage: java tools.Perft [-divide]"
+					+ " [-reference] [-verify] <depth> [state]");
+			return;
+		}
+
+		Game game = (state == null)? new Game() : new Game(state);
+		Perft perft = new Perft(mode);
+		long start = System.nanoTime();
+		if (divide) {
+			perft.divide(game, depth);
+		} else {
+			perft.run(game, depth);
+		}
+		long time = System.nanoTime() - start;
+		System.out.println(perft);
+		System.out.println("time=" + time / 1000000 + " ms, nodes/sec="
+				+ (time <= 0? 0 : perft.nodes * 1000000000L / time));
+		if (perft.mismatch != null) {
+			System.out.println("generators differ at " + perft.mismatch);
+		}
+	}
+
+	// Counts every line to the depth, returns the number of leaves.
+	public long run(Game game, int depth) {
+		this.leaves = 0;
+		this.captures = 0;
+		this.promotions = 0;
+		this.nodes = 0;
+		this.mismatch = null;
+		if (game != null) {
+			perft(game.copy(), depth, MoveList.get());
+		}
+		return leaves;
+	}
+
+	// Prints the number of leaves after each move from the position.
+	public void divide(Game game, int depth) {
+
+		run(null, depth);
+		game = game.copy();
+		this.nodes = 1;
+		MoveList moves = MoveList.get();
+		int base = moves.size();
+		int n = generate(game, moves);
+		for (int i = 0; i < n; i ++) {
+			int m = moves.get(base + i);
+			long before = leaves;
+			if (depth <= 1) {
+				this.nodes ++;
+				this.leaves ++;
+				this.captures += PackedMove.isSkip(m)? 1 : 0;
+				this.promotions += PackedMove.isPromotion(m)? 1 : 0;
+			} else {
+				int undo = game.makeMove(m);
+				perft(game, depth - 1, moves);
+				game.unmakeMove(undo);
+			}
+			System.out.println(PackedMove.toString(m) + ": "
+					+ (leaves - before));
+		}
+		moves.setSize(base);
+	}
+
+	private void perft(Game game, int depth, MoveList moves) {
+
+		this.nodes ++;
+		if (depth <= 0 || mismatch != null) {
+			this.leaves ++;
+			return;
+		}
+
+		int base = moves.size();
+		int n = generate(game, moves);
+		for (int i = 0; i < n; i ++) {
+			int m = moves.get(base + i);
+			if (depth == 1) {
+				this.nodes ++;
+				this.leaves ++;
+				this.captures += PackedMove.isSkip(m)? 1 : 0;
+				this.promotions += PackedMove.isPromotion(m)? 1 : 0;
+				continue;
+			}
+			int undo = game.makeMove(m);
+			perft(game, depth - 1, moves);
+			game.unmakeMove(undo);
+		}
+		moves.setSize(base);
+	}
+
+	// Adds the moves for the position in the current mode.
+	private int generate(Game game, MoveList moves) {
+
+		if (mode == REFERENCE) {
+			return generateReference(game, moves);
+		}
+		int base = moves.size();
+		int n = BitBoard.generate(game.getBlack(), game.getWhite(),
+				game.getKings(), game.isP1Turn(), game.getSkipIndex(), moves);
+		if (mode == VERIFY) {
+			int[] fast = sorted(moves, base, n);
+			int m = generateReference(game, moves);
+			int[] reference = sorted(moves, base + n, m);
+			moves.setSize(base + n);
+			if (!Arrays.equals(fast, reference) && mismatch == null) {
+				this.mismatch = game.getGameState();
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Adds the moves found by trying every end point {@link MoveGenerate}
+	 * gives and keeping the ones {@link Logic} accepts.
+	 */
+	public static int generateReference(Game game, MoveList moves) {
+
+		int base = moves.size();
+		Board b = game.getBoard();
+		for (int start = 0; start < 32; start ++) {
+			List<Point> ends = MoveGenerate.getSkips(b, start);
+			ends.addAll(MoveGenerate.getMoves(b, start));
+			for (Point p : ends) {
+				int end = Board.toIndex(p);
+				if (!Logic.isValidMove(b, game.isP1Turn(), start, end,
+						game.getSkipIndex())) {
+					continue;
+				}
+				int id = b.get(start);
+				boolean promotes = (id == Board.BLACK_CHECKER && p.y == 7)
+						|| (id == Board.WHITE_CHECKER && p.y == 0);
+				int mid = Board.toIndex(Board.middle(start, end));
+				moves.add(mid < 0? PackedMove.move(start, end, promotes)
+						: PackedMove.skip(start, end, mid, promotes));
+			}
+		}
+		return moves.size() - base;
+	}
+
+	private static int[] sorted(MoveList moves, int from, int n) {
+		int[] out = new int[n];
+		for (int i = 0; i < n; i ++) {
+			out[i] = moves.get(from + i);
+		}
+		Arrays.sort(out);
+		return out;
+	}
+
+	public long getLeaves() {
+		return leaves;
+	}
+
+	public long getCaptures() {
+		return captures;
+	}
+
+	public long getPromotions() {
+		return promotions;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	// Gets the state of the first position where the generators differ.
+	public String getMismatch() {
+		return mismatch;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[leaves=" + leaves + ", captures="
+				+ captures + ", promotions=" + promotions + ", nodes="
+				+ nodes + "]";
+	}
+
+}
@@ -0,0 +1,585 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import checkersRules.BitBoard;
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.MoveList;
+import checkersRules.PackedMove;
+import engine.ParallelSearch;
+import engine.Search;
+import engine.TranspositionTable;
+import players.ComputerPlayer;
+import players.Player;
+import players.SearchPlayer;
+
+/**
+ * The {@code Tournament} class plays games between two computer players
+ * without a window, on a pool of threads, to find out which one is stronger.
+ * Games are played in pairs from the same random opening, with each player
+ * having black once, and every random choice comes from a seed so a
+ * tournament can be played again exactly.
+ * <p>
+ * Results are for player A against player B. The Elo difference is estimated
+ * from the score, and a sequential probability ratio test (SPRT) stops the
+ * tournament early once the games show that the difference is {@code elo0}
+ * or {@code elo1}, with error rates {@code alpha} and {@code beta}.
+ * <p>
+ * Games are counted in the order they were started, not the order they
+ * finish, so the SPRT stops after the same games and the same seed gives the
+ * same results on any number of threads.
+ * <p>
+ * The rules have no draw, so a game that reaches the ply limit is counted as
+ * one.
+ * <p>
+ * Usage: {@code java tools.Tournament [-games n] [-threads n] [-seed n]
+ * [-opening plies] [-plies n] [-sprt elo0 elo1] [-alpha a] [-beta b] <a> <b>},
+ * where a player is {@code computer} or {@code search[:depth[:threads]]}.
+ */
+
+public class Tournament {
+
+	/** The default number of games to play. */
+	public static final int DEFAULT_GAMES = 1000;
+
+	/** The default number of random plies each opening starts with. */
+	public static final int DEFAULT_OPENING = 6;
+
+	/** The default number of plies after which a game is a draw. */
+	public static final int DEFAULT_MAX_PLIES = 300;
+
+	/** The entries in the transposition table of each search player. */
+	public static final int TABLE_ENTRIES = 1 << 16;
+
+	/** A game that player A won. */
+	public static final int WIN = 1;
+
+	/** A game that reached the ply limit. */
+	public static final int DRAW = 0;
+
+	/** A game that player A lost. */
+	public static final int LOSS = -1;
+
+	/** Creates a new player for each game. */
+	public interface PlayerFactory {
+
+		Player create(Random random);
+
+	}
+
+	/** The players. */
+	private final PlayerFactory a, b;
+
+	/** The number of games to play, rounded up to a whole pair. */
+	private int games = DEFAULT_GAMES;
+
+	/** The number of games to play at once. */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/** The seed that every random choice comes from. */
+	private long seed = 1;
+
+	/** The number of random plies each opening starts with. */
+	private int openingPlies = DEFAULT_OPENING;
+
+	/** The number of plies after which a game is a draw. */
+	private int maxPlies = DEFAULT_MAX_PLIES;
+
+	/** The SPRT hypotheses, or NaN if the test is off. */
+	private double elo0 = Double.NaN, elo1 = Double.NaN;
+
+	/** The SPRT error rates. */
+	private double alpha = 0.05, beta = 0.05;
+
+	/** The number of games between progress reports, or 0 for none. */
+	private int report;
+
+	/**
+	 * Set when the SPRT has stopped the tournament. Games after the one it
+	 * stopped on aren't counted, so the results are the ones the test
+	 * stopped on.
+	 */
+	private volatile boolean stopped;
+
+	/** The result of each game by its index, or UNKNOWN, guarded by this. */
+	private byte[] results = new byte[0];
+
+	/** The number of games, from the first, that have been counted. */
+	private int counted;
+
+	/** A game that hasn't finished. */
+	private static final byte UNKNOWN = Byte.MIN_VALUE;
+
+	/** The results so far, guarded by this. */
+	private int wins, draws, losses;
+
+	/** The moves made and the time they took, guarded by this. */
+	private long movesA, movesB, timeA, timeB;
+
+	/** The time the tournament started and how long it took. */
+	private long start, time;
+
+	public Tournament(PlayerFactory a, PlayerFactory b) {
+		this.a = a;
+		this.b = b;
+	}
+
+	public static void main(String[] args) {
+
+		// Find the players first, the options are applied after
+		List<String> players = new ArrayList<>();
+		List<String> options = new ArrayList<>();
+		for (int i = 0; i < args.length; i ++) {
+			if (args[i].startsWith("-")) {
+				int n = args[i].equals("-sprt")? 2 : 1;
+				for (int j = 0; j <= n && i + j < args.length; j ++) {
+					options.add(args[i + j]);
+				}
+				i += n;
+			} else {
+				players.add(args[i]);
+			}
+		}
+		PlayerFactory a = players.size() == 2? parse(players.get(0)) : null;
+		PlayerFactory b = players.size() == 2? parse(players.get(1)) : null;
+		if (a == null || b == null) {
+			System.out.println("Usage: java tools.Tournament [-games n]"
+					+ " [-threads n] [-seed n] [-opening plies] [-plies n]"
+					+ " [-sprt elo0 elo1] [-alpha a] [-beta b] <a> <b>");
+			return;
+		}
+
+		Tournament t = new Tournament(a, b);
+		t.setReport(100);
+		for (int i = 0; i + 1 < options.size(); i += 2) {
+			String option = options.get(i), value = options.get(i + 1);
+			if (option.equals("-games")) {
+				t.setGames(Integer.parseInt(value));
+			} else if (option.equals("-threads")) {
+				t.setThreads(Integer.parseInt(value));
+			} else if (option.equals("-seed")) {
+				t.setSeed(Long.parseLong(value));
+			} else if (option.equals("-opening")) {
+				t.setOpeningPlies(Integer.parseInt(value));
+			} else if (option.equals("-plies")) {
+				t.setMaxPlies(Integer.parseInt(value));
+			} else if (option.equals("-sprt") && i + 2 < options.size()) {
+				t.setSprt(Double.parseDouble(value),
+						Double.parseDouble(options.get(++ i + 1)));
+			} else if (option.equals("-alpha")) {
+				t.setErrorRates(Double.parseDouble(value), t.beta);
+			} else if (option.equals("-beta")) {
+				t.setErrorRates(t.alpha, Double.parseDouble(value));
+			}
+		}
+		t.run();
+		System.out.println(t.getSummary());
+	}
+
+	/**
+	 * Creates a factory for a player described as {@code computer} or
+	 * {@code search[:depth[:threads]]}, or returns null if it isn't one.
+	 */
+	public static PlayerFactory parse(String name) {
+
+		String[] parts = name.split(":");
+		if (parts[0].equals("computer") && parts.length == 1) {
+			return new PlayerFactory() {
+				@Override
+				public Player create(Random random) {
+					return new ComputerPlayer(random);
+				}
+			};
+		} else if (!parts[0].equals("search") || parts.length > 3) {
+			return null;
+		}
+
+		final int depth, threads;
+		try {
+			depth = parts.length > 1? Integer.parseInt(parts[1])
+					: Search.DEFAULT_DEPTH;
+			threads = parts.length > 2? Integer.parseInt(parts[2]) : 1;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return new PlayerFactory() {
+			@Override
+			public Player create(Random random) {
+				return new SearchPlayer(new ParallelSearch(depth, threads,
+						new TranspositionTable(TABLE_ENTRIES)));
+			}
+		};
+	}
+
+	/**
+	 * Plays the games, returning early if the SPRT finishes. The results of
+	 * any earlier run are cleared first.
+	 */
+	public void run() {
+
+		int pairs = (games + 1) / 2;
+		synchronized (this) {
+			this.start = System.nanoTime();
+			this.time = 0;
+			this.results = new byte[pairs * 2];
+			Arrays.fill(results, UNKNOWN);
+			this.counted = 0;
+			this.stopped = false;
+			this.wins = this.draws = this.losses = 0;
+			this.movesA = this.movesB = this.timeA = this.timeB = 0;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < pairs; i ++) {
+				final int pair = i;
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						playPair(pair);
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+			synchronized (this) {
+				this.time = System.nanoTime() - start;
+			}
+		}
+	}
+
+	// Plays a game each way from one random opening.
+	private void playPair(int pair) {
+
+		Random random = new Random(seed * 0x9E3779B97F4A7C15L + pair);
+		String opening = getOpening(random);
+		for (int i = 0; i < 2 && !stopped; i ++) {
+			boolean aIsBlack = (i == 0);
+			Player pa = a.create(new Random(random.nextLong()));
+			Player pb = b.create(new Random(random.nextLong()));
+			int result = play(new Game(opening), pa, pb, aIsBlack);
+			release(pa);
+			release(pb);
+			record(pair * 2 + i, result);
+		}
+	}
+
+	// Gets the state of a game after random moves from the start.
+	private String getOpening(Random random) {
+
+		MoveList moves = MoveList.get();
+		while (true) {
+			Game game = new Game();
+			for (int ply = 0; ply < openingPlies
+					|| Board.isValidIndex(game.getSkipIndex()); ply ++) {
+				int base = moves.size();
+				int n = BitBoard.generate(game.getBoard(), game.isP1Turn(),
+						game.getSkipIndex(), moves);
+				if (n == 0) {
+					break;
+				}
+				int m = moves.get(base + random.nextInt(n));
+				moves.setSize(base);
+				game.move(PackedMove.getStartIndex(m),
+						PackedMove.getEndIndex(m));
+			}
+			if (!game.isGameOver()) {
+				return game.getGameState();
+			}
+		}
+	}
+
+	/**
+	 * Plays a game to the end or the ply limit and returns {@link #WIN},
+	 * {@link #DRAW} or {@link #LOSS} for player A. A player that doesn't
+	 * move loses.
+	 */
+	private int play(Game game, Player pa, Player pb, boolean aIsBlack) {
+
+		long movesA = 0, movesB = 0, timeA = 0, timeB = 0;
+		int result = DRAW;
+		for (int ply = 0; ply < maxPlies; ply ++) {
+			boolean aToMove = (game.isP1Turn() == aIsBlack);
+			if (game.isGameOver()) {
+				result = aToMove? LOSS : WIN;
+				break;
+			}
+			long key = game.getKey();
+			long t = System.nanoTime();
+			(aToMove? pa : pb).updateGame(game);
+			t = System.nanoTime() - t;
+			if (aToMove) {
+				movesA ++;
+				timeA += t;
+			} else {
+				movesB ++;
+				timeB += t;
+			}
+			if (game.getKey() == key) {
+				result = aToMove? LOSS : WIN;
+				break;
+			}
+		}
+
+		synchronized (this) {
+			this.movesA += movesA;
+			this.movesB += movesB;
+			this.timeA += timeA;
+			this.timeB += timeB;
+		}
+		return result;
+	}
+
+	// Stops any helper threads the player started.
+	private static void release(Player player) {
+		if (player instanceof SearchPlayer) {
+			((SearchPlayer) player).getSearch().shutdown();
+		}
+	}
+
+	/**
+	 * Adds the result of a game, then counts every game from the first that
+	 * has finished, checking whether the SPRT has finished after each.
+	 */
+	private void record(int index, int result) {
+
+		List<String> lines = new ArrayList<>();
+		synchronized (this) {
+			results[index] = (byte) result;
+			while (!stopped && counted < results.length
+					&& results[counted] != UNKNOWN) {
+				int r = results[counted ++];
+				if (r == WIN) {
+					this.wins ++;
+				} else if (r == LOSS) {
+					this.losses ++;
+				} else {
+					this.draws ++;
+				}
+				if (getSprtResult() != 0) {
+					this.stopped = true;
+				}
+				if (report > 0 && counted % report == 0) {
+					lines.add(getSummary());
+				}
+			}
+		}
+		for (String line : lines) {
+			System.out.println(line);
+		}
+	}
+
+	public synchronized int getWins() {
+		return wins;
+	}
+
+	public synchronized int getDraws() {
+		return draws;
+	}
+
+	public synchronized int getLosses() {
+		return losses;
+	}
+
+	public synchronized int getGamesPlayed() {
+		return wins + draws + losses;
+	}
+
+	// Gets the fraction of the points player A has scored.
+	public synchronized double getScore() {
+		int n = wins + draws + losses;
+		return n == 0? 0.5 : (wins + 0.5 * draws) / n;
+	}
+
+	/**
+	 * Gets the Elo difference of player A over player B for the score so
+	 * far, infinite if one player has every point.
+	 */
+	public double getElo() {
+		return toElo(getScore());
+	}
+
+	/** Gets the distance from the Elo difference to the end of its 95%
+	 * confidence interval. */
+	public synchronized double getEloError() {
+		int n = wins + draws + losses;
+		if (n == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double s = getScore();
+		double error = 1.96 * Math.sqrt(getVariance(s) / n);
+		return (toElo(s + error) - toElo(s - error)) / 2;
+	}
+
+	/** Gets the variance of the points of one game about the score. */
+	private double getVariance(double s) {
+		int n = wins + draws + losses;
+		return (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s)
+				+ losses * s * s) / n;
+	}
+
+	// Converts a score to an Elo difference.
+	public static double toElo(double score) {
+		if (score <= 0) {
+			return Double.NEGATIVE_INFINITY;
+		} else if (score >= 1) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	// Converts an Elo difference to the score it is expected to give.
+	public static double toScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	/**
+	 * Gets the log-likelihood ratio of {@code elo1} over {@code elo0} for the
+	 * games so far, using the normal approximation to the score, or 0 if the
+	 * test is off.
+	 */
+	public synchronized double getLlr() {
+		int n = wins + draws + losses;
+		if (n == 0 || Double.isNaN(elo0)) {
+			return 0;
+		}
+		double s = getScore(), var = getVariance(s);
+		if (var <= 0) {
+			return 0;
+		}
+		double s0 = toScore(elo0), s1 = toScore(elo1);
+		return n * (s1 - s0) * (2 * s - s0 - s1) / (2 * var);
+	}
+
+	/**
+	 * Gets 1 if the SPRT accepts {@code elo1}, -1 if it accepts {@code elo0}
+	 * and 0 if it needs more games or is off.
+	 */
+	public synchronized int getSprtResult() {
+		if (Double.isNaN(elo0)) {
+			return 0;
+		}
+		double llr = getLlr();
+		if (llr >= Math.log((1 - beta) / alpha)) {
+			return 1;
+		} else if (llr <= Math.log(beta / (1 - alpha))) {
+			return -1;
+		}
+		return 0;
+	}
+
+	// Gets the average time player A took to move, in milliseconds.
+	public synchronized double getLatencyA() {
+		return movesA == 0? 0 : timeA / 1e6 / movesA;
+	}
+
+	// Gets the average time player B took to move, in milliseconds.
+	public synchronized double getLatencyB() {
+		return movesB == 0? 0 : timeB / 1e6 / movesB;
+	}
+
+	// Gets the number of games finished per second.
+	public synchronized double getGamesPerSecond() {
+		long elapsed = (time > 0)? time : System.nanoTime() - start;
+		return elapsed <= 0? 0 : getGamesPlayed() * 1e9 / elapsed;
+	}
+
+	// Gets a line describing the results so far.
+	public synchronized String getSummary() {
+		String sprt = "";
+		if (!Double.isNaN(elo0)) {
+			int r = getSprtResult();
+			sprt = String.format(", llr=%.2f (%.2f, %.2f)%s", getLlr(),
+					Math.log(beta / (1 - alpha)),
+					Math.log((1 - beta) / alpha),
+					r > 0? " H1 accepted" : r < 0? " H0 accepted" : "");
+		}
+		return String.format("games=%d w/d/l=%d/%d/%d elo=%.1f +/- %.1f"
+				+ " games/sec=%.2f latency=%.2f/%.2f ms%s", getGamesPlayed(),
+				wins, draws, losses, getElo(), getEloError(),
+				getGamesPerSecond(), getLatencyA(), getLatencyB(), sprt);
+	}
+
+	public int getGames() {
+		return games;
+	}
+
+	public void setGames(int games) {
+		this.games = Math.max(0, games);
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getOpeningPlies() {
+		return openingPlies;
+	}
+
+	public void setOpeningPlies(int openingPlies) {
+		this.openingPlies = Math.max(0, openingPlies);
+	}
+
+	public int getMaxPlies() {
+		return maxPlies;
+	}
+
+	public void setMaxPlies(int maxPlies) {
+		this.maxPlies = Math.max(1, maxPlies);
+	}
+
+	// Turns on the SPRT for the hypotheses elo0 and elo1.
+	public void setSprt(double elo0, double elo1) {
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+	}
+
+	public void setErrorRates(double alpha, double beta) {
+		this.alpha = alpha;
+		this.beta = beta;
+	}
+
+	// Sets the number of games between progress reports, or 0 for none.
+	public void setReport(int report) {
+		this.report = Math.max(0, report);
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + getSummary() + "]";
+	}
+
+}
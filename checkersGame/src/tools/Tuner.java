@@ -0,0 +1,357 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import checkersRules.Board;
+import checkersRules.Game;
+import checkersRules.PackedMove;
+import database.PdnGame;
+import database.PdnImporter;
+import engine.Evaluator;
+import players.Weights;
+
+/**
+ * The {@code Tuner} class fits the weights used by {@link Evaluator} to the
+ * results of a collection of games, so that the score of a position predicts
+ * how the game ended (the Texel method). The score is turned into an
+ * expected result with a sigmoid, {@code 1 / (1 + e^(-k * score))}, and the
+ * weights are changed by gradient descent (with Adam) to make the mean
+ * squared error against the results as small as possible. The scale
+ * {@code k} is fitted first and then kept, so the weights keep their size.
+ * <p>
+ * Only the position features are stored for each position, eleven bytes, so
+ * millions of positions fit in memory. Positions in the middle of a multiple
+ * skip or where a skip has to be made are left out, as the score of a
+ * position that is about to change isn't meaningful. The error and its
+ * gradient are summed over the positions in parallel with fork-join.
+ * <p>
+ * The weights {@code WEIGHT_SKIP}, {@code SAFE}, {@code UNSAFE} and
+ * {@code KING_FACTOR} are tuned. The others only weigh changes between two
+ * positions, which a score of one position can't fit, so they are written
+ * unchanged.
+ * <p>
+ * Usage: {@code java tools.Tuner [-iterations n] [-threads n] [-rate r]
+ * [-weights file] [-out file] <pdn files...>}
+ */
+
+public class Tuner {
+
+	/** The weights that are tuned. */
+	public static final int[] TUNED = {Weights.WEIGHT_SKIP, Weights.SAFE,
+			Weights.UNSAFE, Weights.KING_FACTOR};
+
+	/** The default number of steps of gradient descent. */
+	public static final int DEFAULT_ITERATIONS = 500;
+
+	/** The default size of each step, as a fraction of the weight. */
+	public static final double DEFAULT_RATE = 0.01;
+
+	/** The bytes stored for each position. */
+	private static final int FEATURES = 11;
+
+	/** The positions each fork-join task sums without splitting. */
+	private static final int THRESHOLD = 1 << 14;
+
+	/**
+	 * The features of each position: for black and then white, the pieces,
+	 * kings, safe pieces, threatened checkers and threatened kings, then the
+	 * result for black (0 a loss, 1 a draw, 2 a win).
+	 */
+	private byte[] data = new byte[FEATURES * 1024];
+
+	/** The number of positions. */
+	private int size;
+
+	/** The scale of the sigmoid. */
+	private double k = 0.01;
+
+	/** The weights being tuned. */
+	private final double[] weights;
+
+	/** The size of each tuned weight at the start, to scale its steps. */
+	private final double[] scales = new double[TUNED.length];
+
+	/** The averages of the gradient and its square, for Adam. */
+	private final double[] moment = new double[TUNED.length],
+			variance = new double[TUNED.length];
+
+	/** The number of steps made. */
+	private int steps;
+
+	/** Sums the error over the positions. */
+	private final ForkJoinPool pool;
+
+	public Tuner(Weights weights, int threads) {
+		this.weights = weights.toArray();
+		for (int j = 0; j < TUNED.length; j ++) {
+			this.scales[j] = Math.max(1, Math.abs(this.weights[TUNED[j]]));
+		}
+		this.pool = new ForkJoinPool(Math.max(1, threads));
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		int iterations = DEFAULT_ITERATIONS;
+		int threads = Runtime.getRuntime().availableProcessors();
+		double rate = DEFAULT_RATE;
+		Weights weights = new Weights();
+		File out = new File("weights.txt");
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < args.length; i ++) {
+			boolean hasValue = i + 1 < args.length;
+			if (args[i].equals("-iterations") && hasValue) {
+				iterations = Integer.parseInt(args[++ i]);
+			} else if (args[i].equals("-threads") && hasValue) {
+				threads = Integer.parseInt(args[++ i]);
+			} else if (args[i].equals("-rate") && hasValue) {
+				rate = Double.parseDouble(args[++ i]);
+			} else if (args[i].equals("-weights") && hasValue) {
+				weights = Weights.load(new File(args[++ i]));
+			} else if (args[i].equals("-out") && hasValue) {
+				out = new File(args[++ i]);
+			} else {
+				files.add(new File(args[i]));
+			}
+		}
+		if (files.isEmpty()) {
+			System.out.println("Usage: java tools.Tuner [-iterations n]"
+					+ " [-threads n] [-rate r] [-weights file] [-out file]"
+					+ " <pdn files...>");
+			return;
+		}
+
+		final Tuner tuner = new Tuner(weights, threads);
+		PdnImporter importer = new PdnImporter(threads);
+		for (File f : files) {
+			System.out.println(importer.importFile(f, new PdnImporter.Handler() {
+				@Override
+				public void handle(PdnGame game) {
+					tuner.add(game);
+				}
+			}));
+		}
+		System.out.println(tuner.size() + " positions");
+		System.out.println("k = " + tuner.fitScale() + ", error = "
+				+ tuner.getError());
+		for (int i = 1; i <= iterations; i ++) {
+			double error = tuner.step(rate);
+			if (i % 50 == 0 || i == iterations) {
+				System.out.println(i + ": error = " + error + ", "
+						+ tuner.getWeights());
+			}
+		}
+		tuner.getWeights().save(out);
+		System.out.println("Wrote " + out);
+		tuner.shutdown();
+	}
+
+	/**
+	 * Adds every quiet position at the start of a turn in a game with a
+	 * result. This can be called from several threads.
+	 *
+	 * @throws IllegalArgumentException if the game has an invalid move.
+	 */
+	public void add(PdnGame pdn) {
+
+		int result = pdn.getResult();
+		if (result == PdnGame.UNKNOWN) {
+			return;
+		}
+		byte[] features = new byte[FEATURES * (pdn.getMoveCount() + 1)];
+		int n = 0;
+		Game game = new Game(pdn.getStartState());
+		for (int i = 0; i <= pdn.getMoveCount(); i ++) {
+			if (!Board.isValidIndex(game.getSkipIndex())
+					&& !game.isForcedCapture()) {
+				getFeatures(game, result, features, n * FEATURES);
+				n ++;
+			}
+			if (i == pdn.getMoveCount()) {
+				break;
+			}
+			int m = pdn.getMove(i);
+			if (!game.move(PackedMove.getStartIndex(m),
+					PackedMove.getEndIndex(m))) {
+				throw new IllegalArgumentException("Invalid move "
+						+ (i + 1) + ": " + PackedMove.toString(m));
+			}
+		}
+		add(features, n);
+	}
+
+	// Adds the features of positions.
+	private synchronized void add(byte[] features, int count) {
+		if (data.length < (size + count) * FEATURES) {
+			long length = Math.max((long) data.length * 3 / 2,
+					(long) (size + count) * FEATURES);
+			this.data = Arrays.copyOf(data, (int) Math.min(length,
+					Integer.MAX_VALUE - 8));
+		}
+		System.arraycopy(features, 0, data, size * FEATURES, count * FEATURES);
+		this.size += count;
+	}
+
+	// Stores the features of a position and the result of its game.
+	private static void getFeatures(Game game, int result, byte[] features,
+			int offset) {
+		for (int c = 0; c < 2; c ++) {
+			boolean isBlack = (c == 0);
+			int pieces = game.getPieceCount(isBlack);
+			int threatened = game.getThreatenedCount(isBlack);
+			int threatenedKings = game.getThreatenedKingCount(isBlack);
+			features[offset ++] = (byte) pieces;
+			features[offset ++] = (byte) game.getKingCount(isBlack);
+			features[offset ++] = (byte) (pieces - threatened);
+			features[offset ++] = (byte) (threatened - threatenedKings);
+			features[offset ++] = (byte) threatenedKings;
+		}
+		features[offset] = (byte) (result + 1);
+	}
+
+	/**
+	 * Finds the scale of the sigmoid that gives the smallest error with the
+	 * current weights, and keeps it.
+	 */
+	public double fitScale() {
+
+		double lo = 1e-5, hi = 1;
+		for (int i = 0; i < 100; i ++) {
+			double a = lo + (hi - lo) / 3, b = hi - (hi - lo) / 3;
+			this.k = a;
+			double ea = getError();
+			this.k = b;
+			double eb = getError();
+			if (ea < eb) {
+				hi = b;
+			} else {
+				lo = a;
+			}
+		}
+		this.k = (lo + hi) / 2;
+		return k;
+	}
+
+	// Gets the mean squared error over the positions.
+	public double getError() {
+		return (size == 0)? 0 : pool.invoke(new Sum(0, size, false))[0] / size;
+	}
+
+	/**
+	 * Makes one step of gradient descent with Adam, so each tuned weight
+	 * moves by about the rate times its starting size, and returns the error
+	 * before the step.
+	 */
+	public double step(double rate) {
+
+		if (size == 0) {
+			return 0;
+		}
+		double[] sum = pool.invoke(new Sum(0, size, true));
+		this.steps ++;
+		for (int j = 0; j < TUNED.length; j ++) {
+			int i = TUNED[j];
+			double g = sum[j + 1] / size;
+			this.moment[j] = 0.9 * moment[j] + 0.1 * g;
+			this.variance[j] = 0.999 * variance[j] + 0.001 * g * g;
+			double m = moment[j] / (1 - Math.pow(0.9, steps));
+			double v = variance[j] / (1 - Math.pow(0.999, steps));
+			this.weights[i] -= rate * scales[j] * m / (Math.sqrt(v) + 1e-12);
+		}
+		return sum[0] / size;
+	}
+
+	/**
+	 * The {@code Sum} class sums the squared error of a range of positions,
+	 * and its gradient by each tuned weight if asked to, splitting the range
+	 * between threads.
+	 */
+	private class Sum extends RecursiveTask<double[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+
+		private final boolean gradient;
+
+		Sum(int from, int to, boolean gradient) {
+			this.from = from;
+			this.to = to;
+			this.gradient = gradient;
+		}
+
+		@Override
+		protected double[] compute() {
+
+			if (to - from > THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				Sum left = new Sum(from, mid, gradient);
+				left.fork();
+				double[] right = new Sum(mid, to, gradient).compute();
+				double[] sum = left.join();
+				for (int i = 0; i < sum.length; i ++) {
+					sum[i] += right[i];
+				}
+				return sum;
+			}
+
+			double[] w = weights;
+			double ws = w[Weights.WEIGHT_SKIP], kf = w[Weights.KING_FACTOR];
+			double unsafe = w[Weights.UNSAFE];
+			double[] sum = new double[1 + TUNED.length];
+			for (int p = from; p < to; p ++) {
+				int o = p * FEATURES;
+				double score = Evaluator.score(w, data[o], data[o + 1],
+						data[o + 2], data[o + 3], data[o + 4])
+						- Evaluator.score(w, data[o + 5], data[o + 6],
+								data[o + 7], data[o + 8], data[o + 9]);
+				double result = data[o + 10] / 2.0;
+				double s = 1 / (1 + Math.exp(-k * score));
+				double e = result - s;
+				sum[0] += e * e;
+				if (!gradient) {
+					continue;
+				}
+
+				// The score's change with each weight, black minus white
+				double pieces = data[o] - data[o + 5];
+				double kings = data[o + 1] - data[o + 6];
+				double safe = data[o + 2] - data[o + 7];
+				double checkers = data[o + 3] - data[o + 8];
+				double threatenedKings = data[o + 4] - data[o + 9];
+				double d = -2 * e * s * (1 - s) * k;
+				sum[1] += d * (pieces + kings * (kf - 1));
+				sum[2] += d * safe;
+				sum[3] += d * (checkers + threatenedKings * kf);
+				sum[4] += d * (kings * ws + threatenedKings * unsafe);
+			}
+			return sum;
+		}
+
+	}
+
+	// Gets the number of positions.
+	public synchronized int size() {
+		return size;
+	}
+
+	public double getScale() {
+		return k;
+	}
+
+	// Gets a copy of the weights as they are now.
+	public Weights getWeights() {
+		return new Weights(weights);
+	}
+
+	// Stops the threads that sum the error.
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+}
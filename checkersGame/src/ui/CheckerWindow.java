@@ -3,6 +3,7 @@ package ui;
 import java.awt.BorderLayout;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
+import players.HumanPlayer;
 import players.Player;
 import ui.CheckersBoard;
 import ui.OptionPanel;
@@ -70,14 +71,29 @@ private static final long serialVersionUID = 8782122389400590079L;
 		this.boardd.update();
 	}
 	
+	/**
+	 * Makes one side a human player again, such as after a remote player's
+	 * connection failed, and shows it in the options.
+	 */
+	public void setHuman(boolean isPlayer1) {
+		this.opts.setHuman(isPlayer1);
+		Player player = isPlayer1? boardd.getPlayer1() : boardd.getPlayer2();
+		if (!player.isHuman()) {
+			if (isPlayer1) {
+				setPlayer1(new HumanPlayer());
+			} else {
+				setPlayer2(new HumanPlayer());
+			}
+		}
+	}
+	
 	//Resets the game of checkers in the window.
 	public void restart() {
-		this.boardd.getGame().restart();
-		this.boardd.update();
+		this.boardd.restart();
 	}
 	
 	public void setGameState(String state) {
-		this.boardd.getGame().setGameState(state);
+		this.boardd.setGameState(false, state, null);
 	}
 
 }
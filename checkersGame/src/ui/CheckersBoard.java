@@ -8,20 +8,32 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.List;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 import javax.swing.Timer;
 import javax.swing.JButton;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
-import checkersRules.MoveGenerate;
 import checkersRules.Board;
 import checkersRules.Game;
+import checkersRules.Move;
 import players.HumanPlayer;
 import players.Player;
+import players.PlayerRunner;
+import players.RemotePlayer;
+import players.SearchPlayer;
 import ui.CheckerWindow;
 import ui.CheckersBoard;
 
@@ -36,6 +48,28 @@ private static final long serialVersionUID = -6014690893709316364L;
 	 * actual checker board that is drawn. */
 	private static final int PADDING = 16;
 
+	/** The number of pixels between a checker and the edge of its tile. */
+	private static final int BOX_PADDING = 4;
+
+	/** The font of the game over sign. */
+	private static final Font GAME_OVER_FONT =
+			new Font("Times New Roman", Font.BOLD, 20);
+
+	/** The background of the game over sign. */
+	private static final Color GAME_OVER_BACK = new Color(240, 240, 255);
+
+	/** The outline around a king. */
+	private static final Color KING_HIGHLIGHT = new Color(255, 240, 0);
+
+	/** Runs the tasks it is given on the Swing event thread. */
+	private static final Executor EVENT_THREAD = new Executor() {
+
+		@Override
+		public void execute(Runnable r) {
+			SwingUtilities.invokeLater(r);
+		}
+	};
+
 	/** The game of checkers that is being played on this component. */
 	private Game game;
 	
@@ -65,6 +99,42 @@ private static final long serialVersionUID = -6014690893709316364L;
 
 	/** The timer to control how fast a computer player makes a move. */
 	private Timer timer;
+
+	/** The tiles drawn for the current size and colours. */
+	private BufferedImage boardImage;
+
+	/** Each type of checker drawn for the current size, by ID. */
+	private BufferedImage[] checkerImages;
+
+	/** The tile size the images were drawn for. */
+	private int imageBoxSize;
+
+	/** The tile colours the board image was drawn with. */
+	private Color imageLightTile, imageDarkTile;
+
+	/** The bit planes of the board as last repainted. */
+	private int[] shown = new int[3];
+
+	/** The turn as last repainted. */
+	private boolean shownP1Turn;
+
+	/** Whether the game was over when last repainted. */
+	private boolean shownGameOver;
+
+	/** The selection as last repainted. */
+	private Point shownSelected;
+
+	/** Whether the selection was valid when last repainted. */
+	private boolean shownSelectionValid;
+
+	/** Finds the moves of computer players off the event thread. */
+	private final PlayerRunner runner = new PlayerRunner();
+
+	/**
+	 * The planes of the board and the turn, read together from the game on
+	 * the event thread by {@link Game#readPosition(int[])}.
+	 */
+	private final int[] position = new int[4];
 	
 	public CheckersBoard(CheckerWindow window) {
 		this(window, new Game(), null, null);
@@ -93,38 +163,148 @@ private static final long serialVersionUID = -6014690893709316364L;
 	public void update() {
 		runPlayer();
 		this.isGameOver = game.isGameOver();
-		repaint();
+		repaintChanges();
 	}
 	
 	private void runPlayer() {
 		
+		cancelPlayer();
 		Player players = getCurrentPlayer();
 		if (players == null || players.isHuman())
 			return;
 	
-		// Set a timer to run
-		this.timer = new Timer(TIMER_DELAY, new ActionListener() {
+		// Set a timer to run, moves from a remote player aren't held up
+		final long expected = game.getVersion();
+		int delay = (players instanceof RemotePlayer)? 0 : TIMER_DELAY;
+		this.timer = new Timer(delay, new ActionListener() {
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				getCurrentPlayer().updateGame(game);
 				timer.stop();
-				update();
+				startPlayer(expected);
 			}
 		});
 		this.timer.start();
 	}
+
+	/**
+	 * Finds the current player's move on a copy of the game off the event
+	 * thread, and makes it on the event thread if nothing changed meanwhile.
+	 */
+	private void startPlayer(final long expected) {
+
+		final Player player = getCurrentPlayer();
+		final Game current = game;
+		if (expected != current.getVersion() || player == null
+				|| player.isHuman()) {
+			return;
+		}
+		runner.getMove(player, current).whenCompleteAsync(
+				new BiConsumer<Move, Throwable>() {
+
+			@Override
+			public void accept(Move move, Throwable error) {
+				if (error == null) {
+					applyMove(current, player, move, expected);
+				} else {
+					playerFailed(player, error);
+				}
+			}
+		}, EVENT_THREAD);
+	}
+
+	/**
+	 * Tells the user why a player couldn't move, such as a remote player
+	 * whose game went out of step or whose connection closed, and makes
+	 * that side human so the game can go on.
+	 */
+	private void playerFailed(Player player, Throwable error) {
+
+		if (error instanceof CompletionException && error.getCause() != null) {
+			error = error.getCause();
+		}
+		boolean isPlayer1 = (player == player1);
+		if (error instanceof CancellationException
+				|| (!isPlayer1 && player != player2)) {
+			return;
+		}
+		String reason = (player instanceof RemotePlayer
+				&& ((RemotePlayer) player).getError() != null)?
+				((RemotePlayer) player).getError() : error.getMessage();
+		JOptionPane.showMessageDialog(this, "Player " + (isPlayer1? 1 : 2)
+				+ " can't move: " + reason + "\nThat side is now played"
+				+ " by a human.", "Player Error", JOptionPane.ERROR_MESSAGE);
+		if (window != null) {
+			window.setHuman(isPlayer1);
+		} else if (isPlayer1) {
+			setPlayer1(new HumanPlayer());
+			update();
+		} else {
+			setPlayer2(new HumanPlayer());
+			update();
+		}
+	}
+
+	// Makes a move found off the event thread if it is still wanted.
+	private void applyMove(Game current, Player player, Move move,
+			long expected) {
+
+		if (move == null || current != game || player != getCurrentPlayer()) {
+			return;
+		}
+		if (game.compareAndMove(expected, move.getStartIndex(),
+				move.getEndIndex())) {
+			update();
+		}
+	}
+
+	// Stops a computer player that is waiting to move or finding a move.
+	public void cancelPlayer() {
+		if (timer != null) {
+			timer.stop();
+			this.timer = null;
+		}
+		runner.cancel();
+	}
+
+	// Starts a new game, abandoning any move being found.
+	public void restart() {
+		cancelPlayer();
+		stopPondering();
+		this.game.restart();
+		update();
+	}
 	
-	public synchronized boolean setGameState(boolean testValue,
+	/**
+	 * Sets the game state, only if the current state is the expected one
+	 * when testing the value. The state is compared on a snapshot and then
+	 * set if the game's version hasn't changed since, without locking the
+	 * board.
+	 */
+	public boolean setGameState(boolean testValue,
 			String newState, String expected) {
 		
-		if (testValue && !game.getGameState().equals(expected)) {
+		if (!testValue) {
+			this.game.setGameState(newState);
+			repaintChanges();
+			return true;
+		}
+		Game current = game.snapshot();
+		if (!current.getGameState().equals(expected)) {
 			return false;
 		}
-		
-		this.game.setGameState(newState);
-		repaint();
-		
+		return setGameState(current.getVersion(), newState);
+	}
+	
+	/**
+	 * Sets the game state if the game is still at the expected version (see
+	 * {@link Game#getVersion()}), and returns true if it was set.
+	 */
+	public boolean setGameState(long expectedVersion, String newState) {
+		if (!game.compareAndSetState(expectedVersion, newState)) {
+			return false;
+		}
+		repaintChanges();
 		return true;
 	}
 	
@@ -133,31 +313,16 @@ private static final long serialVersionUID = -6014690893709316364L;
 	public void paint(Graphics g) {
 		super.paint(g);
 		
-		Graphics2D g2d = (Graphics2D) g;
-		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-				RenderingHints.VALUE_ANTIALIAS_ON);
-		Game game = this.game.copy();
-		
 		// Perform calculations
-		final int BOX_PADDING = 4;
 		final int W = getWidth(), H = getHeight();
 		final int DIM = W < H? W : H, BOX_SIZE = (DIM - 2 * PADDING) / 8;
 		final int OFFSET_X = (W - BOX_SIZE * 8) / 2;
 		final int OFFSET_Y = (H - BOX_SIZE * 8) / 2;
-		final int CHECKER_SIZE = Math.max(0, BOX_SIZE - 2 * BOX_PADDING);
+		updateImages(BOX_SIZE);
+		Rectangle clip = g.getClipBounds();
 		
 		// Draw checker board
-		g.setColor(Color.BLACK);
-		g.drawRect(OFFSET_X - 1, OFFSET_Y - 1, BOX_SIZE * 8 + 1, BOX_SIZE * 8 + 1);
-		g.setColor(lightTile);
-		g.fillRect(OFFSET_X, OFFSET_Y, BOX_SIZE * 8, BOX_SIZE * 8);
-		g.setColor(darkTile);
-		for (int y = 0; y < 8; y ++) {
-			for (int x = (y + 1) % 2; x < 8; x += 2) {
-				g.fillRect(OFFSET_X + x * BOX_SIZE, OFFSET_Y + y * BOX_SIZE,
-						BOX_SIZE, BOX_SIZE);
-			}
-		}
+		g.drawImage(boardImage, OFFSET_X - 1, OFFSET_Y - 1, null);
 		
 		// Highlight the selected tile if valid
 		if (Board.isValidPoint(selected)) {
@@ -167,93 +332,43 @@ private static final long serialVersionUID = -6014690893709316364L;
 					BOX_SIZE, BOX_SIZE);
 		}
 		
-		// Draw the checkers
-		Board b = game.getBoard();
+		// Draw the checkers on the tiles being repainted
+		game.readPosition(position);
+		int p0 = position[0], p1 = position[1], p2 = position[2];
 		for (int y = 0; y < 8; y ++) {
-			int cy = OFFSET_Y + y * BOX_SIZE + BOX_PADDING;
+			int cy = OFFSET_Y + y * BOX_SIZE;
 			for (int x = (y + 1) % 2; x < 8; x += 2) {
-				int id = b.get(x, y);
-				
-				if (id == Board.EMPTY) {
+				int i = Board.toIndex(x, y);
+				int id = ((p0 >>> i) & 1) * 4 + ((p1 >>> i) & 1) * 2
+						+ ((p2 >>> i) & 1);
+				int cx = OFFSET_X + x * BOX_SIZE;
+				if (id == Board.EMPTY || (clip != null && !clip.intersects(
+						cx, cy, BOX_SIZE, BOX_SIZE))) {
 					continue;
 				}
-				
-				int cx = OFFSET_X + x * BOX_SIZE + BOX_PADDING;
-				
-				if (id == Board.BLACK_CHECKER) {
-					g.setColor(Color.DARK_GRAY);
-					g.fillOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.drawOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.GRAY);
-					g.fillOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.drawOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-				}
-				
-				else if (id == Board.BLACK_KING) {
-					g.setColor(Color.DARK_GRAY);
-					g.fillOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.drawOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.fillOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.drawOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.BLACK);
-					g.fillOval(cx - 1, cy - 2, CHECKER_SIZE, CHECKER_SIZE);
-				}
-				
-				else if (id == Board.WHITE_CHECKER) {
-					g.setColor(Color.LIGHT_GRAY);
-					g.fillOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.drawOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.PINK);
-					g.fillOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.drawOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-				}
-				
-				else if (id == Board.WHITE_KING) {
-					g.setColor(Color.LIGHT_GRAY);
-					g.fillOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.drawOval(cx + 1, cy + 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.LIGHT_GRAY);
-					g.fillOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.DARK_GRAY);
-					g.drawOval(cx, cy, CHECKER_SIZE, CHECKER_SIZE);
-					g.setColor(Color.RED);
-					g.fillOval(cx - 1, cy - 2, CHECKER_SIZE, CHECKER_SIZE);
-				}
-				
-				// Any king (add some extra highlights)
-				if (id == Board.BLACK_KING || id == Board.WHITE_KING) {
-					g.setColor(new Color(255, 240,0));
-					g.drawOval(cx - 1, cy - 2, CHECKER_SIZE, CHECKER_SIZE);
-					g.drawOval(cx + 1, cy, CHECKER_SIZE - 4, CHECKER_SIZE - 4);
-				}
+				g.drawImage(checkerImages[id], cx, cy, null);
 			}
 		}
 		
 		// Draw the player turn sign
-		String msg = game.isP1Turn()? "Player 1 turn" : "Player 2 turn";
+		boolean isP1Turn = position[3] != 0;
+		String msg = isP1Turn? "Player 1 turn" : "Player 2 turn";
 		int width = g.getFontMetrics().stringWidth(msg);
-		Color back = game.isP1Turn()? Color.BLACK : Color.BLACK;
-		Color front = game.isP1Turn()? Color.WHITE : Color.WHITE;
-		g.setColor(back);
+		g.setColor(Color.BLACK);
 		g.fillRect(W / 2 - width / 2 - 5, OFFSET_Y + 8 * BOX_SIZE + 2,
 				width + 10, 15);
-		g.setColor(front);
+		g.setColor(Color.WHITE);
 		g.drawString(msg, W / 2 - width / 2, OFFSET_Y + 8 * BOX_SIZE + 2 + 11);
 		
 		// Draw a game over sign
 		if (isGameOver) {
-			g.setFont(new Font("Times New Roman", Font.BOLD, 20));
+			((Graphics2D) g).setRenderingHint(
+					RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setFont(GAME_OVER_FONT);
 			msg = "GAME OVER";
 			width = g.getFontMetrics().stringWidth(msg);
-			g.setColor(new Color(240, 240, 255));
+			g.setColor(GAME_OVER_BACK);
 			g.fillRoundRect(W / 2 - width / 2 - 5,
 					OFFSET_Y + BOX_SIZE * 4 - 16,
 					width + 10, 30, 10, 10);
@@ -261,13 +376,203 @@ private static final long serialVersionUID = -6014690893709316364L;
 			g.drawString(msg, W / 2 - width / 2, OFFSET_Y + BOX_SIZE * 4 + 7);
 		}
 	}
+
+	/**
+	 * Draws the tiles and every type of checker into images for the given
+	 * tile size, unless the images are already for that size and the
+	 * current tile colours.
+	 */
+	private void updateImages(int boxSize) {
+		
+		boxSize = Math.max(1, boxSize);
+		if (boxSize != imageBoxSize || checkerImages == null) {
+			this.checkerImages = new BufferedImage[8];
+			for (int id : new int[] {Board.BLACK_CHECKER, Board.BLACK_KING,
+					Board.WHITE_CHECKER, Board.WHITE_KING}) {
+				BufferedImage img = newImage(boxSize, boxSize);
+				Graphics2D g = img.createGraphics();
+				g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+						RenderingHints.VALUE_ANTIALIAS_ON);
+				drawChecker(g, id, BOX_PADDING, BOX_PADDING,
+						Math.max(0, boxSize - 2 * BOX_PADDING));
+				g.dispose();
+				this.checkerImages[id] = img;
+			}
+		}
+		if (boxSize != imageBoxSize || boardImage == null
+				|| !lightTile.equals(imageLightTile)
+				|| !darkTile.equals(imageDarkTile)) {
+			BufferedImage img = newImage(boxSize * 8 + 2, boxSize * 8 + 2);
+			Graphics g = img.getGraphics();
+			g.setColor(Color.BLACK);
+			g.drawRect(0, 0, boxSize * 8 + 1, boxSize * 8 + 1);
+			g.setColor(lightTile);
+			g.fillRect(1, 1, boxSize * 8, boxSize * 8);
+			g.setColor(darkTile);
+			for (int y = 0; y < 8; y ++) {
+				for (int x = (y + 1) % 2; x < 8; x += 2) {
+					g.fillRect(1 + x * boxSize, 1 + y * boxSize,
+							boxSize, boxSize);
+				}
+			}
+			g.dispose();
+			this.boardImage = img;
+			this.imageLightTile = lightTile;
+			this.imageDarkTile = darkTile;
+		}
+		this.imageBoxSize = boxSize;
+	}
+	
+	// Creates a transparent image suited to the screen.
+	private BufferedImage newImage(int width, int height) {
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		return (gc == null)? new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB) : gc.createCompatibleImage(
+						width, height, Transparency.TRANSLUCENT);
+	}
+	
+	// Draws a checker with its top left corner at (cx, cy).
+	private static void drawChecker(Graphics g, int id, int cx, int cy,
+			int size) {
+		
+		if (id == Board.BLACK_CHECKER) {
+			g.setColor(Color.DARK_GRAY);
+			g.fillOval(cx + 1, cy + 2, size, size);
+			g.setColor(Color.LIGHT_GRAY);
+			g.drawOval(cx + 1, cy + 2, size, size);
+			g.setColor(Color.GRAY);
+			g.fillOval(cx, cy, size, size);
+			g.setColor(Color.LIGHT_GRAY);
+			g.drawOval(cx, cy, size, size);
+		}
+		
+		else if (id == Board.BLACK_KING) {
+			g.setColor(Color.DARK_GRAY);
+			g.fillOval(cx + 1, cy + 2, size, size);
+			g.setColor(Color.LIGHT_GRAY);
+			g.drawOval(cx + 1, cy + 2, size, size);
+			g.setColor(Color.DARK_GRAY);
+			g.fillOval(cx, cy, size, size);
+			g.setColor(Color.LIGHT_GRAY);
+			g.drawOval(cx, cy, size, size);
+			g.setColor(Color.BLACK);
+			g.fillOval(cx - 1, cy - 2, size, size);
+		}
+		
+		else if (id == Board.WHITE_CHECKER) {
+			g.setColor(Color.LIGHT_GRAY);
+			g.fillOval(cx + 1, cy + 2, size, size);
+			g.setColor(Color.DARK_GRAY);
+			g.drawOval(cx + 1, cy + 2, size, size);
+			g.setColor(Color.PINK);
+			g.fillOval(cx, cy, size, size);
+			g.setColor(Color.DARK_GRAY);
+			g.drawOval(cx, cy, size, size);
+		}
+		
+		else if (id == Board.WHITE_KING) {
+			g.setColor(Color.LIGHT_GRAY);
+			g.fillOval(cx + 1, cy + 2, size, size);
+			g.setColor(Color.DARK_GRAY);
+			g.drawOval(cx + 1, cy + 2, size, size);
+			g.setColor(Color.LIGHT_GRAY);
+			g.fillOval(cx, cy, size, size);
+			g.setColor(Color.DARK_GRAY);
+			g.drawOval(cx, cy, size, size);
+			g.setColor(Color.RED);
+			g.fillOval(cx - 1, cy - 2, size, size);
+		}
+		
+		// Any king (add some extra highlights)
+		if (id == Board.BLACK_KING || id == Board.WHITE_KING) {
+			g.setColor(KING_HIGHLIGHT);
+			g.drawOval(cx - 1, cy - 2, size, size);
+			g.drawOval(cx + 1, cy, size - 4, size - 4);
+		}
+	}
+
+	/**
+	 * Repaints the whole component and records what it shows, so that
+	 * {@link #repaintChanges()} compares the game against it next.
+	 */
+	private void repaintAll() {
+		game.readPosition(position);
+		this.shown = new int[] {position[0], position[1], position[2]};
+		this.shownP1Turn = position[3] != 0;
+		this.shownGameOver = isGameOver;
+		this.shownSelected = selected;
+		this.shownSelectionValid = selectionValid;
+		repaint();
+	}
+
+	/**
+	 * Repaints only the tiles that changed since they were last repainted,
+	 * along with the turn sign and the selection. Everything is repainted
+	 * when the game ends or starts again.
+	 */
+	private void repaintChanges() {
+		
+		if (isGameOver != shownGameOver) {
+			repaintAll();
+			return;
+		}
+		game.readPosition(position);
+		int p0 = position[0], p1 = position[1], p2 = position[2];
+		boolean isP1Turn = position[3] != 0;
+		
+		final int W = getWidth(), H = getHeight();
+		final int DIM = W < H? W : H, BOX_SIZE = (DIM - 2 * PADDING) / 8;
+		final int OFFSET_X = (W - BOX_SIZE * 8) / 2;
+		final int OFFSET_Y = (H - BOX_SIZE * 8) / 2;
+		
+		// The tiles where a checker was added, removed or crowned
+		int changed = (shown[0] ^ p0) | (shown[1] ^ p1) | (shown[2] ^ p2);
+		this.shown[0] = p0;
+		this.shown[1] = p1;
+		this.shown[2] = p2;
+		for (; changed != 0; changed &= changed - 1) {
+			repaintTile(Board.toPoint(Integer.numberOfTrailingZeros(changed)),
+					OFFSET_X, OFFSET_Y, BOX_SIZE);
+		}
+		
+		// The old and new selection
+		if (!isSamePoint(selected, shownSelected)
+				|| selectionValid != shownSelectionValid) {
+			repaintTile(shownSelected, OFFSET_X, OFFSET_Y, BOX_SIZE);
+			repaintTile(selected, OFFSET_X, OFFSET_Y, BOX_SIZE);
+			this.shownSelected = selected;
+			this.shownSelectionValid = selectionValid;
+		}
+		
+		// The turn sign below the board
+		if (isP1Turn != shownP1Turn) {
+			this.shownP1Turn = isP1Turn;
+			repaint(0, OFFSET_Y + 8 * BOX_SIZE + 2, W, 15);
+		}
+	}
+	
+	// Repaints one tile, if it is on the board.
+	private void repaintTile(Point p, int offsetX, int offsetY, int boxSize) {
+		if (Board.isValidPoint(p)) {
+			repaint(offsetX + p.x * boxSize, offsetY + p.y * boxSize,
+					boxSize, boxSize);
+		}
+	}
+	
+	// Checks if two points are equal or both null.
+	private static boolean isSamePoint(Point a, Point b) {
+		return (a == null)? b == null : a.equals(b);
+	}
 	
 	public Game getGame() {
 		return game;
 	}
 
 	public void setGame(Game game) {
+		cancelPlayer();
 		this.game = (game == null)? new Game() : game;
+		this.isGameOver = this.game.isGameOver();
+		repaintAll();
 	}
 
 	public CheckerWindow getWindow() {
@@ -283,17 +588,39 @@ private static final long serialVersionUID = -6014690893709316364L;
 	}
 
 	public void setPlayer1(Player player1) {
+		cancelPlayer();
+		release(this.player1, player1);
 		this.player1 = (player1 == null)? new HumanPlayer() : player1;
 		if (game.isP1Turn() && !this.player1.isHuman()) {
 			this.selected = null;
 		}
 	}
 
+	// Stops the background work of the players, such as on a restart.
+	public void stopPondering() {
+		for (Player p : new Player[] {player1, player2}) {
+			if (p instanceof SearchPlayer) {
+				((SearchPlayer) p).stopPondering();
+			}
+		}
+	}
+
+	// Stops the background work of a player that is being replaced.
+	private static void release(Player player, Player next) {
+		if (player != next && player instanceof SearchPlayer) {
+			((SearchPlayer) player).setPondering(false);
+		} else if (player != next && player instanceof RemotePlayer) {
+			((RemotePlayer) player).close();
+		}
+	}
+
 	public Player getPlayer2() {
 		return player2;
 	}
 
 	public void setPlayer2(Player player2) {
+		cancelPlayer();
+		release(this.player2, player2);
 		this.player2 = (player2 == null)? new HumanPlayer() : player2;
 		if (!game.isP1Turn() && !this.player2.isHuman()) {
 			this.selected = null;
@@ -304,12 +631,18 @@ private static final long serialVersionUID = -6014690893709316364L;
 		return game.isP1Turn()? player1 : player2;
 	}
 
+	// Gets the number of changes made to the game, see Game.getVersion().
+	public long getVersion() {
+		return game.getVersion();
+	}
+
 	public Color getLightTile() {
 		return lightTile;
 	}
 
 	public void setLightTile(Color lightTile) {
 		this.lightTile = (lightTile == null)? Color.WHITE : lightTile;
+		repaint();
 	}
 
 	public Color getDarkTile() {
@@ -318,6 +651,7 @@ private static final long serialVersionUID = -6014690893709316364L;
 
 	public void setDarkTile(Color darkTile) {
 		this.darkTile = (darkTile == null)? Color.BLUE : darkTile;
+		repaint();
 	}
 
 	private void handleClick(int x, int y) {
@@ -327,7 +661,7 @@ private static final long serialVersionUID = -6014690893709316364L;
 			return;
 		}
 		
-		Game copy = game.copy();
+		Game copy = game.snapshot();
 		
 		// Determine what square (if any) was selected
 		final int W = getWidth(), H = getHeight();
@@ -340,10 +674,10 @@ private static final long serialVersionUID = -6014690893709316364L;
 		
 		if (Board.isValidPoint(sel) && Board.isValidPoint(selected)) {
 			boolean change = copy.isP1Turn();
-			String expected = copy.getGameState();
+			long expected = copy.getVersion();
 			boolean move = copy.move(selected, sel);
-			boolean updated = (move?
-					setGameState(true, copy.getGameState(), expected) : false);
+			boolean updated = (move? game.compareAndMove(expected,
+					Board.toIndex(selected), Board.toIndex(sel)) : false);
 			change = (copy.isP1Turn() != change);
 			this.selected = change? null : sel;
 		} else {
@@ -351,8 +685,7 @@ private static final long serialVersionUID = -6014690893709316364L;
 		}
 		
 		// Check if the selection is valid
-		this.selectionValid = isValidSelection(
-				copy.getBoard(), copy.isP1Turn(), selected);
+		this.selectionValid = isValidSelection(copy, selected);
 		
 		update();
 	}
@@ -361,36 +694,9 @@ private static final long serialVersionUID = -6014690893709316364L;
 	 * Checks if a selected point is valid in the context of the current
 	 * player's turn.*/
 	
-	private boolean isValidSelection(Board b, boolean isP1Turn, Point selected) {
-
-		int i = Board.toIndex(selected), id = b.get(i);
-		if (id == Board.EMPTY || id == Board.INVALID) { 
-			return false;
-		} else if(isP1Turn ^ (id == Board.BLACK_CHECKER ||
-				id == Board.BLACK_KING)) { 
-			return false;
-		} else if (!MoveGenerate.getSkips(b, i).isEmpty()) {
-			return true;
-		} else if (MoveGenerate.getMoves(b, i).isEmpty()) {
-			return false;
-		}
-		
-		// Determine if there is a skip available for another checker
-		List<Point> points = b.find(
-				isP1Turn? Board.BLACK_CHECKER : Board.WHITE_CHECKER);
-		points.addAll(b.find(
-				isP1Turn? Board.BLACK_KING : Board.WHITE_KING));
-		for (Point p : points) {
-			int checker = Board.toIndex(p);
-			if (checker == i) {
-				continue;
-			}
-			if (!MoveGenerate.getSkips(b, checker).isEmpty()) {
-				return false;
-			}
-		}
-
-		return true;
+	private boolean isValidSelection(Game game, Point selected) {
+		int i = Board.toIndex(selected);
+		return i >= 0 && (game.getLegalStarts() & (1 << i)) != 0;
 	}
 
 	private class ClickListener implements ActionListener {
@@ -12,11 +12,27 @@
 
 package ui;
 
+import java.io.File;
+import java.io.IOException;
+
 import javax.swing.UIManager;
+
+import checkersRules.Game;
+import database.MoveJournal;
 import ui.CheckerWindow;
 
 public class Main {
 	
+	/**
+	 * The system property naming the file the game is journaled to (see
+	 * {@link MoveJournal}), a file in the user's home if it isn't set, or no
+	 * journal if it is empty.
+	 */
+	public static final String JOURNAL_PROPERTY = "checkers.journal";
+	
+	/** The system property with the journal's sync interval, in ms. */
+	public static final String SYNC_PROPERTY = "checkers.journal.sync";
+	
 public static void main(String[] args) {
 	
 	//Set the look and feel to OS	
@@ -30,8 +46,41 @@ public static void main(String[] args) {
 		// Create a window to display the checkers game
 		CheckerWindow window = new CheckerWindow();
 		window.setDefaultCloseOperation(CheckerWindow.EXIT_ON_CLOSE);
+		openJournal(window);
 		window.setVisible(true);
 	}
+	
+	/**
+	 * Restores the game the journal holds, if the last run stopped without
+	 * finishing it, and journals the window's game from then on.
+	 */
+	private static void openJournal(CheckerWindow window) {
+		
+		String name = System.getProperty(JOURNAL_PROPERTY);
+		if (name != null && name.isEmpty()) {
+			return;
+		}
+		File file = (name == null)? new File(System.getProperty("user.home"),
+				".checkers.journal") : new File(name);
+		try {
+			final MoveJournal journal = MoveJournal.open(file, Long.getLong(
+					SYNC_PROPERTY, MoveJournal.DEFAULT_SYNC_INTERVAL));
+			Game restored = journal.getRestored();
+			if (restored != null && !restored.isGameOver()) {
+				window.setGameState(restored.getGameState());
+			}
+			journal.attach(window.getBoardd().getGame());
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				
+				@Override
+				public void run() {
+					journal.close();
+				}
+			}));
+		} catch (IOException e) {
+			System.err.println("Could not open the journal: " + e.getMessage());
+		}
+	}
 
 
 }
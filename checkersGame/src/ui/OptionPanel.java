@@ -7,21 +7,30 @@ import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
 
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 
+import engine.Search;
+import engine.TimeManager;
 import players.ComputerPlayer;
 import players.HumanPlayer;
 import players.Player;
+import players.RemotePlayer;
+import players.SearchPlayer;
 import ui.CheckerWindow;
 
 public class OptionPanel extends JPanel {
 	
 	private static final long serialVersionUID = -4763875452164030755L;
 
+	//The milliseconds a search player may think about each move.
+	private static final long MOVE_TIME = 1000;
+
 	//The checkers window to update when an option is changed.
 	private CheckerWindow window;
 	
@@ -48,7 +57,8 @@ public class OptionPanel extends JPanel {
 		
 		// Initialize the components
 		OptionListener ol = new OptionListener();
-		final String[] playerTypeOpts = {"Human", "Computer"};
+		final String[] playerTypeOpts = {"Human", "Computer", "Search",
+				"Remote"};
 		this.restartBtn = new JButton("Restart");
 		this.player1Opts = new JComboBox<>(playerTypeOpts);
 		this.player2Opts = new JComboBox<>(playerTypeOpts);
@@ -86,6 +96,49 @@ public class OptionPanel extends JPanel {
 		this.window = window;
 	}
 	
+	/**
+	 * Selects a human player for one side, which sets that side's player
+	 * in the window and hides its Set Connection button.
+	 */
+	public void setHuman(boolean isPlayer1) {
+		JComboBox<String> opts = isPlayer1? player1Opts : player2Opts;
+		opts.setSelectedItem("Human");
+	}
+	
+	/**
+	 * Asks for a port to host on or a host to connect to, and makes the
+	 * player a remote player on that connection.
+	 */
+	private void setConnection(boolean isPlayer1) {
+		
+		String where = JOptionPane.showInputDialog(this,
+				"Enter a port to host on, or host:port to connect to",
+				"Set Connection", JOptionPane.QUESTION_MESSAGE);
+		if (where == null || where.trim().isEmpty()) {
+			return;
+		}
+		
+		where = where.trim();
+		try {
+			int colon = where.lastIndexOf(':');
+			RemotePlayer player = (colon < 0)?
+					RemotePlayer.host(Integer.parseInt(where))
+					: RemotePlayer.connect(where.substring(0, colon),
+							Integer.parseInt(where.substring(colon + 1)));
+			if (isPlayer1) {
+				window.setPlayer1(player);
+			} else {
+				window.setPlayer2(player);
+			}
+		} catch (IOException | NumberFormatException e) {
+			JOptionPane.showMessageDialog(this, "Could not set the connection: "
+					+ e.getMessage(), "Set Connection",
+					JOptionPane.ERROR_MESSAGE);
+		}
+	}
+	
+	// Gets a new player of the selected type, a remote player is human
+	// until its connection is set.
 	private static Player getPlayer(JComboBox<String> playerOpts) {
 		
 		Player player = new HumanPlayer();
@@ -96,6 +149,11 @@ public class OptionPanel extends JPanel {
 		String type = "" + playerOpts.getSelectedItem();
 		if (type.equals("Computer")) {
 			player = new ComputerPlayer();
+		} else if (type.equals("Search")) {
+			SearchPlayer search = new SearchPlayer(Search.MAX_PLY / 2);
+			search.setTimeManager(TimeManager.perMove(MOVE_TIME));
+			search.setPondering(true);
+			player = search;
 		}
 		
 		return player;
@@ -131,7 +189,17 @@ public class OptionPanel extends JPanel {
 				window.setPlayer2(player);
 				btn = player2Btn;
 			} else if (src == player1Btn) {
+				setConnection(true);
 			} else if (src == player2Btn) {
+				setConnection(false);
+			}
+			
+			// Only remote players have a connection to set
+			if (btn != null) {
+				JComboBox<String> opts = (btn == player1Btn)?
+						player1Opts : player2Opts;
+				btn.setVisible("Remote".equals(opts.getSelectedItem()));
+				revalidate();
 			}
 			
 		}